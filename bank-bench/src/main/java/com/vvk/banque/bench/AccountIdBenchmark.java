@@ -0,0 +1,35 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.domain.ValueObj.AccountId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// AccountId parse / format - both run on every store key, every lookup and every event (de)serialization
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountIdBenchmark {
+
+    private AccountId id;
+    private String formatted;
+
+    @Setup
+    public void setUp() {
+        id = Fixtures.newAccountId();
+        formatted = id.toString();
+    }
+
+    @Benchmark
+    public AccountId fromString() {
+        return AccountId.fromString(formatted);
+    }
+
+    @Benchmark
+    public String format() {
+        return id.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.events.DomainEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Account.fromHistry cost by stream length - what every loadAccount pays without a snapshot
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountReplayBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int events;
+
+    private AccountId id;
+    private List<DomainEvent> history;
+
+    @Setup
+    public void setUp() {
+        id = Fixtures.newAccountId();
+        history = Fixtures.history(id, events);
+    }
+
+    @Benchmark
+    public Account replay() {
+        return Account.fromHistry(id, history);
+    }
+}
@@ -0,0 +1,97 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.event.AuditLogWriter;
+import com.vvk.banque.domain.events.DomainEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// what auditing one event costs the thread that committed it.
+// console = the old ConsoleEventPublisher line: a synchronized, autoflushing println, here into /dev/null so the
+// number is the stream + syscall and not the terminal. ring = AuditLogWriter.publish flat out, which saturates the
+// ring so the publisher ends up waiting on the writer. ringBelowCapacity = bursts into an empty ring while the writer
+// sleeps, what a publish costs when the writer keeps up
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditLogBenchmark {
+
+    static final int BURST = 4_096;             // fits the default ring, so no publish of a burst waits
+
+    private DomainEvent event;
+    private PrintStream console;
+    private Path dir;
+    private AuditLogWriter audit;
+
+    @Setup
+    public void setUp() throws IOException {
+        event = Fixtures.history(Fixtures.newAccountId(), 2).get(1);
+        console = new PrintStream(new FileOutputStream("/dev/null"), true);
+        dir = Files.createTempDirectory("audit-bench");
+        audit = new AuditLogWriter(dir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        console.close();
+        audit.close();
+        delete(dir);
+    }
+
+    @Benchmark
+    public void console() {
+        console.println("[AUDIT] " + event.getClass().getSimpleName() + ": " + event);
+    }
+
+    @Benchmark
+    public void ring() {
+        audit.publish(event);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 50)
+    @Measurement(iterations = 100)
+    @OperationsPerInvocation(BURST)
+    public void ringBelowCapacity(IdleWriter idle) {
+        for (int i = 0; i < BURST; i++) idle.audit.publish(event);
+    }
+
+    // a fresh writer per burst whose flush tick is an hour away: the ring starts empty and the writer thread stays parked
+    // during the burst, the teardown's close() writes it out
+    @State(Scope.Thread)
+    public static class IdleWriter {
+        Path dir;
+        AuditLogWriter audit;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("audit-bench-idle");
+            audit = new AuditLogWriter(dir, AuditLogWriter.DEFAULT_CAPACITY, Duration.ofHours(1),
+                    AuditLogWriter.DEFAULT_MAX_FILE_BYTES);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            audit.close();
+            delete(dir);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
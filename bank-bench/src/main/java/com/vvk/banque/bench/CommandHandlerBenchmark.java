@@ -0,0 +1,113 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.adapter.persistence.InMemorySnapshotStore;
+import com.vvk.banque.adapter.persistence.SnapshottingEventStore;
+import com.vvk.banque.app.ports.out.EventPublisherPort;
+import com.vvk.banque.app.services.AccountCommandExecutor;
+import com.vvk.banque.app.services.DepositMoneyCommandHandler;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// concurrent deposits through DepositMoneyCommandHandler on the in-memory store, 4 threads.
+// store is wired like BankShell (snapshots every 100 events) so replay length stays bounded as streams grow.
+// ownAccount:    every thread deposits into its own account (no version conflicts)
+// sharedAccount: all threads hit one account (conflicts + retries on the expected-version append). the primary score
+//                counts every call, the :deposits and :conflicts rows split it into committed deposits and deposits
+//                that lost every retry; quote :deposits
+// executor*:     same two shapes through AccountCommandExecutor (4 shards, one writer per account, cached aggregate)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CommandHandlerBenchmark {
+
+    private static final Money AMOUNT = Fixtures.usd("1.00");
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        SnapshottingEventStore store;
+        DepositMoneyCommandHandler handler;
+        AccountCommandExecutor executor;
+        AccountId sharedId;
+
+        @Setup(Level.Iteration)
+        public void setUp(Blackhole bh) {
+            store = new SnapshottingEventStore(new InMemoryAccountStore(), new InMemorySnapshotStore());
+            EventPublisherPort publisher = bh::consume;
+            handler = new DepositMoneyCommandHandler(store, publisher);
+            executor = new AccountCommandExecutor(store, publisher, 4);
+            sharedId = open(store);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            executor.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Own {
+        AccountId id;
+
+        @Setup(Level.Iteration)
+        public void setUp(Shared shared) {
+            id = open(shared.store);
+        }
+    }
+
+    // reported by JMH as extra rates next to the benchmark's own score
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long deposits;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            deposits = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public void ownAccount(Shared shared, Own own) {
+        shared.handler.executeDepositMoney(own.id, AMOUNT);
+    }
+
+    // a deposit that loses every retry is a legitimate outcome under contention: counted apart, not failing the run
+    @Benchmark
+    public void sharedAccount(Shared shared, Outcomes outcomes) {
+        try {
+            shared.handler.executeDepositMoney(shared.sharedId, AMOUNT);
+            outcomes.deposits++;
+        } catch (ConcurrencyConflictException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    @Benchmark
+    public AccountCommandExecutor.Committed executorOwnAccount(Shared shared, Own own) {
+        return shared.executor.deposit(own.id, AMOUNT).join();
+    }
+
+    @Benchmark
+    public AccountCommandExecutor.Committed executorSharedAccount(Shared shared) {
+        return shared.executor.deposit(shared.sharedId, AMOUNT).join();
+    }
+
+    private static AccountId open(SnapshottingEventStore store) {
+        AccountId id = Fixtures.newAccountId();
+        Account acc = Fixtures.openAccount(id);
+        store.saveEvents(id, 0, acc.getUncommittedEvents());
+        return id;
+    }
+}
@@ -0,0 +1,50 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.persistence.EventCodec;
+import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.events.MoneyTransferInitiated;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// store payload cost per event, json vs binary. one op = encode or decode of one event.
+// deposit is the common case, the transfer carries the most ids (two accounts + transfer id).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    @Param({"json", "binary"})
+    String codecName;
+
+    @Param({"deposit", "transfer"})
+    String event;
+
+    private EventCodec codec;
+    private DomainEvent value;
+    private String type;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        codec = EventCodec.forName(codecName);
+        value = "deposit".equals(event)
+                ? Fixtures.history(Fixtures.newAccountId(), 2).get(1)
+                : new MoneyTransferInitiated(Fixtures.newAccountId(), Fixtures.newAccountId(), Fixtures.usd("30.00"));
+        type = value.getClass().getSimpleName();
+        payload = codec.encode(value);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(value);
+    }
+
+    @Benchmark
+    public DomainEvent decode() {
+        return codec.decode(type, payload);
+    }
+}
@@ -0,0 +1,80 @@
+package com.vvk.banque.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vvk.banque.adapter.persistence.EventCodec;
+import com.vvk.banque.domain.events.AccountOpened;
+import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.events.MoneyDeposited;
+import com.vvk.banque.domain.events.MoneyWithdrawn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// decode side of a replay: one op = every stored json payload of a streamLength stream back to events.
+// treeThenConvert is how the cloud stores used to read (readTree, then convertValue per event), kept as the reference.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDecodeBenchmark {
+
+    @Param({"1000"})
+    int streamLength;
+
+    private final ObjectMapper legacy = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private List<String> types;
+    private List<byte[]> json;
+    private List<byte[]> binary;
+
+    @Setup
+    public void setUp() {
+        types = new ArrayList<>(streamLength);
+        json = new ArrayList<>(streamLength);
+        binary = new ArrayList<>(streamLength);
+        for (DomainEvent e : Fixtures.history(Fixtures.newAccountId(), streamLength)) {
+            types.add(e.getClass().getSimpleName());
+            json.add(EventCodec.json().encode(e));
+            binary.add(EventCodec.binary().encode(e));
+        }
+    }
+
+    @Benchmark
+    public List<DomainEvent> treeThenConvert() throws Exception {
+        List<DomainEvent> out = new ArrayList<>(streamLength);
+        for (int i = 0; i < streamLength; i++) {
+            JsonNode node = legacy.readTree(json.get(i));
+            out.add(switch (types.get(i)) {
+                case "MoneyDeposited" -> legacy.convertValue(node, MoneyDeposited.class);
+                case "MoneyWithdrawn" -> legacy.convertValue(node, MoneyWithdrawn.class);
+                default -> legacy.convertValue(node, AccountOpened.class);
+            });
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<DomainEvent> jsonCodec() {
+        return decode(EventCodec.json(), json);
+    }
+
+    @Benchmark
+    public List<DomainEvent> binaryCodec() {
+        return decode(EventCodec.binary(), binary);
+    }
+
+    private List<DomainEvent> decode(EventCodec codec, List<byte[]> payloads) {
+        List<DomainEvent> out = new ArrayList<>(streamLength);
+        for (int i = 0; i < streamLength; i++) {
+            out.add(codec.decode(types.get(i), payloads.get(i)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,78 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.persistence.FileEventStore;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.events.DomainEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// FileEventStore on the local disk, page cache durability (no fsync per append).
+// append: one op = one conditional single-event append, round robin over `accounts` streams
+// load:   one op = loadEvents of a 1k stream, decoded from the mapped segment
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileEventStoreBenchmark {
+
+    @Param({"1000"})
+    int accounts;
+
+    private Path dir;
+    private FileEventStore store;
+    private List<AccountId> ids;
+    private int[] versions;
+    private DomainEvent[] deposits;
+    private int next;
+    private AccountId loadId;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("file-store-bench");
+        store = new FileEventStore(dir);
+        ids = new ArrayList<>(accounts);
+        versions = new int[accounts];
+        deposits = new DomainEvent[accounts];
+        for (int i = 0; i < accounts; i++) {
+            List<DomainEvent> opened = Fixtures.history(Fixtures.newAccountId(), 2);
+            AccountId id = opened.get(0).accountId();
+            store.saveEvents(id, 0, List.of(opened.get(0)));
+            ids.add(id);
+            versions[i] = 1;
+            deposits[i] = opened.get(1);
+        }
+        List<DomainEvent> history = Fixtures.history(Fixtures.newAccountId(), 1000);
+        loadId = history.get(0).accountId();
+        store.saveEvents(loadId, 0, history);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        int i = next;
+        next = (i + 1) % accounts;
+        store.saveEvents(ids.get(i), versions[i]++, List.of(deposits[i]));
+    }
+
+    @Benchmark
+    public List<DomainEvent> loadEvents() {
+        return store.loadEvents(loadId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.CustomerId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.AccountOpened;
+import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.events.MoneyDeposited;
+import com.vvk.banque.domain.events.MoneyWithdrawn;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// shared test data for the benchmarks - deterministic amounts so runs are comparable
+final class Fixtures {
+
+    static final Currency USD = Currency.getInstance("USD");
+
+    private static final AtomicInteger NEXT_ACC = new AtomicInteger(10_000);
+
+    private Fixtures() {}
+
+    static Money usd(String amt) {
+        return Money.of(new BigDecimal(amt), USD);
+    }
+
+    static AccountId newAccountId() {
+        int acc = NEXT_ACC.getAndIncrement();
+        if (acc > 99_999) {
+            NEXT_ACC.set(10_000);
+            acc = NEXT_ACC.getAndIncrement();
+        }
+        return new AccountId(acc, UUID.randomUUID());
+    }
+
+    // AccountOpened + alternating deposits / withdrawals, balance never goes below the opening 100.00
+    static List<DomainEvent> history(AccountId id, int events) {
+        List<DomainEvent> history = new ArrayList<>(events);
+        history.add(new AccountOpened(id, CustomerId.generate("VVK"), usd("100.00")));
+        Money deposit = usd("12.34");
+        Money withdrawal = usd("12.34");
+        for (int i = 1; i < events; i++) {
+            history.add(i % 2 == 1 ? new MoneyDeposited(id, deposit) : new MoneyWithdrawn(id, withdrawal));
+        }
+        return history;
+    }
+
+    static Account openAccount(AccountId id) {
+        return Account.open(id, CustomerId.generate("VVK"), usd("100.00"));
+    }
+}
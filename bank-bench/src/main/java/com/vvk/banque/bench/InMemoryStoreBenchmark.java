@@ -0,0 +1,54 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.events.DomainEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// InMemoryAccountStore append / read throughput.
+// append: one op = one event appended while a stream grows to streamLength (shows O(n) vs O(1) appends)
+// load:   one op = loadEvents of a stream of streamLength
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryStoreBenchmark {
+
+    @Param({"1000"})
+    int streamLength;
+
+    private List<DomainEvent> history;
+    private AccountId loadId;
+    private InMemoryAccountStore loaded;
+
+    @Setup
+    public void setUp() {
+        AccountId appendId = Fixtures.newAccountId();
+        history = Fixtures.history(appendId, streamLength);
+        loadId = Fixtures.newAccountId();
+        loaded = new InMemoryAccountStore();
+        for (DomainEvent e : Fixtures.history(loadId, streamLength)) {
+            loaded.saveEvent(e);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public InMemoryAccountStore saveEvent() {
+        InMemoryAccountStore store = new InMemoryAccountStore();
+        for (DomainEvent e : history) {
+            store.saveEvent(e);
+        }
+        return store;
+    }
+
+    @Benchmark
+    public List<DomainEvent> loadEvents() {
+        return loaded.loadEvents(loadId);
+    }
+}
@@ -0,0 +1,60 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.ValueObj.MoneyCents;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Money arithmetic on the BigDecimal value object vs the long minor-unit MoneyCents
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private Money a;
+    private Money b;
+    private MoneyCents ca;
+    private MoneyCents cb;
+
+    @Setup
+    public void setUp() {
+        a = Fixtures.usd("1234.56");
+        b = Fixtures.usd("78.90");
+        ca = MoneyCents.of(a);
+        cb = MoneyCents.of(b);
+    }
+
+    @Benchmark
+    public Money add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Money subtract() {
+        return a.subtract(b);
+    }
+
+    @Benchmark
+    public int compare() {
+        return a.compareTo(b);
+    }
+
+    @Benchmark
+    public MoneyCents centsAdd() {
+        return ca.add(cb);
+    }
+
+    @Benchmark
+    public MoneyCents centsSubtract() {
+        return ca.subtract(cb);
+    }
+
+    @Benchmark
+    public int centsCompare() {
+        return ca.compareTo(cb);
+    }
+}
@@ -0,0 +1,77 @@
+package com.vvk.banque.bench;
+
+import com.vvk.banque.adapter.persistence.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// durable appends of a 64 byte record from 8 threads at once.
+// syncPerAppend = the old FileGlobalEventLog path: write + force under one lock, one fsync per append.
+// groupCommit   = WriteAheadLog.append with the defaults: one fsync per batch of whatever queued meanwhile
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+    private static final int RECORD_BYTES = 64;
+
+    private Path dir;
+    private FileChannel perAppend;
+    private long perAppendEnd;
+    private FileChannel grouped;
+    private WriteAheadLog wal;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("wal-bench");
+        perAppend = open(dir.resolve("per-append.log"));
+        grouped = open(dir.resolve("grouped.log"));
+        wal = new WriteAheadLog(grouped, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        wal.close();
+        perAppend.close();
+        grouped.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    @Benchmark
+    public long syncPerAppend() {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        synchronized (this) {
+            try {
+                while (record.hasRemaining()) perAppendEnd += perAppend.write(record, perAppendEnd);
+                perAppend.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return perAppendEnd;
+        }
+    }
+
+    @Benchmark
+    public long groupCommit() {
+        return wal.append(ByteBuffer.allocate(RECORD_BYTES));
+    }
+}
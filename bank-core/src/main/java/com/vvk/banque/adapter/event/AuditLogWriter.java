@@ -0,0 +1,241 @@
+package com.vvk.banque.adapter.event;
+
+import com.vvk.banque.app.ports.out.EventPublisherPort;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Audit trail in local files, written off the request thread.
+// - publish() drops the event and its timestamp into a lock-free ring: one small record, one CAS, no I/O, no lock
+// - one writer thread wakes every flushInterval, drains the ring, builds the AuditLogEntry lines into a buffer, writes
+//   it and fsyncs once for the whole lot (group commit); a buffer that fills up in between is written early, the
+//   fsync still waits for the tick
+// - a full ring makes publish wait for the writer rather than drop entries: a trail with holes is worse than a slow command
+// - close() waits for publishes already past the open check before the last drain, so none lands in a ring nobody reads
+// - files roll at maxFileBytes: audit-000001.log, audit-000002.log.. a restart starts a new file after the highest one
+// line: occurredAt <TAB> accountId (- for customer events) <TAB> action <TAB> metadata
+public final class AuditLogWriter implements EventPublisherPort, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8_192;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int DRAIN_CHUNK = 1_024;
+    private static final long FULL_RING_WAIT_NANOS = 50_000;
+    private static final Pattern FILE_NAME = Pattern.compile("audit-(\\d{6})\\.log");
+    private static final System.Logger LOG = System.getLogger(AuditLogWriter.class.getName());
+
+    // what the request thread hands over, formatted on the writer thread
+    private record Published(DomainEvent event, Instant at) {}
+
+    private final Path dir;
+    private final MpscRingBuffer<Published> ring;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final AtomicLong stalls = new AtomicLong();     // publishes that found the ring full
+    private final AtomicInteger publishing = new AtomicInteger();   // publishes between the open check and the ring
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long durable;                          // entries fsynced so far
+
+    // writer thread only
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+    private final List<Published> drained = new ArrayList<>(DRAIN_CHUNK);
+    private FileChannel file;
+    private int fileIndex;
+    private long fileBytes;
+    private long buffered;                                  // entries in buf
+    private long written;                                   // entries handed to the OS, not yet fsynced
+    private long failures;
+
+    public AuditLogWriter(Path dir) throws IOException {
+        this(dir, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_FILE_BYTES);
+    }
+
+    public AuditLogWriter(Path dir, int capacity, Duration flushInterval, long maxFileBytes) throws IOException {
+        if (maxFileBytes < BUFFER_BYTES) {
+            throw new IllegalArgumentException("max file size must be at least " + BUFFER_BYTES + " bytes, got " + maxFileBytes);
+        }
+        this.dir = Files.createDirectories(dir);
+        this.ring = new MpscRingBuffer<>(capacity);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxFileBytes = maxFileBytes;
+        this.fileIndex = highestFileIndex(this.dir);
+        openNextFile();
+        this.writer = Thread.ofPlatform().name("audit-log-writer").daemon().start(this::run);
+    }
+
+    @Override
+    public void publish(DomainEvent event) {
+        Published p = new Published(event, Instant.now());
+        // announced before the open check: close() clears running, then waits for this to drop to 0, so either we see
+        // it closed and throw, or the writer sees us and drains after our offer
+        publishing.incrementAndGet();
+        try {
+            if (!running) throw new IllegalStateException("audit log writer is closed");
+            if (ring.offer(p)) return;
+            stalls.incrementAndGet();
+            do {
+                LockSupport.unpark(writer);                 // don't wait for the tick, make room now
+                LockSupport.parkNanos(FULL_RING_WAIT_NANOS);
+            } while (!ring.offer(p));
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    public long durable()   { return durable; }
+    public long stalls()    { return stalls.get(); }
+    public int backlog()    { return ring.size(); }
+
+    // writes and fsyncs everything published before the call, then closes the file
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try { writer.join(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /* ---------- writer thread ---------- */
+
+    private void run() {
+        long nextSync = System.nanoTime() + flushIntervalNanos;
+        while (true) {
+            boolean stopping = !running;                    // read before the drain: whatever got in before close() is taken
+            while (stopping && publishing.get() > 0) {     // late publishers may be waiting on a full ring: keep draining
+                drain();
+                LockSupport.parkNanos(FULL_RING_WAIT_NANOS);
+            }
+            drain();
+            long now = System.nanoTime();
+            if (stopping || now - nextSync >= 0) {
+                sync();
+                nextSync = now + flushIntervalNanos;
+            }
+            if (stopping) {
+                closeFile();
+                return;
+            }
+            if (ring.size() == 0) LockSupport.parkNanos(Math.max(0, nextSync - System.nanoTime()));
+        }
+    }
+
+    private void drain() {
+        while (ring.drainTo(drained, DRAIN_CHUNK) > 0) {
+            for (Published p : drained) encode(AuditLogEntry.of(p.event(), p.at()));
+            drained.clear();
+        }
+    }
+
+    private void encode(AuditLogEntry e) {
+        String line = e.getOccurredAt() + "\t" + (e.getAccountId() == null ? "-" : e.getAccountId()) + "\t"
+                + e.getAction() + "\t" + e.getMetadata() + "\n";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buf.remaining()) writeOut();
+        if (bytes.length > buf.remaining()) {               // longer than the whole buffer, goes out on its own
+            write(ByteBuffer.wrap(bytes));
+            written++;
+            return;
+        }
+        buf.put(bytes);
+        buffered++;
+    }
+
+    // buffer -> file, rolling first if it would not fit
+    private void writeOut() {
+        if (buf.position() == 0) return;
+        buf.flip();
+        write(buf);
+        buf.clear();
+        written += buffered;
+        buffered = 0;
+    }
+
+    private void write(ByteBuffer bytes) {
+        while (true) {
+            try {
+                if (file == null || fileBytes > 0 && fileBytes + bytes.remaining() > maxFileBytes) roll();
+                while (bytes.hasRemaining()) fileBytes += file.write(bytes);
+                return;
+            } catch (IOException ex) {
+                // nothing is dropped: keep the bytes, the ring backs up and publishers slow down until the disk is back
+                if (failures++ % 100 == 0) LOG.log(System.Logger.Level.ERROR, "audit log: write failed, retrying", ex);
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+    }
+
+    // one fsync for every entry since the last one
+    private void sync() {
+        writeOut();
+        if (written == 0) return;
+        while (true) {
+            try {
+                fsync();
+                return;
+            } catch (IOException ex) {
+                if (failures++ % 100 == 0) LOG.log(System.Logger.Level.ERROR, "audit log: fsync failed, retrying", ex);
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+    }
+
+    private void fsync() throws IOException {
+        file.force(false);
+        durable += written;
+        written = 0;
+    }
+
+    // the full file is synced and closed once; a retry after a failed open only opens, it never syncs a closed file
+    private void roll() throws IOException {
+        if (file != null) {
+            fsync();
+            file.close();
+            file = null;
+        }
+        openNextFile();
+    }
+
+    private void openNextFile() throws IOException {
+        fileIndex++;
+        file = FileChannel.open(dir.resolve(String.format("audit-%06d.log", fileIndex)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        fileBytes = 0;
+    }
+
+    private void closeFile() {
+        if (file == null) return;
+        try { file.close(); }
+        catch (IOException e) { LOG.log(System.Logger.Level.ERROR, "audit log: close failed", e); }
+    }
+
+    private static int highestFileIndex(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> FILE_NAME.matcher(p.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToInt(m -> Integer.parseInt(m.group(1)))
+                    .max().orElse(0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
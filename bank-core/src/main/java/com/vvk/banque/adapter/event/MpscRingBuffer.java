@@ -0,0 +1,75 @@
+package com.vvk.banque.adapter.event;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded many-producers / one-consumer ring, no locks.
+// Every slot carries a sequence number: a producer claims a ticket with one CAS on tail and may fill the slot once its
+// sequence equals the ticket; it then bumps the sequence, which is what makes the element visible to the consumer.
+// The consumer hands the slot back by moving its sequence one lap ahead. Capacity is rounded up to a power of two.
+final class MpscRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();      // next ticket for producers
+    private volatile long head;                             // written by the consumer only
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2, got " + capacity);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    // false when full, never blocks
+    boolean offer(E e) {
+        long ticket = tail.get();
+        while (true) {
+            int i = (int) (ticket & mask);
+            long gap = sequences.get(i) - ticket;
+            if (gap == 0) {
+                if (tail.compareAndSet(ticket, ticket + 1)) {
+                    slots[i] = e;
+                    sequences.set(i, ticket + 1);           // publishes the slot write above
+                    return true;
+                }
+                ticket = tail.get();
+            } else if (gap < 0) {
+                return false;                               // the consumer has not freed this slot from the last lap
+            } else {
+                ticket = tail.get();                        // another producer took the ticket, try the next one
+            }
+        }
+    }
+
+    // consumer only: moves up to max elements into out, returns how many
+    @SuppressWarnings("unchecked")
+    int drainTo(List<? super E> out, int max) {
+        long h = head;
+        int n = 0;
+        while (n < max) {
+            int i = (int) (h & mask);
+            if (sequences.get(i) != h + 1) break;           // not written yet (or a producer is mid-write)
+            out.add((E) slots[i]);
+            slots[i] = null;
+            sequences.set(i, h + slots.length);
+            h++;
+            n++;
+        }
+        head = h;
+        return n;
+    }
+
+    // approximate: counts tickets a producer is still filling
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,375 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.adapter.persistence.PostgresBalanceProjection.BalanceChange;
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.events.*;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Moves the Postgres read model off the command path.
+// - writers submit committed events with their stream version and return, the queue is bounded so a stalled
+//   read model slows writers down instead of dropping events
+// - one worker drains up to maxBatch events or batchWindow, folds each account's events into a single row change
+//   (in minor units) and writes the whole batch with addBatch/executeBatch in one transaction
+// - the checkpoint is the last projected stream version per account, stored on the balance row itself so it moves
+//   atomically with the balance. Already projected versions are skipped, which makes replays harmless
+// - if an account's events arrive with a gap (out-of-order submits, or a catch-up after restart) the tail after the
+//   checkpoint is re-read from the event store, the store stays the source of truth
+// - a failing batch is retried a few times with back-off, then each account is tried on its own and the ones that still
+//   fail are dead-lettered: logged, listed in deadLetters() and skipped, so one poison stream cannot stall the queue
+//   and the writers behind it. Their checkpoint did not move, the account's next event (or the next start) re-reads
+//   the skipped tail from the store
+public final class AsyncProjectionRunner implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(50);
+    public static final int DEFAULT_MAX_BATCH = 500;
+    private static final long POLL_MILLIS = 100;
+    static final int DEFAULT_MAX_ATTEMPTS = 5;
+    static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(500);     // doubles per attempt
+    private static final int MAX_DEAD_LETTERS = 100;                          // most recent kept for operators
+    private static final System.Logger LOG = System.getLogger(AsyncProjectionRunner.class.getName());
+
+    // an account whose events were skipped: projected up to checkpoint, the rest waits for its next event or a restart
+    public record DeadLetter(AccountId accountId, int checkpoint, String error, Instant at) {}
+
+    // what the runner needs from the read model, PostgresBalanceProjection in production
+    interface Target {
+        List<BalanceChange> applyBatch(List<BalanceChange> changes) throws SQLException;
+        Map<Integer, Integer> loadCheckpoints() throws SQLException;
+        Map<Integer, Integer> loadCheckpoints(Collection<Integer> accs) throws SQLException;
+    }
+
+    private record Committed(int version, DomainEvent event) {}
+
+    private final Target target;
+    private final AccountEventStorePort eventStore;
+    private final BlockingQueue<Committed> queue;
+    private final long batchWindowNanos;
+    private final int maxBatch;
+    private final boolean catchUpOnStart;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Map<Integer, Integer> checkpoints = new HashMap<>();   // worker thread only
+    private final AtomicLong projectedEvents = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final ArrayDeque<DeadLetter> deadLetters = new ArrayDeque<>();   // guarded by itself
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncProjectionRunner(PostgresBalanceProjection projection, AccountEventStorePort eventStore) {
+        this(projection, eventStore, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_WINDOW, DEFAULT_MAX_BATCH);
+    }
+
+    public AsyncProjectionRunner(PostgresBalanceProjection projection, AccountEventStorePort eventStore,
+                                 int queueCapacity, Duration batchWindow, int maxBatch) {
+        this(new Target() {
+            @Override public List<BalanceChange> applyBatch(List<BalanceChange> changes) throws SQLException {
+                return projection.applyBatch(changes);
+            }
+            @Override public Map<Integer, Integer> loadCheckpoints() throws SQLException {
+                return projection.loadCheckpoints();
+            }
+            @Override public Map<Integer, Integer> loadCheckpoints(Collection<Integer> accs) throws SQLException {
+                return projection.loadCheckpoints(accs);
+            }
+        }, eventStore, queueCapacity, batchWindow, maxBatch, true);
+    }
+
+    AsyncProjectionRunner(Target target, AccountEventStorePort eventStore,
+                          int queueCapacity, Duration batchWindow, int maxBatch, boolean catchUpOnStart) {
+        this(target, eventStore, queueCapacity, batchWindow, maxBatch, catchUpOnStart,
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF);
+    }
+
+    AsyncProjectionRunner(Target target, AccountEventStorePort eventStore, int queueCapacity, Duration batchWindow,
+                          int maxBatch, boolean catchUpOnStart, int maxAttempts, Duration retryBackoff) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be at least 1, got " + maxBatch);
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1, got " + maxAttempts);
+        this.target = target;
+        this.eventStore = eventStore;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatch = maxBatch;
+        this.catchUpOnStart = catchUpOnStart;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.worker = Thread.ofPlatform().name("balance-projection").daemon().start(this::run);
+    }
+
+    // events as committed by one saveEvents call, the first one landed at firstVersion
+    public void submit(int firstVersion, List<? extends DomainEvent> events) {
+        for (int i = 0; i < events.size(); i++) {
+            submit(firstVersion + i, events.get(i));
+        }
+    }
+
+    public void submit(int streamVersion, DomainEvent event) {
+        if (!running) throw new IllegalStateException("projection runner is closed");
+        try {
+            queue.put(new Committed(streamVersion, event));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while queueing event for projection", e);
+        }
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    public long projectedEvents() {
+        return projectedEvents.get();
+    }
+
+    public long failedBatches() {
+        return failedBatches.get();
+    }
+
+    // accounts skipped since start, deadLetters() only holds the most recent ones
+    public long deadLettered() {
+        return deadLettered.get();
+    }
+
+    public List<DeadLetter> deadLetters() {
+        synchronized (deadLetters) {
+            return List.copyOf(deadLetters);
+        }
+    }
+
+    // stops taking events, projects what is queued and waits for the worker
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        if (catchUpOnStart && !withRetry(this::catchUp)) {
+            LOG.log(System.Logger.Level.ERROR, "balance projection: catch-up gave up, accounts catch up on their next event");
+        }
+        List<Committed> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!fill(batch)) continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Map<AccountId, List<Committed>> streams = new LinkedHashMap<>();
+            for (Committed c : batch) {
+                streams.computeIfAbsent(c.event().accountId(), k -> new ArrayList<>()).add(c);
+            }
+            projectOrDeadLetter(streams);
+            batch.clear();
+        }
+    }
+
+    // first event blocks up to POLL_MILLIS, the rest of the batch only waits out the window
+    private boolean fill(List<Committed> batch) throws InterruptedException {
+        Committed first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) return false;
+        batch.add(first);
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < maxBatch) {
+            if (queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+            long left = deadline - System.nanoTime();
+            if (left <= 0) break;
+            Committed next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        return true;
+    }
+
+    // resume after restart: every stream in the store gets its tail after the checkpoint (0 without a row) re-read,
+    // maxBatch accounts per transaction, so events that never reached the queue or the global log are projected too
+    private void catchUp() throws SQLException {
+        checkpoints.putAll(target.loadCheckpoints());
+        Map<AccountId, List<Committed>> streams = new LinkedHashMap<>();
+        try (Stream<AccountId> accounts = eventStore.accountIds()) {
+            for (Iterator<AccountId> it = accounts.iterator(); it.hasNext(); ) {
+                streams.put(it.next(), List.of());
+                if (streams.size() < maxBatch) continue;
+                project(streams);
+                streams.clear();
+            }
+        }
+        project(streams);
+    }
+
+    private void project(Map<AccountId, List<Committed>> streams) throws SQLException {
+        List<Integer> unknown = new ArrayList<>();
+        for (AccountId id : streams.keySet()) {
+            if (!checkpoints.containsKey(id.getAcc())) unknown.add(id.getAcc());
+        }
+        if (!unknown.isEmpty()) {
+            Map<Integer, Integer> loaded = target.loadCheckpoints(unknown);
+            for (Integer acc : unknown) checkpoints.put(acc, loaded.getOrDefault(acc, 0));
+        }
+
+        List<BalanceChange> changes = new ArrayList<>(streams.size());
+        Map<Integer, AccountId> ids = new HashMap<>();
+        for (Map.Entry<AccountId, List<Committed>> e : streams.entrySet()) {
+            int acc = e.getKey().getAcc();
+            int at = checkpoints.get(acc);
+            List<DomainEvent> tail = contiguousTail(e.getValue(), at);
+            if (tail == null) tail = eventStore.loadEvents(e.getKey(), at);
+            if (tail.isEmpty()) continue;
+            changes.add(fold(acc, at, tail));
+            ids.put(acc, e.getKey());
+        }
+
+        List<BalanceChange> rejected = target.applyBatch(changes);
+        Set<Integer> stale = new HashSet<>();
+        for (BalanceChange ch : rejected) stale.add(ch.acc());
+        for (BalanceChange ch : changes) {
+            if (stale.contains(ch.acc())) continue;
+            checkpoints.put(ch.acc(), ch.newVersion());
+            projectedEvents.addAndGet(ch.newVersion() - ch.expectedVersion());
+        }
+        if (stale.isEmpty()) return;
+
+        // the row moved under us (another writer, or it never existed): reload the checkpoint and rebuild from the store
+        Map<AccountId, List<Committed>> retry = new LinkedHashMap<>();
+        for (Integer acc : stale) {
+            checkpoints.remove(acc);
+            retry.put(ids.get(acc), List.of());
+        }
+        if (streams.values().stream().allMatch(List::isEmpty)) {
+            failedBatches.incrementAndGet();   // already a rebuild from the store, don't loop
+            return;
+        }
+        project(retry);
+    }
+
+    // events after the checkpoint if they continue it without a gap, null if the store has to fill in
+    // (an empty submitted list means "catch up from the store")
+    private static List<DomainEvent> contiguousTail(List<Committed> submitted, int at) {
+        if (submitted.isEmpty()) return null;
+        List<Committed> sorted = new ArrayList<>(submitted);
+        sorted.sort(Comparator.comparingInt(Committed::version));
+        List<DomainEvent> tail = new ArrayList<>(sorted.size());
+        int expected = at + 1;
+        for (Committed c : sorted) {
+            if (c.version() < expected) continue;              // already projected
+            if (c.version() != expected) return null;          // gap
+            tail.add(c.event());
+            expected++;
+        }
+        return tail;
+    }
+
+    // same mapping as PostgresBalanceProjection.project, folded into one signed minor-unit delta
+    private static BalanceChange fold(int acc, int at, List<DomainEvent> tail) {
+        String customer = null;
+        boolean opened = false;
+        long minor = 0;
+        Currency cur = null;
+        for (DomainEvent evt : tail) {
+            switch (evt) {
+                case AccountOpened e -> {
+                    opened = true;
+                    customer = e.ownerId().getCust();
+                    minor = e.openBal().minorUnits();
+                    cur = e.openBal().getCur();
+                }
+                case MoneyDeposited e -> {
+                    minor = Math.addExact(minor, e.amount().minorUnits());
+                    cur = e.amount().getCur();
+                }
+                case MoneyWithdrawn e -> {
+                    minor = Math.subtractExact(minor, e.amount().minorUnits());
+                    cur = e.amount().getCur();
+                }
+                case MoneyTransferInitiated e -> {
+                    minor = Math.subtractExact(minor, e.amount().minorUnits());
+                    cur = e.amount().getCur();
+                }
+                case MoneyTransferReceive e -> {
+                    minor = Math.addExact(minor, e.amount().minorUnits());
+                    cur = e.amount().getCur();
+                }
+                case MoneyTransferSend e -> { }   // not projected, same as project()
+                case CustomerSignedUp e -> { }
+            }
+        }
+        return new BalanceChange(acc, customer, opened, minor, cur, at, at + tail.size());
+    }
+
+    private interface SqlTask {
+        void run() throws SQLException;
+    }
+
+    // the whole batch first; if it keeps failing, account by account so the healthy ones still land
+    private void projectOrDeadLetter(Map<AccountId, List<Committed>> streams) {
+        if (withRetry(() -> project(streams)) || !running) return;     // closing: the next start catches up
+        for (Map.Entry<AccountId, List<Committed>> e : streams.entrySet()) {
+            try {
+                project(Map.of(e.getKey(), e.getValue()));
+            } catch (SQLException | RuntimeException ex) {
+                checkpoints.remove(e.getKey().getAcc());
+                deadLetter(e.getKey(), ex);
+            }
+        }
+    }
+
+    private void deadLetter(AccountId id, Exception cause) {
+        int at;
+        try {
+            at = target.loadCheckpoints(List.of(id.getAcc())).getOrDefault(id.getAcc(), 0);
+        } catch (SQLException | RuntimeException unknown) {
+            at = -1;
+        }
+        deadLettered.incrementAndGet();
+        synchronized (deadLetters) {
+            if (deadLetters.size() == MAX_DEAD_LETTERS) deadLetters.removeFirst();
+            deadLetters.addLast(new DeadLetter(id, at, String.valueOf(cause.getMessage()), Instant.now()));
+        }
+        LOG.log(System.Logger.Level.ERROR, "balance projection: skipping account " + id + " after " + maxAttempts
+                + " failed attempts, projected up to version " + at, cause);
+    }
+
+    // the read model being down must not lose the batch: up to maxAttempts with doubling back-off while running,
+    // one attempt on close. false if the task never went through
+    private boolean withRetry(SqlTask task) {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                task.run();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                failedBatches.incrementAndGet();
+                checkpoints.clear();    // reload from the table, the only copy that survived the rollback
+                if (!running || attempt >= maxAttempts) {
+                    LOG.log(System.Logger.Level.WARNING, "balance projection: batch failed, giving up after "
+                            + attempt + " attempts", e);
+                    return false;
+                }
+                LOG.log(System.Logger.Level.WARNING, "balance projection: batch failed (attempt " + attempt + " of "
+                        + maxAttempts + "), retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff *= 2;
+            }
+        }
+    }
+}
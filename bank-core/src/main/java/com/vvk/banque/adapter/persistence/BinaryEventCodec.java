@@ -0,0 +1,269 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.CustomerId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.ValueObj.TransactionId;
+import com.vvk.banque.domain.events.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Compact payload format, big endian:
+//   [MAGIC][type tag][schema version of that type][fields..]
+// - AccountId     int acc + 16 byte uuid                      (json: ~70 bytes of text)
+// - CustomerId    3 ascii bytes + 16 byte uuid
+// - Money         short ISO 4217 numeric code + long minor units
+//                 numeric 0 = code not unique, 3 ascii letters follow; minor == Long.MIN_VALUE = too big for a long,
+//                 int length + unscaled BigInteger bytes follow
+// - TransactionId presence byte + 16 byte uuid (events older than transfer ids have none)
+// - String        DataOutput.writeUTF
+// A type whose fields change gets a new schema version, decode keeps a case per version it ever wrote.
+public final class BinaryEventCodec implements EventCodec {
+
+    static final BinaryEventCodec INSTANCE = new BinaryEventCodec();
+
+    // not a valid first byte of utf-8 text, json payloads always start with '{'
+    static final byte MAGIC = (byte) 0xB1;
+
+    private static final byte ACCOUNT_OPENED           = 1;
+    private static final byte MONEY_DEPOSITED          = 2;
+    private static final byte MONEY_WITHDRAWN          = 3;
+    private static final byte MONEY_TRANSFER_INITIATED = 4;
+    private static final byte MONEY_TRANSFER_SEND      = 5;
+    private static final byte MONEY_TRANSFER_RECEIVE   = 6;
+    private static final byte CUSTOMER_SIGNED_UP       = 7;
+
+    private static final byte V1 = 1;
+
+    private static final long BIG_AMOUNT = Long.MIN_VALUE;
+    private static final short ALPHA_CURRENCY = 0;
+
+    // numeric code -> currency, codes shared by several currencies (or none, 0) are left out and written as letters
+    private static final Map<Integer, Currency> BY_NUMERIC = numericCodes();
+
+    private BinaryEventCodec() {}
+
+    static boolean isBinary(byte[] payload) {
+        return payload.length > 0 && payload[0] == MAGIC;
+    }
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public byte[] encode(DomainEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            switch (event) {
+                case AccountOpened e -> {
+                    header(out, ACCOUNT_OPENED);
+                    writeAccountId(out, e.accountId());
+                    writeCustomerId(out, e.ownerId());
+                    writeMoney(out, e.openBal());
+                }
+                case MoneyDeposited e -> {
+                    header(out, MONEY_DEPOSITED);
+                    writeAccountId(out, e.accountId());
+                    writeMoney(out, e.amount());
+                }
+                case MoneyWithdrawn e -> {
+                    header(out, MONEY_WITHDRAWN);
+                    writeAccountId(out, e.accountId());
+                    writeMoney(out, e.amount());
+                }
+                case MoneyTransferInitiated e -> {
+                    header(out, MONEY_TRANSFER_INITIATED);
+                    writeAccountId(out, e.fromId());
+                    writeAccountId(out, e.toId());
+                    writeMoney(out, e.amount());
+                    writeTransactionId(out, e.transferId());
+                }
+                case MoneyTransferSend e -> {
+                    header(out, MONEY_TRANSFER_SEND);
+                    writeAccountId(out, e.fromAccountId());
+                    writeAccountId(out, e.toAccountId());
+                    writeMoney(out, e.amount());
+                }
+                case MoneyTransferReceive e -> {
+                    header(out, MONEY_TRANSFER_RECEIVE);
+                    writeAccountId(out, e.toAccountId());
+                    writeAccountId(out, e.fromAccountId());
+                    writeMoney(out, e.amount());
+                    writeTransactionId(out, e.transferId());
+                }
+                case CustomerSignedUp e -> {
+                    header(out, CUSTOMER_SIGNED_UP);
+                    writeCustomerId(out, e.customerId());
+                    out.writeUTF(e.name());
+                    out.writeUTF(e.email());
+                    out.writeUTF(e.hashedPassword());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);      // in-memory stream, only writeUTF on a >64k string gets here
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public DomainEvent decode(String eventType, byte[] payload) {
+        if (!isBinary(payload)) return JsonEventCodec.INSTANCE.decode(eventType, payload);
+        return decode(eventType, new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1)));
+    }
+
+    // reads the event straight out of the buffer's remaining bytes (a slice of a mapped file..), no payload array
+    DomainEvent decode(ByteBuffer payload) {
+        if (payload.get() != MAGIC) throw new IllegalArgumentException("not a binary event payload");
+        return decode("binary record", new DataInputStream(new BufferInput(payload)));
+    }
+
+    private DomainEvent decode(String eventType, DataInputStream in) {
+        try (in) {
+            byte tag = in.readByte();
+            byte version = in.readByte();
+            if (version != V1) {
+                throw new IllegalArgumentException("unsupported schema version " + version + " for " + eventType);
+            }
+            return switch (tag) {
+                case ACCOUNT_OPENED -> new AccountOpened(readAccountId(in), readCustomerId(in), readMoney(in));
+                case MONEY_DEPOSITED -> new MoneyDeposited(readAccountId(in), readMoney(in));
+                case MONEY_WITHDRAWN -> new MoneyWithdrawn(readAccountId(in), readMoney(in));
+                case MONEY_TRANSFER_INITIATED ->
+                        new MoneyTransferInitiated(readAccountId(in), readAccountId(in), readMoney(in), readTransactionId(in));
+                case MONEY_TRANSFER_SEND -> new MoneyTransferSend(readAccountId(in), readAccountId(in), readMoney(in));
+                case MONEY_TRANSFER_RECEIVE ->
+                        new MoneyTransferReceive(readAccountId(in), readAccountId(in), readMoney(in), readTransactionId(in));
+                case CUSTOMER_SIGNED_UP ->
+                        new CustomerSignedUp(readCustomerId(in), in.readUTF(), in.readUTF(), in.readUTF());
+                default -> throw new IllegalArgumentException("unknown binary event tag " + tag + " for " + eventType);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("truncated " + eventType + " payload", e);
+        }
+    }
+
+    // DataInputStream only asks for bulk reads of a few bytes at a time, both go straight to the buffer
+    private static final class BufferInput extends InputStream {
+        private final ByteBuffer buf;
+
+        BufferInput(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+
+    /* ---------- fields ---------- */
+
+    private static void header(DataOutputStream out, byte tag) throws IOException {
+        out.writeByte(tag);
+        out.writeByte(V1);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeAccountId(DataOutputStream out, AccountId id) throws IOException {
+        out.writeInt(id.getAcc());
+        writeUuid(out, id.getId());
+    }
+
+    private static AccountId readAccountId(DataInputStream in) throws IOException {
+        return new AccountId(in.readInt(), readUuid(in));
+    }
+
+    private static void writeCustomerId(DataOutputStream out, CustomerId id) throws IOException {
+        out.write(id.getCust().getBytes(StandardCharsets.US_ASCII));   // always 3 chars [A-Z0-9]
+        writeUuid(out, id.getCust_uuid());
+    }
+
+    private static CustomerId readCustomerId(DataInputStream in) throws IOException {
+        byte[] cust = new byte[3];
+        in.readFully(cust);
+        return new CustomerId(new String(cust, StandardCharsets.US_ASCII), readUuid(in));
+    }
+
+    private static void writeMoney(DataOutputStream out, Money money) throws IOException {
+        Currency cur = money.getCur();
+        int numeric = cur.getNumericCode();
+        if (BY_NUMERIC.get(numeric) == cur) {
+            out.writeShort(numeric);
+        } else {
+            out.writeShort(ALPHA_CURRENCY);
+            out.write(cur.getCurrencyCode().getBytes(StandardCharsets.US_ASCII));
+        }
+        if (money.fitsMinorUnits() && money.minorUnits() != BIG_AMOUNT) {
+            out.writeLong(money.minorUnits());
+        } else {
+            byte[] unscaled = money.getAmt().unscaledValue().toByteArray();
+            out.writeLong(BIG_AMOUNT);
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    private static Money readMoney(DataInputStream in) throws IOException {
+        int numeric = in.readShort();
+        Currency cur;
+        if (numeric == ALPHA_CURRENCY) {
+            byte[] code = new byte[3];
+            in.readFully(code);
+            cur = Currency.getInstance(new String(code, StandardCharsets.US_ASCII));
+        } else {
+            cur = BY_NUMERIC.get(numeric);
+            if (cur == null) throw new IllegalArgumentException("unknown ISO 4217 numeric currency " + numeric);
+        }
+        long minor = in.readLong();
+        if (minor != BIG_AMOUNT) return Money.ofMinor(minor, cur);
+        byte[] unscaled = new byte[in.readInt()];
+        in.readFully(unscaled);
+        return Money.of(new BigDecimal(new BigInteger(unscaled), cur.getDefaultFractionDigits()), cur);
+    }
+
+    private static void writeTransactionId(DataOutputStream out, TransactionId id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) writeUuid(out, id.getTID());
+    }
+
+    private static TransactionId readTransactionId(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new TransactionId(readUuid(in)) : null;
+    }
+
+    private static Map<Integer, Currency> numericCodes() {
+        Map<Integer, Currency> byNumeric = new HashMap<>();
+        Set<Integer> shared = new HashSet<>();
+        for (Currency c : Currency.getAvailableCurrencies()) {
+            int n = c.getNumericCode();
+            if (n <= 0) continue;
+            if (byNumeric.putIfAbsent(n, c) != null) shared.add(n);
+        }
+        byNumeric.keySet().removeAll(shared);
+        return Map.copyOf(byNumeric);
+    }
+}
@@ -0,0 +1,150 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.AggregatesObj.AccountSnapshot;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Decorator over any event store that keeps recently loaded accounts in memory (LRU, bounded by entry count).
+// - entries are immutable AccountSnapshots, every loadAccount gets its own fresh Account built from one
+// - a hit still reads the tail after the cached version, so an entry is never stale, just cheaper than a replay
+// - saveEvents rolls the entry forward when it was at the expected version, the next hit then has an empty tail
+public final class CachingEventStore implements AccountEventStorePort, AccountQueryPort {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    public record CacheStats(long hits, long misses, long evictions, int size) {}
+
+    private final AccountEventStorePort delegate;
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<AccountId, AccountSnapshot> cache;   // guarded by itself, access order is a write
+
+    public CachingEventStore(AccountEventStorePort delegate, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("cache size must be 1 or more, got: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AccountId, AccountSnapshot> eldest) {
+                if (size() <= CachingEventStore.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public CachingEventStore(AccountEventStorePort delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES);
+    }
+
+    @Override
+    public Account loadAccount(AccountId accountId) {
+        AccountSnapshot cached = get(accountId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            List<DomainEvent> tail = delegate.loadEvents(accountId, cached.version());
+            Account account = Account.fromSnapshot(cached, tail);
+            if (!tail.isEmpty()) put(account.snapshot());
+            return account;
+        }
+        misses.incrementAndGet();
+        Account account = delegate.loadAccount(accountId);
+        if (account.getVersion() >= 1) put(account.snapshot());
+        return account;
+    }
+
+    @Override
+    public Money findBalanceByAccountId(AccountId accountId) {
+        return loadAccount(accountId).getBalance();
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        delegate.saveEvents(accountId, expectedVersion, events);
+        if (events.isEmpty()) return;
+        AccountSnapshot cached = get(accountId);
+        if (cached != null && cached.version() == expectedVersion) {
+            put(Account.fromSnapshot(cached, events).snapshot());
+        }
+    }
+
+    // unconditional append, version unknown here: drop the entry, the next load re-reads
+    @Override
+    public void saveEvent(DomainEvent event) {
+        delegate.saveEvent(event);
+        synchronized (cache) {
+            cache.remove(event.accountId());
+        }
+    }
+
+    public CacheStats stats() {
+        synchronized (cache) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), cache.size());
+        }
+    }
+
+    private AccountSnapshot get(AccountId accountId) {
+        synchronized (cache) {
+            return cache.get(accountId);
+        }
+    }
+
+    // two loads racing on one account may finish out of order, keep whichever is further along
+    private void put(AccountSnapshot snapshot) {
+        synchronized (cache) {
+            cache.merge(snapshot.accountId(), snapshot, (old, neu) -> neu.version() >= old.version() ? neu : old);
+        }
+    }
+
+    /* ---------- plain delegation ---------- */
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId) {
+        return delegate.loadEvents(accountId);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        return delegate.loadEvents(accountId, fromVersionExclusive);
+    }
+
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        return delegate.streamEvents(accountId);
+    }
+
+    @Override
+    public int currentVersion(AccountId accountId) {
+        return delegate.currentVersion(accountId);
+    }
+
+    @Override
+    public Stream<AccountId> accountIds() {
+        return delegate.accountIds();
+    }
+
+    @Override
+    public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
+        return delegate.loadEventsByNumericAcc(accNumber);
+    }
+
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        return delegate.findAccountIdByNumber(accNumber);
+    }
+}
@@ -0,0 +1,112 @@
+package com.vvk.banque.adapter.persistence;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Append-only log in fixed size chunks, one per stream.
+// - appends are O(1): a slot is claimed with a CAS, written, then published by bumping `size`
+// - nothing is ever copied except the small chunk directory when it grows
+// - readers get a zero-copy view of [from, size) as of the moment they ask; later appends never show up in it
+// tryAppend doubles as the optimistic concurrency check: the CAS only wins if nobody claimed past expectedSize.
+final class ChunkedEventLog<E> {
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;   // 256 slots per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final AtomicReference<Object[][]> directory = new AtomicReference<>(new Object[][] { new Object[CHUNK_SIZE] });
+    private final AtomicInteger claimed = new AtomicInteger();   // slots handed out to writers
+    private volatile int size;                                   // slots readers may see, always <= claimed
+
+    // conditional append: wins only if the log is exactly at expectedSize, else false and nothing is written
+    boolean tryAppend(int expectedSize, List<? extends E> items) {
+        int n = items.size();
+        if (n == 0) return claimed.get() == expectedSize;
+        if (!claimed.compareAndSet(expectedSize, expectedSize + n)) return false;
+        write(expectedSize, items);
+        return true;
+    }
+
+    // unconditional append, returns the slot (0 based) the item landed in
+    int append(E item) {
+        int slot = claimed.getAndIncrement();
+        write(slot, List.of(item));
+        return slot;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // slots handed out, including appends still being written - what tryAppend compares against
+    int claimed() {
+        return claimed.get();
+    }
+
+    // read view of everything after fromExclusive items, bounded at the current published size
+    List<E> view(int fromExclusive) {
+        int end = size;                                  // volatile read first, then the directory it covers
+        int from = Math.min(Math.max(fromExclusive, 0), end);
+        return new View<>(directory.get(), from, end);
+    }
+
+    private void write(int start, List<? extends E> items) {
+        for (int i = 0; i < items.size(); i++) {
+            int slot = start + i;
+            chunkFor(slot)[slot & CHUNK_MASK] = items.get(i);
+        }
+        // publish in claim order, a writer never exposes a gap left by an earlier, slower writer
+        for (int spins = 0; size != start; spins++) {
+            if (spins < SPINS_BEFORE_YIELD) Thread.onSpinWait();
+            else Thread.yield();                         // earlier writer was descheduled, let it finish
+        }
+        size = start + items.size();
+    }
+
+    private Object[] chunkFor(int slot) {
+        int c = slot >>> CHUNK_BITS;
+        Object[][] dir = directory.get();
+        while (c >= dir.length || dir[c] == null) {
+            // new directory (same length if only the chunk is missing) - existing chunks are shared, never copied
+            int length = c < dir.length ? dir.length : Math.max(dir.length * 2, c + 1);
+            Object[][] grown = Arrays.copyOf(dir, length);
+            for (int i = 0; i <= c; i++) {
+                if (grown[i] == null) grown[i] = new Object[CHUNK_SIZE];
+            }
+            dir = directory.compareAndSet(dir, grown) ? grown : directory.get();
+        }
+        return dir[c];
+    }
+
+    private static final class View<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[][] dir;
+        private final int from;
+        private final int end;
+
+        View(Object[][] dir, int from, int end) {
+            this.dir = dir;
+            this.from = from;
+            this.end = end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= end - from) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + (end - from));
+            }
+            int slot = from + index;
+            return (E) dir[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return end - from;
+        }
+    }
+}
@@ -2,90 +2,476 @@ package com.vvk.banque.adapter.persistence;
 import com.azure.cosmos.CosmosClient;
 import com.azure.cosmos.CosmosContainer;
 import com.azure.cosmos.CosmosClientBuilder;
-import com.azure.cosmos.models.CosmosQueryRequestOptions; 
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosBatch;
+import com.azure.cosmos.models.CosmosBatchResponse;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosPatchOperations;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
 import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.OutboxPort;
 import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.events.*;
 import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public final class CosmosEventStore implements AccountEventStorePort, AccountQueryPort {
+public final class CosmosEventStore implements AccountEventStorePort, AccountQueryPort, OutboxPort {
     private final CosmosContainer container;
-    private final ObjectMapper mapper = new ObjectMapper(); // Keep the instance
+    private final EventCodec codec; // json payloads stay embedded documents, binary ones go in as a base64 string
+    private final int pageSize;     // preferred items per continuation page
+    private final boolean outbox;   // event documents carry "unpublished": true until the relay clears it
+    private long queries;           // guarded by this, with the three below
+    private long pages;
+    private double requestCharge;
+    private double maxQueryCharge;
+
+    // account-number lookup docs live in their own logical partition "#ACCNO-12345" with id "12345",
+    // so resolving a number is a point read (id + partition key) instead of a cross-partition query. accounts opened
+    // before the index existed are indexed by the one-time migration, a lookup never falls back to a query
+    private static final String ACC_NO_PREFIX = "#ACCNO-";
+    // TransactionalBatch limit per request
+    private static final int MAX_BATCH_OPERATIONS = 100;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+
+    // fixed query texts, the values go in as parameters so the gateway caches one plan per query
+    // a stream read stays on the account's partition (options carry the key) and only pulls the two fields replay needs
+    private static final String STREAM_QUERY =
+            "SELECT c.eventType, c.payload FROM c WHERE c.accountId = @accountId ORDER BY c.version ASC";
+    private static final String TAIL_QUERY =
+            "SELECT c.eventType, c.payload FROM c WHERE c.accountId = @accountId AND c.version > @from ORDER BY c.version ASC";
+    private static final String VERSION_QUERY =
+            "SELECT VALUE COUNT(1) FROM c WHERE c.accountId = @accountId";
+    // the one cross-partition query on the write side. ordered by (accountId, version) - needs that composite index -
+    // so whatever TOP cuts off, every account comes back as a prefix of its unpublished events
+    private static final String OUTBOX_QUERY =
+            "SELECT TOP @max c.accountId, c.version, c.eventType, c.payload FROM c WHERE c.unpublished = true "
+                    + "ORDER BY c.accountId ASC, c.version ASC";
+
+    // partitions still holding a document from before versioning; DISTINCT over the index, no document reads
+    private static final String LEGACY_ACCOUNTS_QUERY =
+            "SELECT DISTINCT VALUE c.accountId FROM c WHERE NOT IS_DEFINED(c.version)";
+    // every account, for indexing the numbers opened before the index existed
+    private static final String OPENED_ACCOUNTS_QUERY =
+            "SELECT VALUE c.accountId FROM c WHERE c.eventType = @opened";
+    private static final String ACCOUNTS_QUERY =
+            "SELECT VALUE c.fullAccountId FROM c WHERE c.docType = @docType";
+    private static final String PARTITION_QUERY = "SELECT * FROM c WHERE c.accountId = @accountId";
+    // written once every pre-versioning document sits at its versioned id, so later opens skip the scan
+    private static final String MIGRATION_PARTITION = "#MIGRATION";
+    private static final String LEGACY_EVENTS_MIGRATED = "legacy-events";
+    private static final List<String> SYSTEM_PROPERTIES = List.of("_rid", "_self", "_etag", "_attachments", "_ts");
+
+    private volatile boolean migrated;
+
+    // a legacy document rewritten at its planned version, and the random id it replaces
+    record LegacyMove(ObjectNode doc, String legacyId) {}
+
+    // request units spent on queries, one query = every page it read
+    public record QueryStats(long queries, long pages, double requestCharge, double maxQueryCharge) {}
 
     public CosmosEventStore(String uri, String key, String dbName, String containerName) {
+        this(uri, key, dbName, containerName, EventCodec.json());
+    }
+
+    public CosmosEventStore(String uri, String key, String dbName, String containerName, EventCodec codec) {
+        this(uri, key, dbName, containerName, codec, DEFAULT_PAGE_SIZE);
+    }
+
+    public CosmosEventStore(String uri, String key, String dbName, String containerName, EventCodec codec, int pageSize) {
+        this(uri, key, dbName, containerName, codec, pageSize, false);
+    }
+
+    public CosmosEventStore(String uri, String key, String dbName, String containerName, EventCodec codec, int pageSize,
+                            boolean outbox) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page size must be 1 or more, got: " + pageSize);
+        }
         CosmosClient client = new CosmosClientBuilder()
                 .endpoint(uri)
                 .key(key)
                 .preferredRegions(List.of("West India"))
                 .buildClient();
         this.container = client.getDatabase(dbName).getContainer(containerName);
-
-        // Configure the ObjectMapper instance for Records and Parameter Names
-        this.mapper.registerModule(new ParameterNamesModule());
-        // Configure the ObjectMapper to ignore unknown properties during deserialization
-        this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.codec = codec;
+        this.pageSize = pageSize;
+        this.outbox = outbox;
     }
 
+    // unconditional append, but still numbered: lands at whatever version the stream is at right now,
+    // a writer racing us for that id just moves it one further
     @Override
     public void saveEvent(DomainEvent event) {
-        Map<String, Object> doc = Map.of(
-                "id", UUID.randomUUID().toString(),
-                "accountId", event.accountId().toString(), // <-- This stores "XXXXX-UUID_STRING"
-                "eventType", event.getClass().getSimpleName(),
-                "payload", mapper.valueToTree(event), // Uses the configured mapper
-                "timestamp", Instant.now().toString()
-        );
-        // Use the AccountId string as the partition key
-        container.createItem(doc, new PartitionKey(event.accountId().toString()), null);
+        AccountId accountId = event.accountId();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                saveEvents(accountId, currentVersion(accountId), List.of(event));
+                return;
+            } catch (ConcurrencyConflictException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) throw e;
+            }
+        }
     }
 
     @Override
-    public List<DomainEvent> loadEvents(AccountId accountId) {
-        // Use string concatenation for exact match query - NO CosmosSqlParameter
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        if (events.isEmpty()) return;
+        // the version check is a key collision: with a legacy row still at a random key, a stale writer's version
+        // slot would be free and its append would pass. the migration puts every row at its version first
+        ensureMigrated();
+        if (events.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("at most " + MAX_BATCH_OPERATIONS + " events per append, got " + events.size());
+        }
+        // the number's index doc lives in another partition, out of the batch's reach: it is claimed first, so a
+        // committed open always resolves. a crash before the batch leaves a claim on a stream with no events
+        for (DomainEvent event : events) {
+            if (event instanceof AccountOpened opened) {
+                claimAccountNumber(opened.getAccountId());
+            }
+        }
         String accountIdStr = accountId.toString();
-        String query = "SELECT * FROM c WHERE c.accountId = '" + accountIdStr + "' ORDER BY c.timestamp ASC";
+        // one TransactionalBatch on the account's partition: one round trip, all creates commit or none do
+        CosmosBatch batch = CosmosBatch.createCosmosBatch(new PartitionKey(accountIdStr));
+        int version = expectedVersion;
+        for (DomainEvent event : events) {
+            version++;
+            // id is unique per partition, so "<accountId>:<version>" can only be created once -> 409 on a lost race
+            Map<String, Object> doc = new HashMap<>(Map.of(
+                    "id", accountIdStr + ":" + version,
+                    "accountId", accountIdStr,
+                    "version", version,
+                    "eventType", event.getClass().getSimpleName(),
+                    "payload", payloadOf(event),
+                    "timestamp", Instant.now().toString()
+            ));
+            if (outbox) doc.put("unpublished", true);     // same batch as the event, commits or fails with it
+            batch.createItemOperation(doc);
+        }
+        CosmosBatchResponse res = container.executeCosmosBatch(batch);
+        if (!res.isSuccessStatusCode()) {
+            boolean versionTaken = res.getResults().stream().anyMatch(r -> r.getStatusCode() == 409);
+            if (versionTaken) {
+                throw new ConcurrencyConflictException("account " + accountId + " moved past version " + expectedVersion);
+            }
+            throw new RuntimeException("Batch append failed for " + accountId + ", status " + res.getStatusCode()
+                    + ": " + res.getErrorMessage());
+        }
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId) {
+        List<DomainEvent> events;
+        try (Stream<DomainEvent> stream = streamEvents(accountId)) {
+            events = stream.toList();
+        }
+        if (events.isEmpty()) throw new RuntimeException("Account not found: " + accountId);
+        return events;
+    }
+
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        ensureMigrated();
+        return stream(accountId, new SqlQuerySpec(STREAM_QUERY, new SqlParameter("@accountId", accountId.toString())));
+    }
+
+    // only the events after the caller's version
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        ensureMigrated();
+        SqlQuerySpec query = new SqlQuerySpec(TAIL_QUERY,
+                new SqlParameter("@accountId", accountId.toString()),
+                new SqlParameter("@from", fromVersionExclusive));
+        try (Stream<DomainEvent> tail = stream(accountId, query)) {
+            return tail.toList();
+        }
+    }
+
+    // one continuation page at a time: the pages iterator follows the continuation token, flatMap only asks
+    // for the next page once the caller has folded this one, so replay starts on the first page
+    private Stream<DomainEvent> stream(AccountId accountId, SqlQuerySpec query) {
+        Iterator<FeedResponse<JsonNode>> feed = container.queryItems(query, partitionOf(accountId), JsonNode.class)
+                .iterableByPage(pageSize).iterator();
+        double[] charge = {0};
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(feed, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(page -> {
+                    charge[0] += page.getRequestCharge();
+                    countPage(page.getRequestCharge());
+                    return page.getResults();
+                })
+                .flatMap(List::stream)
+                .map(this::toDomainEvent)
+                .onClose(() -> countQuery(charge[0]));
+    }
+
+    // stream version = number of event documents in the account's partition
+    @Override
+    public int currentVersion(AccountId accountId) {
+        SqlQuerySpec query = new SqlQuerySpec(VERSION_QUERY, new SqlParameter("@accountId", accountId.toString()));
+        double charge = 0;
+        int version = 0;
+        for (FeedResponse<Integer> page : container.queryItems(query, partitionOf(accountId), Integer.class).iterableByPage()) {
+            charge += page.getRequestCharge();
+            countPage(page.getRequestCharge());
+            for (Integer n : page.getResults()) version += n;
+        }
+        countQuery(charge);
+        return version;
+    }
+
+    /* ---------- legacy documents ---------- */
+
+    // gives every pre-versioning document (random id, no version) the "<accountId>:<version>" id and the version it
+    // owns and indexes the number of every account opened before the index existed, then writes the marker.
+    // ORDER BY c.version puts undefined versions first in no defined order, so a stream holding both kinds only
+    // replays in order once this has run. reads and appends call it first, it queries the container once per
+    // container, not per process. several processes may run it at once: every move is a create
+    public synchronized void migrateLegacyEvents() {
+        if (migrated) return;
+        try {
+            container.readItem(LEGACY_EVENTS_MIGRATED, new PartitionKey(MIGRATION_PARTITION), JsonNode.class);
+            migrated = true;
+            return;
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 404) throw e;
+        }
+        List<String> legacy = new ArrayList<>();
+        for (FeedResponse<String> page : container.queryItems(new SqlQuerySpec(LEGACY_ACCOUNTS_QUERY),
+                new CosmosQueryRequestOptions(), String.class).iterableByPage()) {
+            countPage(page.getRequestCharge());
+            for (String account : page.getResults()) {
+                if (!account.startsWith("#")) legacy.add(account);    // lookup and marker docs have no version either
+            }
+        }
+        for (String account : legacy) migrateStream(account);
+        SqlQuerySpec opened = new SqlQuerySpec(OPENED_ACCOUNTS_QUERY, new SqlParameter("@opened", "AccountOpened"));
+        for (FeedResponse<String> page : container.queryItems(opened, new CosmosQueryRequestOptions(), String.class)
+                .iterableByPage(pageSize)) {
+            countPage(page.getRequestCharge());
+            for (String account : page.getResults()) indexAccountNumber(AccountId.fromString(account));
+        }
+        container.upsertItem(Map.of(
+                "id", LEGACY_EVENTS_MIGRATED,
+                "accountId", MIGRATION_PARTITION,
+                "timestamp", Instant.now().toString()));
+        migrated = true;
+    }
 
-        List<JsonNode> docs = container.queryItems(
-                query, // The query string now contains the ID directly
-                new CosmosQueryRequestOptions(), // Use default options
-                JsonNode.class
-        ).stream().collect(Collectors.toList());
+    private void ensureMigrated() {
+        if (!migrated) migrateLegacyEvents();
+    }
 
-        if (docs.isEmpty()) throw new RuntimeException("Account not found: " + accountId);
-        return docs.stream().map(this::toDomainEvent).collect(Collectors.toList()); // Uses the configured mapper
+    // one partition at a time: each move creates the versioned document and deletes the random id in one batch.
+    // a concurrent migrator or writer fails the batch with a 409 or 404, then the partition is read and planned again
+    private void migrateStream(String account) {
+        PartitionKey partition = new PartitionKey(account);
+        for (int attempt = 1; ; attempt++) {
+            List<JsonNode> docs = new ArrayList<>();
+            SqlQuerySpec query = new SqlQuerySpec(PARTITION_QUERY, new SqlParameter("@accountId", account));
+            for (FeedResponse<JsonNode> page : container.queryItems(query,
+                    new CosmosQueryRequestOptions().setPartitionKey(partition), JsonNode.class).iterableByPage(pageSize)) {
+                countPage(page.getRequestCharge());
+                docs.addAll(page.getResults());
+            }
+            List<LegacyMove> moves = legacyMoves(docs);
+            boolean conflict = false;
+            // a move is two operations, and the lowest versions go first so a retry plans the rest the same way
+            for (int from = 0; from < moves.size() && !conflict; from += MAX_BATCH_OPERATIONS / 2) {
+                CosmosBatch batch = CosmosBatch.createCosmosBatch(partition);
+                for (LegacyMove move : moves.subList(from, Math.min(from + MAX_BATCH_OPERATIONS / 2, moves.size()))) {
+                    batch.createItemOperation(move.doc());
+                    batch.deleteItemOperation(move.legacyId());
+                }
+                CosmosBatchResponse res = container.executeCosmosBatch(batch);
+                if (res.isSuccessStatusCode()) continue;
+                conflict = res.getResults().stream().anyMatch(r -> r.getStatusCode() == 409 || r.getStatusCode() == 404);
+                if (!conflict || attempt >= MAX_APPEND_ATTEMPTS) {
+                    throw new RuntimeException("Migrating legacy events failed for " + account + ", status "
+                            + res.getStatusCode() + ": " + res.getErrorMessage());
+                }
+            }
+            if (!conflict) return;
+        }
+    }
+
+    // the partition's legacy documents, each copied to its versioned id without the server's system properties
+    static List<LegacyMove> legacyMoves(List<JsonNode> partition) {
+        List<LegacyMove> moves = new ArrayList<>();
+        for (LegacyEvents.Renumbered<JsonNode> r : LegacyEvents.plan(partition,
+                d -> d.hasNonNull("version") ? d.get("version").asInt() : null,
+                d -> d.get("timestamp").asText(),
+                d -> d.get("id").asText())) {
+            ObjectNode doc = ((ObjectNode) r.row()).deepCopy();
+            doc.remove(SYSTEM_PROPERTIES);
+            doc.put("id", doc.get("accountId").asText() + ":" + r.version());
+            doc.put("version", r.version());
+            moves.add(new LegacyMove(doc, r.row().get("id").asText()));
+        }
+        return moves;
+    }
+
+    /* ---------- outbox ---------- */
+
+    @Override
+    public List<OutboxEntry> unpublished(int maxCount) {
+        SqlQuerySpec query = new SqlQuerySpec(OUTBOX_QUERY, new SqlParameter("@max", maxCount));
+        List<OutboxEntry> out = new ArrayList<>();
+        double charge = 0;
+        for (FeedResponse<JsonNode> page : container.queryItems(query, new CosmosQueryRequestOptions(), JsonNode.class)
+                .iterableByPage(pageSize)) {
+            charge += page.getRequestCharge();
+            countPage(page.getRequestCharge());
+            for (JsonNode doc : page.getResults()) {
+                out.add(new OutboxEntry(AccountId.fromString(doc.get("accountId").asText()),
+                        doc.get("version").asInt(), toDomainEvent(doc)));
+            }
+        }
+        countQuery(charge);
+        return out;
+    }
+
+    // one batch of patches per account partition; set rather than remove, so clearing twice is harmless
+    @Override
+    public void markPublished(List<OutboxEntry> entries) {
+        Map<AccountId, List<OutboxEntry>> byAccount = new LinkedHashMap<>();
+        for (OutboxEntry e : entries) byAccount.computeIfAbsent(e.accountId(), k -> new ArrayList<>()).add(e);
+        CosmosPatchOperations clear = CosmosPatchOperations.create().set("/unpublished", false);
+        byAccount.forEach((accountId, list) -> {
+            String accountIdStr = accountId.toString();
+            for (int from = 0; from < list.size(); from += MAX_BATCH_OPERATIONS) {
+                CosmosBatch batch = CosmosBatch.createCosmosBatch(new PartitionKey(accountIdStr));
+                for (OutboxEntry e : list.subList(from, Math.min(from + MAX_BATCH_OPERATIONS, list.size()))) {
+                    batch.patchItemOperation(accountIdStr + ":" + e.streamVersion(), clear);
+                }
+                CosmosBatchResponse res = container.executeCosmosBatch(batch);
+                if (!res.isSuccessStatusCode()) {
+                    throw new RuntimeException("Clearing outbox markers failed for " + accountId + ", status "
+                            + res.getStatusCode() + ": " + res.getErrorMessage());
+                }
+            }
+        });
+    }
+
+    private static CosmosQueryRequestOptions partitionOf(AccountId accountId) {
+        return new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(accountId.toString()));
+    }
+
+    // every account has a number index doc, one cross-partition query over those, paged as the caller consumes it.
+    // a claim whose open never committed lists an account with no events yet, its stream reads empty
+    @Override
+    public Stream<AccountId> accountIds() {
+        ensureMigrated();
+        SqlQuerySpec query = new SqlQuerySpec(ACCOUNTS_QUERY, new SqlParameter("@docType", "AccountNumberIndex"));
+        Iterator<FeedResponse<String>> feed = container.queryItems(query, new CosmosQueryRequestOptions(), String.class)
+                .iterableByPage(pageSize).iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(feed, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .peek(page -> countPage(page.getRequestCharge()))
+                .flatMap(page -> page.getResults().stream())
+                .map(AccountId::fromString);
     }
 
     @Override
     public Account loadAccount(AccountId accountId) {
-        return Account.fromHistry(accountId, loadEvents(accountId));
+        try (Stream<DomainEvent> history = streamEvents(accountId)) {
+            return Account.fromHistry(accountId, history.iterator());
+        }
+    }
+
+    public synchronized QueryStats queryStats() {
+        return new QueryStats(queries, pages, requestCharge, maxQueryCharge);
+    }
+
+    private synchronized void countPage(double charge) {
+        pages++;
+        requestCharge += charge;
+    }
+
+    private synchronized void countQuery(double charge) {
+        queries++;
+        maxQueryCharge = Math.max(maxQueryCharge, charge);
     }
 
     @Override
     public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
-        // Construct the prefix string to match
-        String prefix = String.format("%05d", accNumber) + "-"; // e.g., "44444-"
+        return findAccountIdByNumber(accNumber)
+                .map(this::loadEvents)
+                .orElse(Collections.emptyList());
+    }
+
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        ensureMigrated();       // every account is indexed from here on, a missing doc is an unknown number
+        String accNo = String.format("%05d", accNumber);
+        try {
+            JsonNode doc = container.readItem(accNo, new PartitionKey(ACC_NO_PREFIX + accNo), JsonNode.class).getItem();
+            return Optional.of(AccountId.fromString(doc.get("fullAccountId").asText()));
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 404) throw e;
+        }
+        return Optional.empty();
+    }
+
+    // the migration's path: accounts it finds already hold their number, first writer wins
+    private void indexAccountNumber(AccountId accountId) {
+        try {
+            container.createItem(indexDoc(accountId), numberPartition(accountId), null);
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 409) throw e;
+        }
+    }
 
-        // Use string concatenation for STARTSWITH query - NO CosmosSqlParameter
-        String query = "SELECT * FROM c WHERE STARTSWITH(c.accountId, '" + prefix + "') ORDER BY c.timestamp ASC";
+    // an open's path: the number is taken unless its holder is this account, or a claim whose open never committed
+    // (no events behind it), which is taken over only if nobody repointed it since it was read
+    private void claimAccountNumber(AccountId accountId) {
+        String accNo = String.format("%05d", accountId.getAcc());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                container.createItem(indexDoc(accountId), numberPartition(accountId), null);
+                return;
+            } catch (CosmosException e) {
+                if (e.getStatusCode() != 409) throw e;
+            }
+            CosmosItemResponse<JsonNode> held = container.readItem(accNo, numberPartition(accountId), JsonNode.class);
+            AccountId holder = AccountId.fromString(held.getItem().get("fullAccountId").asText());
+            if (holder.equals(accountId)) return;
+            if (currentVersion(holder) > 0) {
+                throw new IllegalStateException("account number " + accNo + " is already in use");
+            }
+            try {
+                container.replaceItem(indexDoc(accountId), accNo, numberPartition(accountId),
+                        new CosmosItemRequestOptions().setIfMatchETag(held.getETag()));
+                return;
+            } catch (CosmosException e) {
+                if (e.getStatusCode() != 412 || attempt >= MAX_APPEND_ATTEMPTS) throw e;
+            }
+        }
+    }
 
-        List<JsonNode> docs = container.queryItems(
-                query, 
-                new CosmosQueryRequestOptions(), // Use default options
-                JsonNode.class
-        ).stream().collect(Collectors.toList());
+    private static Map<String, Object> indexDoc(AccountId accountId) {
+        String accNo = String.format("%05d", accountId.getAcc());
+        return Map.of(
+                "id", accNo,
+                "accountId", ACC_NO_PREFIX + accNo,
+                "docType", "AccountNumberIndex",
+                "fullAccountId", accountId.toString()
+        );
+    }
 
-        return docs.stream().map(this::toDomainEvent).collect(Collectors.toList()); // Uses the configured mapper
+    private static PartitionKey numberPartition(AccountId accountId) {
+        return new PartitionKey(ACC_NO_PREFIX + String.format("%05d", accountId.getAcc()));
     }
 
     @Override
@@ -93,19 +479,16 @@ public final class CosmosEventStore implements AccountEventStorePort, AccountQue
         return loadAccount(accountId).getBalance();
     }
 
+    private Object payloadOf(DomainEvent event) {
+        if (codec instanceof JsonEventCodec json) return json.toTree(event);
+        return Base64.getEncoder().encodeToString(codec.encode(event));
+    }
+
+    // a document's payload is either the event tree (json) or a base64 string (binary), whatever the table writes now
     private DomainEvent toDomainEvent(JsonNode node) {
         String type = node.get("eventType").asText();
         JsonNode payload = node.get("payload");
-        // Use the configured ObjectMapper instance for deserialization
-        return switch (type) {
-            case "AccountOpened"      -> mapper.convertValue(payload, AccountOpened.class); // Uses mapper
-            case "MoneyDeposited"     -> mapper.convertValue(payload, MoneyDeposited.class); // Uses mapper
-            case "MoneyWithdrawn"     -> mapper.convertValue(payload, MoneyWithdrawn.class); // Uses mapper
-            case "MoneyTransferInitiated" -> mapper.convertValue(payload, MoneyTransferInitiated.class); // Uses mapper
-            // Keep old ones for compatibility if needed during transition
-            case "MoneyTransferSend"  -> mapper.convertValue(payload, MoneyTransferSend.class); // Uses mapper
-            case "MoneyTransferReceive" -> mapper.convertValue(payload, MoneyTransferReceive.class); // Uses mapper
-            default -> throw new IllegalArgumentException("Unknown event type: " + type);
-        };
+        if (payload.isTextual()) return codec.decode(type, Base64.getDecoder().decode(payload.asText()));
+        return JsonEventCodec.INSTANCE.fromTree(type, payload);
     }
 }
@@ -2,58 +2,231 @@ package com.vvk.banque.adapter.persistence;
 
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.OutboxPort;
 import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.events.*;
 import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 import software.amazon.awssdk.core.SdkBytes;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public final class DynamoEventStore implements AccountEventStorePort, AccountQueryPort {
+public final class DynamoEventStore implements AccountEventStorePort, AccountQueryPort, OutboxPort {
 
     private final DynamoDbClient client;
     private final String tableName;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final EventCodec codec;     // write format for this table, reads accept json and binary alike
+    private final int pageSize;         // items per Query page, DynamoDB also cuts a page at 1 MB
+    private final boolean outbox;       // event items carry the unpublished marker until the relay clears it
+
+    // account-number lookup items share the table: pk "#ACCNO-12345", sk "#INDEX", attr fullAccountId.
+    // the '#' prefix keeps them clear of "12345-UUID" event partitions. accounts opened before the index existed are
+    // indexed by the one-time migration, so a lookup never falls back to scanning the table
+    private static final String ACC_NO_PREFIX = "#ACCNO-";
+    private static final String INDEX_SORT_KEY = "#INDEX";
+    // and one registry partition, sk = full account id, so listing the accounts is a query instead of a table scan
+    private static final String ACCOUNTS_PK = "#ACCOUNTS";
+    // TransactWriteItems limit per request
+    private static final int MAX_TRANSACT_ITEMS = 100;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+    // next-page fetches, one short-lived virtual thread each: they only wait on the network
+    private static final ExecutorService PREFETCH = Executors.newVirtualThreadPerTaskExecutor();
+    // outbox mode: the marker attribute is the partition key of a sparse GSI (sort key "timestamp", projecting
+    // accountId, version, eventType and payload), so the index only ever holds events still waiting for the relay
+    private static final String UNPUBLISHED = "unpublished";
+    private static final String OUTBOX_INDEX = "outbox-index";
+    private static final AttributeValue PENDING = AttributeValue.builder().s("PENDING").build();
+    // written once every pre-versioning row sits at its versioned key, so later opens skip the table scan
+    private static final String MIGRATION_PK = "#MIGRATION";
+    private static final String LEGACY_EVENTS_MIGRATED = "#LEGACY-EVENTS";
+
+    private volatile boolean migrated;
 
     public DynamoEventStore(DynamoDbClient client, String tableName) {
+        this(client, tableName, EventCodec.json());
+    }
+
+    public DynamoEventStore(DynamoDbClient client, String tableName, EventCodec codec) {
+        this(client, tableName, codec, DEFAULT_PAGE_SIZE);
+    }
+
+    public DynamoEventStore(DynamoDbClient client, String tableName, EventCodec codec, int pageSize) {
+        this(client, tableName, codec, pageSize, false);
+    }
+
+    public DynamoEventStore(DynamoDbClient client, String tableName, EventCodec codec, int pageSize, boolean outbox) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page size must be 1 or more, got: " + pageSize);
+        }
         this.client = client;
         this.tableName = tableName;
+        this.codec = codec;
+        this.pageSize = pageSize;
+        this.outbox = outbox;
     }
 
+    // unconditional append, but still numbered: lands at whatever version the stream is at right now,
+    // a writer racing us for that slot just moves it one further
     @Override
     public void saveEvent(DomainEvent event) {
-        Map<String, AttributeValue> item = Map.of(
-                "accountId", AttributeValue.builder().s(event.accountId().toString()).build(),
-                "eventId",   AttributeValue.builder().s(UUID.randomUUID().toString()).build(),
-                "eventType", AttributeValue.builder().s(event.getClass().getSimpleName()).build(),
-                "payload",   AttributeValue.builder().b(SdkBytes.fromUtf8String(toJson(event))).build(),
-                "timestamp", AttributeValue.builder().s(Instant.now().toString()).build()
-        );
-        client.putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+        AccountId accountId = event.accountId();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                saveEvents(accountId, currentVersion(accountId), List.of(event));
+                return;
+            } catch (ConcurrencyConflictException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        if (events.isEmpty()) return;
+        // the version check is a key collision: with a legacy row still at a random key, a stale writer's version
+        // slot would be free and its append would pass. the migration puts every row at its version first
+        ensureMigrated();
+        List<AccountId> opened = events.stream()
+                .filter(e -> e instanceof AccountOpened)
+                .map(e -> ((AccountOpened) e).getAccountId())
+                .toList();
+        if (events.size() + 2 * opened.size() > MAX_TRANSACT_ITEMS) {
+            throw new IllegalArgumentException("at most " + MAX_TRANSACT_ITEMS + " items per append, got " + events.size()
+                    + " events and " + opened.size() + " accounts to index");
+        }
+        // one TransactWriteItems round trip: every event is a conditional Put, all land or none do
+        List<TransactWriteItem> puts = new ArrayList<>(events.size() + 2 * opened.size());
+        int version = expectedVersion;
+        for (DomainEvent event : events) {
+            version++;
+            // eventId is the zero padded stream version, so (accountId, eventId) can only be written once
+            Map<String, AttributeValue> item = new HashMap<>(eventItem(event, versionKey(version)));
+            item.put("version", AttributeValue.builder().n(Integer.toString(version)).build());
+            if (outbox) item.put(UNPUBLISHED, PENDING);     // same Put as the event, lands or fails with it
+            puts.add(TransactWriteItem.builder().put(Put.builder()
+                    .tableName(tableName)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(eventId)")
+                    .build()).build());
+        }
+        // the number index and the registry entry go in the same transaction, an opened account is never unresolvable
+        for (AccountId account : opened) {
+            puts.add(TransactWriteItem.builder().put(indexPut(account)).build());
+            puts.add(TransactWriteItem.builder().put(registryPut(account)).build());
+        }
+        try {
+            client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(puts).build());
+        } catch (TransactionCanceledException e) {
+            if (!e.hasCancellationReasons()) throw e;
+            // one reason per item, in request order: the events first, then an index and a registry item per account
+            List<CancellationReason> reasons = e.cancellationReasons();
+            for (int i = 0; i < reasons.size(); i++) {
+                if (!"ConditionalCheckFailed".equals(reasons.get(i).code())) continue;
+                if (i < events.size()) {
+                    throw new ConcurrencyConflictException("account " + accountId + " moved past version " + expectedVersion);
+                }
+                AccountId taken = opened.get((i - events.size()) / 2);
+                throw new IllegalStateException("account number " + String.format("%05d", taken.getAcc())
+                        + " is already in use");
+            }
+            throw e;
+        }
     }
 
     @Override
     public List<DomainEvent> loadEvents(AccountId accountId) {
-        QueryRequest req = QueryRequest.builder()
+        List<DomainEvent> events;
+        try (Stream<DomainEvent> stream = streamEvents(accountId)) {
+            events = stream.toList();
+        }
+        if (events.isEmpty()) throw new RuntimeException("Account not found: " + accountId);
+        return events;
+    }
+
+    // follows LastEvaluatedKey to the end of the partition, a single Query stops at 1 MB
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        ensureMigrated();
+        return pages(QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("accountId = :aid")
+                .expressionAttributeValues(Map.of(":aid", AttributeValue.builder().s(accountId.toString()).build()))
+                .limit(pageSize)
+                .build());
+    }
+
+    // range read on the sort key: starts right after the version the caller already has, not at the first event
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        ensureMigrated();
+        QueryRequest query = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("accountId = :aid AND eventId > :from")
+                .expressionAttributeValues(Map.of(
+                        ":aid", AttributeValue.builder().s(accountId.toString()).build(),
+                        ":from", AttributeValue.builder().s(versionKey(Math.max(fromVersionExclusive, 0))).build()))
+                .limit(pageSize)
+                .build();
+        try (Stream<DomainEvent> tail = pages(query)) {
+            return tail.toList();
+        }
+    }
+
+    private Stream<DomainEvent> pages(QueryRequest query) {
+        EventPages pages = new EventPages(query);
+        return StreamSupport.stream(pages, false).onClose(pages::close);
+    }
+
+    // stream version = number of events in the partition, counted without reading them
+    @Override
+    public int currentVersion(AccountId accountId) {
+        ensureMigrated();
+        QueryRequest count = QueryRequest.builder()
                 .tableName(tableName)
                 .keyConditionExpression("accountId = :aid")
                 .expressionAttributeValues(Map.of(":aid", AttributeValue.builder().s(accountId.toString()).build()))
+                .select(Select.COUNT)
+                .consistentRead(true)
+                .build();
+        int version = 0;
+        for (QueryResponse page : client.queryPaginator(count)) {
+            version += page.count();
+        }
+        return version;
+    }
+
+    // pages through the registry partition as the caller consumes the stream
+    @Override
+    public Stream<AccountId> accountIds() {
+        ensureMigrated();
+        QueryRequest registry = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("accountId = :aid")
+                .expressionAttributeValues(Map.of(":aid", AttributeValue.builder().s(ACCOUNTS_PK).build()))
+                .projectionExpression("eventId")
+                .limit(pageSize)
                 .build();
-        List<Map<String, AttributeValue>> items = client.query(req).items();
-        if (items.isEmpty()) throw new RuntimeException("Account not found: " + accountId);
-        return items.stream().map(this::toDomainEvent).collect(Collectors.toList());
+        return StreamSupport.stream(client.queryPaginator(registry).items().spliterator(), false)
+                .map(item -> AccountId.fromString(item.get("eventId").s()));
     }
 
     @Override
     public Account loadAccount(AccountId accountId) {
-        return Account.fromHistry(accountId, loadEvents(accountId));
+        try (Stream<DomainEvent> history = streamEvents(accountId)) {
+            return Account.fromHistry(accountId, history.iterator());
+        }
     }
 
     @Override
@@ -61,39 +234,313 @@ public final class DynamoEventStore implements AccountEventStorePort, AccountQue
         return loadAccount(accountId).getBalance();
     }
 
+    /* ---------- outbox ---------- */
+
+    // one query on the sparse index, which projects the event itself, and no partition reads. the index is eventually
+    // consistent, it may show an account's later marked event before an earlier one, so per account:
+    // - only the run of consecutive versions from the lowest one shown is taken, a gap waits for the next poll
+    // - the event before that run must be unmarked, checked with one consistent GetItem. markers are only cleared
+    //   as a prefix of the stream (the relay clears what was acknowledged in order), so that covers all before it
+    @Override
+    public List<OutboxEntry> unpublished(int maxCount) {
+        QueryRequest pending = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(OUTBOX_INDEX)
+                .keyConditionExpression("unpublished = :p")
+                .expressionAttributeValues(Map.of(":p", PENDING))
+                .projectionExpression("accountId, version, eventType, payload")
+                .limit(maxCount)
+                .build();
+        Map<String, List<Map<String, AttributeValue>>> byAccount = new LinkedHashMap<>();
+        for (Map<String, AttributeValue> item : client.query(pending).items()) {
+            byAccount.computeIfAbsent(item.get("accountId").s(), k -> new ArrayList<>()).add(item);
+        }
+        List<OutboxEntry> out = new ArrayList<>();
+        for (Map.Entry<String, List<Map<String, AttributeValue>>> account : byAccount.entrySet()) {
+            List<Map<String, AttributeValue>> items = account.getValue();
+            items.sort(Comparator.comparingInt(i -> Integer.parseInt(i.get("version").n())));
+            int lowest = Integer.parseInt(items.get(0).get("version").n());
+            if (lowest > 1 && stillMarked(account.getKey(), lowest - 1)) continue;
+            AccountId accountId = AccountId.fromString(account.getKey());
+            int expected = lowest;
+            for (Map<String, AttributeValue> item : items) {
+                int version = Integer.parseInt(item.get("version").n());
+                if (version != expected) break;
+                out.add(new OutboxEntry(accountId, version, toDomainEvent(item)));
+                expected++;
+            }
+        }
+        return out;
+    }
+
+    private boolean stillMarked(String account, int version) {
+        GetItemResponse res = client.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(
+                        "accountId", AttributeValue.builder().s(account).build(),
+                        "eventId",   AttributeValue.builder().s(versionKey(version)).build()))
+                .projectionExpression(UNPUBLISHED)
+                .consistentRead(true)
+                .build());
+        return res.hasItem() && res.item().containsKey(UNPUBLISHED);
+    }
+
+    // one unconditional REMOVE per event, up to MAX_TRANSACT_ITEMS of them per round trip
+    @Override
+    public void markPublished(List<OutboxEntry> entries) {
+        for (int from = 0; from < entries.size(); from += MAX_TRANSACT_ITEMS) {
+            List<TransactWriteItem> updates = new ArrayList<>();
+            for (OutboxEntry e : entries.subList(from, Math.min(from + MAX_TRANSACT_ITEMS, entries.size()))) {
+                updates.add(TransactWriteItem.builder().update(Update.builder()
+                        .tableName(tableName)
+                        .key(Map.of(
+                                "accountId", AttributeValue.builder().s(e.accountId().toString()).build(),
+                                "eventId", AttributeValue.builder().s(versionKey(e.streamVersion())).build()))
+                        .updateExpression("REMOVE unpublished")
+                        .conditionExpression("attribute_exists(eventId)")      // never create a bare key item
+                        .build()).build());
+            }
+            client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(updates).build());
+        }
+    }
+
+    /* ---------- legacy rows ---------- */
+
+    // moves every pre-versioning row (random uuid eventId, no version attribute) to its versioned key, indexes the
+    // number of every account opened before the index existed (and lists it for accountIds), then writes the marker.
+    // a uuid sorts anywhere among the "%010d" keys and no range read can place it, so a stream holding both kinds
+    // only replays in order once this has run. reads and appends call it first, it scans the table once per table,
+    // not per process. several processes may run it at once: every move is conditional
+    public synchronized void migrateLegacyEvents() {
+        if (migrated) return;
+        GetItemResponse marker = client.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(migrationKey())
+                .consistentRead(true)
+                .build());
+        if (marker.hasItem()) {
+            migrated = true;
+            return;
+        }
+        ScanRequest scan = ScanRequest.builder()
+                .tableName(tableName)
+                .filterExpression("attribute_not_exists(version) OR eventType = :opened")
+                .expressionAttributeValues(Map.of(":opened", AttributeValue.builder().s("AccountOpened").build()))
+                .projectionExpression("accountId, version")
+                .build();
+        Set<String> legacy = new LinkedHashSet<>();
+        Set<String> opened = new LinkedHashSet<>();
+        for (ScanResponse page : client.scanPaginator(scan)) {
+            for (Map<String, AttributeValue> item : page.items()) {
+                String account = item.get("accountId").s();
+                if (account.startsWith("#")) continue;                  // lookup and marker items have no version either
+                if (!item.containsKey("version")) legacy.add(account);
+                opened.add(account);        // a legacy stream starts with its AccountOpened row, so legacy ones too
+            }
+        }
+        for (String account : legacy) migrateStream(account);
+        for (String account : opened) indexAccountNumber(AccountId.fromString(account));
+        Map<String, AttributeValue> done = new HashMap<>(migrationKey());
+        done.put("timestamp", AttributeValue.builder().s(Instant.now().toString()).build());
+        client.putItem(PutItemRequest.builder().tableName(tableName).item(done).build());
+        migrated = true;
+    }
+
+    private void ensureMigrated() {
+        if (!migrated) migrateLegacyEvents();
+    }
+
+    // one stream, read back consistently: each legacy row is put at its planned version and its uuid key deleted in
+    // the same transaction. a concurrent migrator or writer fails a condition, then the stream is read and planned again
+    private void migrateStream(String account) {
+        QueryRequest all = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("accountId = :aid")
+                .expressionAttributeValues(Map.of(":aid", AttributeValue.builder().s(account).build()))
+                .consistentRead(true)
+                .limit(pageSize)
+                .build();
+        for (int attempt = 1; ; attempt++) {
+            List<Map<String, AttributeValue>> rows = new ArrayList<>();
+            for (QueryResponse page : client.queryPaginator(all)) rows.addAll(page.items());
+            List<LegacyEvents.Renumbered<Map<String, AttributeValue>>> moves = LegacyEvents.plan(rows,
+                    r -> r.containsKey("version") ? Integer.valueOf(r.get("version").n()) : null,
+                    r -> r.get("timestamp").s(),
+                    r -> r.get("eventId").s());
+            try {
+                // a move is two items, and the lowest versions go first so a retry plans the rest the same way
+                for (int from = 0; from < moves.size(); from += MAX_TRANSACT_ITEMS / 2) {
+                    List<TransactWriteItem> writes = new ArrayList<>();
+                    for (LegacyEvents.Renumbered<Map<String, AttributeValue>> move
+                            : moves.subList(from, Math.min(from + MAX_TRANSACT_ITEMS / 2, moves.size()))) {
+                        Map<String, AttributeValue> item = new HashMap<>(move.row());
+                        item.put("eventId", AttributeValue.builder().s(versionKey(move.version())).build());
+                        item.put("version", AttributeValue.builder().n(Integer.toString(move.version())).build());
+                        writes.add(TransactWriteItem.builder().put(Put.builder()
+                                .tableName(tableName)
+                                .item(item)
+                                .conditionExpression("attribute_not_exists(eventId)")
+                                .build()).build());
+                        writes.add(TransactWriteItem.builder().delete(Delete.builder()
+                                .tableName(tableName)
+                                .key(Map.of("accountId", move.row().get("accountId"), "eventId", move.row().get("eventId")))
+                                .conditionExpression("attribute_exists(eventId)")
+                                .build()).build());
+                    }
+                    client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(writes).build());
+                }
+                return;
+            } catch (TransactionCanceledException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    private static Map<String, AttributeValue> migrationKey() {
+        return Map.of(
+                "accountId", AttributeValue.builder().s(MIGRATION_PK).build(),
+                "eventId",   AttributeValue.builder().s(LEGACY_EVENTS_MIGRATED).build()
+        );
+    }
+
     /* ---------- helpers ---------- */
-    private String toJson(Object o) {
-        try { return mapper.writeValueAsString(o); }
-        catch (Exception e) { throw new RuntimeException(e); }
+    private Map<String, AttributeValue> eventItem(DomainEvent event, String eventId) {
+        return Map.of(
+                "accountId", AttributeValue.builder().s(event.accountId().toString()).build(),
+                "eventId",   AttributeValue.builder().s(eventId).build(),
+                "eventType", AttributeValue.builder().s(event.getClass().getSimpleName()).build(),
+                "payload",   AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(codec.encode(event))).build(),
+                "timestamp", AttributeValue.builder().s(Instant.now().toString()).build()
+        );
+    }
+
+    // fixed width so the string sort key orders the same as the number
+    private static String versionKey(int version) {
+        return String.format("%010d", version);
     }
 
 
 
 @Override
 public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
-    String prefix = String.format("%05d", accNumber) + "-";
-    ScanRequest req = ScanRequest.builder()
+    return findAccountIdByNumber(accNumber)
+            .map(this::loadEvents)
+            .orElse(Collections.emptyList());
+}
+
+@Override
+public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+    ensureMigrated();       // every account is indexed from here on, a missing item is an unknown number
+    // O(1) point read on the lookup item
+    GetItemResponse res = client.getItem(GetItemRequest.builder()
             .tableName(tableName)
-            .filterExpression("begins_with(accountId, :prefix)")
-            .expressionAttributeValues(Map.of(":prefix", AttributeValue.builder().s(prefix).build()))
-            .build();
-    List<Map<String, AttributeValue>> items = client.scan(req).items();
-    return items.stream().map(this::toDomainEvent).collect(Collectors.toList());
+            .key(indexKey(accNumber))
+            .build());
+    if (res.hasItem() && res.item().containsKey("fullAccountId")) {
+        return Optional.of(AccountId.fromString(res.item().get("fullAccountId").s()));
+    }
+    return Optional.empty();
 }
 
+    // the migration's path: accounts it finds already hold their number, a later open never wrote the index
+    private void indexAccountNumber(AccountId accountId) {
+        try {
+            client.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(indexPut(accountId).item())
+                    .conditionExpression("attribute_not_exists(accountId)")
+                    .build());
+        } catch (ConditionalCheckFailedException alreadyIndexed) {
+            // first writer wins, an existing mapping is never repointed
+        }
+        Put registry = registryPut(accountId);
+        client.putItem(PutItemRequest.builder().tableName(tableName).item(registry.item()).build());
+    }
+
+    // the number's lookup item, taken by the first account to claim it; the same account writing it again passes
+    private Put indexPut(AccountId accountId) {
+        Map<String, AttributeValue> item = new HashMap<>(indexKey(accountId.getAcc()));
+        item.put("fullAccountId", AttributeValue.builder().s(accountId.toString()).build());
+        return Put.builder()
+                .tableName(tableName)
+                .item(item)
+                .conditionExpression("attribute_not_exists(accountId) OR fullAccountId = :id")
+                .expressionAttributeValues(Map.of(":id", AttributeValue.builder().s(accountId.toString()).build()))
+                .build();
+    }
+
+    private Put registryPut(AccountId accountId) {
+        return Put.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "accountId", AttributeValue.builder().s(ACCOUNTS_PK).build(),
+                        "eventId",   AttributeValue.builder().s(accountId.toString()).build()))
+                .build();
+    }
+
+    private static Map<String, AttributeValue> indexKey(int accNumber) {
+        return Map.of(
+                "accountId", AttributeValue.builder().s(ACC_NO_PREFIX + String.format("%05d", accNumber)).build(),
+                "eventId",   AttributeValue.builder().s(INDEX_SORT_KEY).build()
+        );
+    }
+
+
+    // one Query page in hand, the next one already in flight while the caller folds this one.
+    // memory stays at about two pages however long the stream is
+    private final class EventPages extends Spliterators.AbstractSpliterator<DomainEvent> {
+        private final QueryRequest query;
+        private Iterator<Map<String, AttributeValue>> page = Collections.emptyIterator();
+        private CompletableFuture<QueryResponse> next;
+        private boolean started;
+
+        EventPages(QueryRequest query) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.query = query;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super DomainEvent> action) {
+            while (!page.hasNext()) {
+                QueryResponse res;
+                if (!started) {
+                    started = true;
+                    res = client.query(query);      // nothing to overlap the first page with
+                } else if (next != null) {
+                    res = await(next);
+                } else {
+                    return false;
+                }
+                next = res.hasLastEvaluatedKey() && !res.lastEvaluatedKey().isEmpty()
+                        ? prefetch(res.lastEvaluatedKey())
+                        : null;
+                page = res.items().iterator();
+            }
+            action.accept(toDomainEvent(page.next()));
+            return true;
+        }
+
+        private CompletableFuture<QueryResponse> prefetch(Map<String, AttributeValue> startKey) {
+            QueryRequest req = query.toBuilder().exclusiveStartKey(startKey).build();
+            return CompletableFuture.supplyAsync(() -> client.query(req), PREFETCH);
+        }
+
+        // a caller that stops early (or fails mid-fold) should not leave a page download running
+        void close() {
+            if (next != null) next.cancel(true);
+        }
+
+        private QueryResponse await(CompletableFuture<QueryResponse> pending) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+    }
 
     private DomainEvent toDomainEvent(Map<String, AttributeValue> item) {
-        String type = item.get("eventType").s();
-        JsonNode node;
-        try { node = mapper.readTree(item.get("payload").b().asUtf8String()); }
-        catch (Exception e) { throw new RuntimeException(e); }
-        return switch (type) {
-            case "AccountOpened"      -> mapper.convertValue(node, AccountOpened.class);
-            case "MoneyDeposited"     -> mapper.convertValue(node, MoneyDeposited.class);
-            case "MoneyWithdrawn"     -> mapper.convertValue(node, MoneyWithdrawn.class);
-            case "MoneyTransferSend"  -> mapper.convertValue(node, MoneyTransferSend.class);
-            case "MoneyTransferReceive" -> mapper.convertValue(node, MoneyTransferReceive.class);
-            default -> throw new IllegalArgumentException("Unknown event type: " + type);
-        };
+        return codec.decode(item.get("eventType").s(), item.get("payload").b().asByteArrayUnsafe());
     }
 }
@@ -0,0 +1,36 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.util.Locale;
+
+// How an event store turns a DomainEvent into its payload bytes and back.
+// - encode writes this codec's own format, the store picks the codec per table
+// - decode accepts BOTH formats: binary payloads start with BinaryEventCodec.MAGIC, json with '{',
+//   so a table can switch its write format and keep reading the rows written before
+// - eventType is the simple class name the stores keep next to the payload, json needs it, binary carries a tag
+public interface EventCodec {
+
+    String name();
+
+    byte[] encode(DomainEvent event);
+
+    DomainEvent decode(String eventType, byte[] payload);
+
+    static EventCodec json() {
+        return JsonEventCodec.INSTANCE;
+    }
+
+    static EventCodec binary() {
+        return BinaryEventCodec.INSTANCE;
+    }
+
+    // config value ("json" / "binary") -> codec
+    static EventCodec forName(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "json"   -> json();
+            case "binary" -> binary();
+            default -> throw new IllegalArgumentException("unknown event codec: " + name + " (json or binary)");
+        };
+    }
+}
@@ -0,0 +1,515 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.AccountOpened;
+import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Event store in local append-only segment files, for on-prem / edge installs without Cosmos or Dynamo.
+// record: [int body length][int crc32c of body]
+//         [body: int acc, long uuid msb, long uuid lsb, int stream version, int last version of its append, binary payload]
+// - segments are fixed-size memory-mapped files (segment-000001.log..), an append that does not fit rolls to the next one
+// - rolling seals the full segment and writes its record index next to it (segment-000001.idx): opening loads the
+//   .idx files and only scans the last segment, where a torn record (or a half-written append) is cut off
+// - per account the positions of its records, so a stream read goes straight to them and decodes from mapped slices
+// - one writer at a time (the version check needs that anyway), readers take no lock
+// - durable once the OS writes the pages back, or before returning with syncOnAppend: then the append goes into the
+//   mapping under the lock as always and waits outside it for a flusher thread, which forces the segment once for
+//   everything that queued meanwhile (group commit). readers and the version check see an append before that force
+// - a failed force fails the appends it covered, their events stay in the stream with their outcome unknown, like a
+//   timed out write to a remote store. the store keeps going: the next force covers them again
+public final class FileEventStore implements AccountEventStorePort, AccountQueryPort, AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int HEADER = Integer.BYTES * 2;
+    private static final int FIXED_BODY = Integer.BYTES + Long.BYTES * 2 + Integer.BYTES * 2;
+    private static final int INDEX_ENTRY = Integer.BYTES + Long.BYTES * 2 + Integer.BYTES * 2;   // acc, uuid, version, offset
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{6})\\.log");
+    private static final System.Logger LOG = System.getLogger(FileEventStore.class.getName());
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean syncOnAppend;
+    private final Map<AccountId, StreamIndex> streams = new ConcurrentHashMap<>();
+    private final Map<Integer, AccountId> accountNumbers = new ConcurrentHashMap<>();
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];    // grows before any index entry points into it
+
+    // writer only, under this
+    private MappedByteBuffer active;
+    private int activeNumber;                                       // 1-based, as in the file name
+    private int writeOffset;
+    private boolean closed;
+
+    // syncOnAppend only: appends waiting for the flusher to force their segment
+    private record Waiter(MappedByteBuffer segment, CompletableFuture<Void> done) {}
+
+    private final Thread flusher;                                   // null without syncOnAppend
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncQueued = syncLock.newCondition();
+    private final ArrayDeque<Waiter> syncQueue = new ArrayDeque<>();   // under syncLock
+    private boolean syncStopped;                                    // under syncLock
+    private volatile WriteAheadLog.Stats syncStats = new WriteAheadLog.Stats(0, 0, 0, 0, 0);
+
+    public FileEventStore(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES, false);
+    }
+
+    public FileEventStore(Path dir, int segmentBytes, boolean syncOnAppend) throws IOException {
+        if (segmentBytes < 4096) throw new IllegalArgumentException("segment size must be at least 4096 bytes, got " + segmentBytes);
+        this.dir = Files.createDirectories(dir);
+        this.segmentBytes = segmentBytes;
+        this.syncOnAppend = syncOnAppend;
+        open();
+        this.flusher = syncOnAppend ? Thread.ofPlatform().name("event-store-flusher").daemon().start(this::flush) : null;
+    }
+
+    /* ---------- appends ---------- */
+
+    @Override
+    public void saveEvent(DomainEvent event) {
+        awaitDurable(appendAtHead(event));
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        awaitDurable(append(accountId, expectedVersion, events));
+    }
+
+    private synchronized CompletableFuture<Void> appendAtHead(DomainEvent event) {
+        return append(event.accountId(), versionOf(event.accountId()), List.of(event));
+    }
+
+    // writes the append into the active segment and indexes it; with syncOnAppend returns what completes once the
+    // flusher has forced it, otherwise null
+    private synchronized CompletableFuture<Void> append(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        if (closed) throw new IllegalStateException("event store is closed");
+        if (events.isEmpty()) return null;
+        int version = versionOf(accountId);
+        if (version != expectedVersion) {
+            throw new ConcurrencyConflictException("account " + accountId + " is at version " + version
+                    + ", expected " + expectedVersion);
+        }
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        int total = 0;
+        for (DomainEvent e : events) {
+            byte[] payload = BinaryEventCodec.INSTANCE.encode(e);
+            payloads.add(payload);
+            total += HEADER + FIXED_BODY + payload.length;
+        }
+        // an append never spans segments, so recovery can judge it whole from one file
+        if (total > segmentBytes) {
+            throw new IllegalArgumentException("append of " + total + " bytes does not fit a " + segmentBytes + " byte segment");
+        }
+        if (writeOffset + total > active.capacity()) roll();
+
+        long[] positions = new long[events.size()];
+        int last = expectedVersion + events.size();
+        for (int i = 0; i < events.size(); i++) {
+            positions[i] = position(activeNumber, writeOffset);
+            writeOffset = writeRecord(active, writeOffset, accountId, expectedVersion + i + 1, last, payloads.get(i));
+        }
+
+        // published only once the whole append is in the segment, readers never see half of it
+        StreamIndex stream = streams.computeIfAbsent(accountId, k -> new StreamIndex());
+        stream.addAll(positions);
+        for (DomainEvent e : events) {
+            if (e instanceof AccountOpened opened) accountNumbers.putIfAbsent(accountId.getAcc(), opened.getAccountId());
+        }
+        return syncOnAppend ? queueSync(active) : null;
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> durable) {
+        if (durable == null) return;
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private int versionOf(AccountId accountId) {
+        StreamIndex stream = streams.get(accountId);
+        return stream == null ? 0 : stream.size;
+    }
+
+    private static int writeRecord(ByteBuffer seg, int offset, AccountId id, int version, int lastVersion, byte[] payload) {
+        int bodyLength = FIXED_BODY + payload.length;
+        ByteBuffer body = seg.slice(offset + HEADER, bodyLength);
+        body.putInt(id.getAcc())
+            .putLong(id.getId().getMostSignificantBits())
+            .putLong(id.getId().getLeastSignificantBits())
+            .putInt(version)
+            .putInt(lastVersion)
+            .put(payload);
+        seg.putInt(offset, bodyLength);
+        seg.putInt(offset + Integer.BYTES, crc(seg, offset + HEADER, bodyLength));
+        return offset + HEADER + bodyLength;
+    }
+
+    /* ---------- reads ---------- */
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId) {
+        return loadEvents(accountId, 0);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        try (Stream<DomainEvent> tail = stream(accountId, fromVersionExclusive)) {
+            return tail.toList();
+        }
+    }
+
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        return stream(accountId, 0);
+    }
+
+    @Override
+    public int currentVersion(AccountId accountId) {
+        StreamIndex index = streams.get(accountId);
+        return index == null ? 0 : index.size;
+    }
+
+    @Override
+    public Stream<AccountId> accountIds() {
+        return streams.entrySet().stream().filter(e -> e.getValue().size > 0).map(Map.Entry::getKey);
+    }
+
+    private Stream<DomainEvent> stream(AccountId accountId, int fromVersionExclusive) {
+        StreamIndex stream = streams.get(accountId);
+        if (stream == null) return Stream.empty();
+        int size = stream.size;                                     // volatile read first, then what it covers
+        long[] positions = stream.positions;
+        ByteBuffer[] segs = segments;
+        return IntStream.range(Math.min(Math.max(fromVersionExclusive, 0), size), size)
+                .mapToObj(i -> decode(segs, positions[i]));
+    }
+
+    private static DomainEvent decode(ByteBuffer[] segs, long position) {
+        ByteBuffer seg = segs[segmentOf(position) - 1];
+        int offset = offsetOf(position);
+        int bodyLength = seg.getInt(offset);
+        return BinaryEventCodec.INSTANCE.decode(seg.slice(offset + HEADER + FIXED_BODY, bodyLength - FIXED_BODY));
+    }
+
+    @Override
+    public Account loadAccount(AccountId accountId) {
+        if (versionOf(accountId) == 0) throw new RuntimeException("Account not found in file store: " + accountId);
+        try (Stream<DomainEvent> history = streamEvents(accountId)) {
+            return Account.fromHistry(accountId, history.iterator());
+        }
+    }
+
+    @Override
+    public Money findBalanceByAccountId(AccountId accountId) {
+        return loadAccount(accountId).getBalance();
+    }
+
+    @Override
+    public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
+        return findAccountIdByNumber(accNumber).map(this::loadEvents).orElse(Collections.emptyList());
+    }
+
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        return Optional.ofNullable(accountNumbers.get(accNumber));
+    }
+
+    // forces and fsync counters of the syncOnAppend flusher, null without it
+    public WriteAheadLog.Stats syncStats() {
+        return flusher == null ? null : syncStats;
+    }
+
+    // flushes the active segment; the store takes no appends after this
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (flusher != null) {
+            syncLock.lock();
+            try {
+                syncStopped = true;
+                syncQueued.signal();
+            } finally {
+                syncLock.unlock();
+            }
+            try { flusher.join(); }                                 // forces whatever is still queued
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        active.force();
+    }
+
+    /* ---------- group commit ---------- */
+
+    // under this, so the waiters queue in append order
+    private CompletableFuture<Void> queueSync(MappedByteBuffer segment) {
+        Waiter waiter = new Waiter(segment, new CompletableFuture<>());
+        syncLock.lock();
+        try {
+            syncQueue.add(waiter);
+            syncQueued.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        return waiter.done();
+    }
+
+    // flusher thread: take everything queued, force each segment in it once, then wake the appenders
+    private void flush() {
+        List<Waiter> batch = new ArrayList<>();
+        while (nextSyncBatch(batch)) {
+            long started = System.nanoTime();
+            Map<MappedByteBuffer, RuntimeException> forced = new IdentityHashMap<>();   // usually one, two across a roll
+            for (Waiter w : batch) {
+                if (!forced.containsKey(w.segment())) forced.put(w.segment(), force(w.segment()));
+            }
+            long syncNanos = System.nanoTime() - started;
+            WriteAheadLog.Stats s = syncStats;
+            syncStats = new WriteAheadLog.Stats(s.appends() + batch.size(), s.batches() + 1,
+                    Math.max(s.largestBatch(), batch.size()), s.syncNanos() + syncNanos, Math.max(s.maxSyncNanos(), syncNanos));
+            for (Waiter w : batch) {
+                RuntimeException failure = forced.get(w.segment());
+                if (failure == null) w.done().complete(null);
+                else w.done().completeExceptionally(failure);
+            }
+            batch.clear();
+        }
+    }
+
+    // false once close() has stopped the flusher and the queue is drained
+    private boolean nextSyncBatch(List<Waiter> batch) {
+        syncLock.lock();
+        try {
+            while (syncQueue.isEmpty()) {
+                if (syncStopped) return false;
+                syncQueued.awaitUninterruptibly();
+            }
+            batch.addAll(syncQueue);
+            syncQueue.clear();
+            return true;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // null once on disk; a failure is handed to the appenders it covered, the next force tries again
+    private RuntimeException force(MappedByteBuffer segment) {
+        try {
+            segment.force();
+            return null;
+        } catch (UncheckedIOException e) {
+            LOG.log(System.Logger.Level.ERROR, "file event store: force failed, appends waiting on it fail: " + e.getMessage());
+            return new UncheckedIOException("event store append is in the segment but not known to be on disk", e.getCause());
+        }
+    }
+
+    /* ---------- segments ---------- */
+
+    // seal the active segment (force it, write its index), then map a fresh one
+    private void roll() {
+        try {
+            active.force();
+            writeIndex(activeNumber, active, writeOffset);
+            mapActive(activeNumber + 1, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot roll to segment " + (activeNumber + 1), e);
+        }
+    }
+
+    private void mapActive(int number, int size) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);           // a short file grows, sparse
+        }
+        activeNumber = number;
+        writeOffset = 0;
+        ByteBuffer[] grown = Arrays.copyOf(segments, number);
+        grown[number - 1] = active;
+        segments = grown;
+    }
+
+    // the sealed segment's records in file order, written to a temp file and moved in so an .idx is whole or absent
+    private void writeIndex(int number, ByteBuffer seg, int end) throws IOException {
+        Path tmp = dir.resolve(indexFile(number).getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            for (int offset = 0; offset < end; offset += HEADER + seg.getInt(offset)) {
+                int body = offset + HEADER;
+                out.writeInt(seg.getInt(body));
+                out.writeLong(seg.getLong(body + Integer.BYTES));
+                out.writeLong(seg.getLong(body + Integer.BYTES + Long.BYTES));
+                out.writeInt(seg.getInt(body + Integer.BYTES + Long.BYTES * 2));
+                out.writeInt(offset);
+            }
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, indexFile(number), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /* ---------- recovery ---------- */
+
+    private void open() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> SEGMENT_NAME.matcher(p.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .forEach(m -> numbers.add(Integer.parseInt(m.group(1))));
+        }
+        Collections.sort(numbers);
+        for (int i = 0; i < numbers.size(); i++) {
+            if (numbers.get(i) != i + 1) throw new IOException("segment " + (i + 1) + " is missing in " + dir);
+        }
+        if (numbers.isEmpty()) {
+            mapActive(1, segmentBytes);
+            return;
+        }
+        int lastNumber = numbers.size();
+        for (int number = 1; number < lastNumber; number++) {
+            ByteBuffer seg = mapReadOnly(number);
+            segments = Arrays.copyOf(segments, number);
+            segments[number - 1] = seg;
+            if (Files.exists(indexFile(number))) {
+                loadIndex(number);
+            } else {
+                int end = scan(number, seg);                        // crashed while rolling: rebuild it
+                writeIndex(number, seg, end);
+            }
+        }
+        // the last segment: scan it, drop whatever is past the last whole append, map it for writing again
+        int end = scan(lastNumber, mapReadOnly(lastNumber));
+        try (FileChannel ch = FileChannel.open(segmentFile(lastNumber), StandardOpenOption.WRITE)) {
+            if (ch.size() > end) ch.truncate(end);
+        }
+        mapActive(lastNumber, Math.max(segmentBytes, end));      // a smaller segment size only applies from the next roll
+        writeOffset = end;
+    }
+
+    private ByteBuffer mapReadOnly(int number) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentFile(number), StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private void loadIndex(int number) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile(number)), 1 << 16))) {
+            long entries = Files.size(indexFile(number)) / INDEX_ENTRY;
+            for (long i = 0; i < entries; i++) {
+                AccountId id = new AccountId(in.readInt(), new UUID(in.readLong(), in.readLong()));
+                int version = in.readInt();
+                int offset = in.readInt();
+                StreamIndex stream = streams.computeIfAbsent(id, k -> new StreamIndex());
+                if (version != stream.size + 1) {
+                    throw new IOException("segment " + number + " index: " + id + " v" + version + " after v" + stream.size);
+                }
+                stream.add(position(number, offset));
+                if (version == 1) accountNumbers.putIfAbsent(id.getAcc(), id);     // a stream always starts with AccountOpened
+            }
+        }
+    }
+
+    // indexes every whole append in the segment and returns where the last one ends: the scan stops at the first
+    // record that is cut short, fails its crc or breaks the stream's version order, and an append whose last record
+    // never made it is dropped with it
+    private int scan(int number, ByteBuffer seg) {
+        int end = 0;
+        int offset = 0;
+        List<long[]> pending = new ArrayList<>();                    // {offset, version} of the append being read
+        AccountId pendingId = null;
+        int limit = seg.limit();
+        while (offset + HEADER + FIXED_BODY <= limit) {
+            int bodyLength = seg.getInt(offset);
+            if (bodyLength < FIXED_BODY || offset + HEADER + bodyLength > limit) break;
+            if (crc(seg, offset + HEADER, bodyLength) != seg.getInt(offset + Integer.BYTES)) break;
+            int body = offset + HEADER;
+            AccountId id = new AccountId(seg.getInt(body),
+                    new UUID(seg.getLong(body + Integer.BYTES), seg.getLong(body + Integer.BYTES + Long.BYTES)));
+            int version = seg.getInt(body + Integer.BYTES + Long.BYTES * 2);
+            int lastVersion = seg.getInt(body + Integer.BYTES * 2 + Long.BYTES * 2);
+            if (pending.isEmpty()) pendingId = id;
+            if (!id.equals(pendingId) || version != versionOf(id) + pending.size() + 1) break;
+            pending.add(new long[]{offset, version});
+            offset += HEADER + bodyLength;
+            if (version == lastVersion) {
+                StreamIndex stream = streams.computeIfAbsent(id, k -> new StreamIndex());
+                for (long[] p : pending) stream.add(position(number, (int) p[0]));
+                if (stream.size == lastVersion && pending.get(0)[1] == 1) accountNumbers.putIfAbsent(id.getAcc(), id);
+                pending.clear();
+                end = offset;
+            }
+        }
+        if (end + Integer.BYTES <= limit && seg.getInt(end) != 0) {
+            LOG.log(System.Logger.Level.WARNING, "file event store: segment " + number + " cut at " + end + " bytes, dropping a torn append");
+        }
+        return end;
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static int crc(ByteBuffer buf, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(from, length));
+        return (int) crc.getValue();
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private Path segmentFile(int number) {
+        return dir.resolve(String.format("segment-%06d.log", number));
+    }
+
+    private Path indexFile(int number) {
+        return dir.resolve(String.format("segment-%06d.idx", number));
+    }
+
+    // one account's record positions; the writer fills the slots (growing a copy if needed) before bumping size
+    private static final class StreamIndex {
+        volatile long[] positions = new long[8];
+        volatile int size;
+
+        void add(long position) {
+            addAll(new long[]{position});
+        }
+
+        void addAll(long[] more) {
+            long[] p = positions;
+            int n = size;
+            if (n + more.length > p.length) positions = p = Arrays.copyOf(p, Math.max(p.length * 2, n + more.length));
+            System.arraycopy(more, 0, p, n, more.length);
+            size = n + more.length;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32C;
+
+// Global log in one local append-only file, for running against a cloud store (or just surviving a restart).
+// record: [int body length][int crc32c of body][body: long position, int streamVersion, long epochSecond, int nano,
+//          binary event payload]
+// - opening scans the file once, rebuilds the position -> offset index and cuts off a torn last record
+// - appends are serialized, one write per append call. syncOnAppend hands the records to a group-commit WriteAheadLog
+//   instead: positions are still taken under the lock, the write and fsync happen on its flusher together with every
+//   other append queued by then, and the flusher publishes them in position order before the appenders return.
+//   a failed write or fsync fails the appends in flight; the next append cuts the file back to the last committed
+//   one and hands out positions from there again
+// - reads are positional and lock-free, a catch-up read of many events is one contiguous file read
+public final class FileGlobalEventLog implements GlobalEventLogPort, AutoCloseable {
+
+    private static final int HEADER = Integer.BYTES * 2;
+    private static final System.Logger LOG = System.getLogger(FileGlobalEventLog.class.getName());
+    private static final int FIXED_BODY = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final WriteAheadLog wal;                    // null without syncOnAppend
+    private final Object appended = new Object();      // tailing subscribers wait here
+    private long[] ends = new long[1024];               // ends[p - 1] = file offset just past position p, grown by the writer
+    private long end;                                   // under this: where the next record goes
+    private long taken;                                 // under this: last position handed out, ahead of head while a batch is in flight
+    private volatile long head;                         // published after ends, readers never look past it
+
+    public FileGlobalEventLog(Path file, boolean syncOnAppend) throws IOException {
+        this(file, syncOnAppend, WriteAheadLog.DEFAULT_MAX_BATCH, WriteAheadLog.DEFAULT_MAX_WAIT);
+    }
+
+    // maxBatch / maxWait shape the group commits, they only matter with syncOnAppend
+    public FileGlobalEventLog(Path file, boolean syncOnAppend, int maxBatch, Duration maxWait) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+        this.wal = syncOnAppend ? new WriteAheadLog(channel, end, maxBatch, maxWait) : null;
+    }
+
+    @Override
+    public long append(int firstStreamVersion, List<? extends DomainEvent> events) {
+        try {
+            return appendAsync(firstStreamVersion, events).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // positions and offsets are taken under the lock; with syncOnAppend the write and fsync are the flusher's
+    @Override
+    public CompletableFuture<Long> appendAsync(int firstStreamVersion, List<? extends DomainEvent> events) {
+        if (events.isEmpty()) return CompletableFuture.completedFuture(head);
+        Instant now = Instant.now();
+        long last;
+        CompletableFuture<Long> durable = null;
+        synchronized (this) {
+            if (wal != null && wal.failed()) {
+                // nothing past the last committed batch reached head, so that is where positions and offsets resume
+                end = wal.resume();
+                taken = head;
+            }
+            long first = taken + 1;
+            List<byte[]> payloads = new ArrayList<>(events.size());
+            int total = 0;
+            for (DomainEvent e : events) {
+                byte[] payload = BinaryEventCodec.INSTANCE.encode(e);
+                payloads.add(payload);
+                total += HEADER + FIXED_BODY + payload.length;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(total);
+            long[] recordEnds = new long[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                writeRecord(buf, first + i, firstStreamVersion + i, now, payloads.get(i));
+                recordEnds[i] = end + buf.position();
+            }
+            buf.flip();
+            last = first + events.size() - 1;
+            if (wal != null) {
+                // the flusher writes the batches in enqueue order, which is position order: publishing from it keeps
+                // ends and head in step with the file
+                durable = wal.enqueue(buf, () -> publish(first, recordEnds));
+            } else {
+                try {
+                    while (buf.hasRemaining()) channel.write(buf, end + buf.position());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("global log append failed at position " + first, e);
+                }
+                publish(first, recordEnds);
+            }
+            end += total;
+            taken = last;
+        }
+        long lastPosition = last;
+        if (durable != null) return durable.thenApply(ignored -> signalAppended(lastPosition));
+        return CompletableFuture.completedFuture(signalAppended(lastPosition));
+    }
+
+    private long signalAppended(long last) {
+        synchronized (appended) {
+            appended.notifyAll();
+        }
+        return last;
+    }
+
+    // writer only (the lock holder, or the wal flusher): index the records, then move head past them
+    private void publish(long first, long[] recordEnds) {
+        for (int i = 0; i < recordEnds.length; i++) index(first + i, recordEnds[i]);
+        head = first + recordEnds.length - 1;
+    }
+
+    @Override
+    public List<PositionedEvent> read(long fromPositionExclusive, int maxCount) {
+        long published = head;                          // volatile read first, then the index it covers
+        long[] idx = ends;
+        long first = Math.max(fromPositionExclusive, 0) + 1;
+        long last = Math.min(published, first - 1 + maxCount);
+        if (first > last) return List.of();
+        long from = first == 1 ? 0 : idx[(int) (first - 2)];
+        long to = idx[(int) (last - 1)];
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        try {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, from + buf.position()) < 0) throw new EOFException("global log ends at " + from);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("global log read failed after position " + fromPositionExclusive, e);
+        }
+        buf.flip();
+        List<PositionedEvent> out = new ArrayList<>((int) (last - first + 1));
+        while (buf.hasRemaining()) out.add(readRecord(buf));
+        return out;
+    }
+
+    @Override
+    public long head() {
+        return head;
+    }
+
+    @Override
+    public boolean awaitAppend(long position, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (appended) {
+            while (head <= position) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                appended.wait(Math.max(1, left / 1_000_000));
+            }
+        }
+        return true;
+    }
+
+    // group commit counters, null without syncOnAppend
+    public WriteAheadLog.Stats walStats() {
+        return wal == null ? null : wal.stats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (wal != null) wal.close();                   // commits whatever is still queued
+        synchronized (this) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /* ---------- records ---------- */
+
+    private static void writeRecord(ByteBuffer buf, long position, int streamVersion, Instant at, byte[] payload) {
+        int start = buf.position();
+        buf.position(start + HEADER);
+        buf.putLong(position).putInt(streamVersion).putLong(at.getEpochSecond()).putInt(at.getNano()).put(payload);
+        int length = buf.position() - start - HEADER;
+        buf.putInt(start, length).putInt(start + Integer.BYTES, crc(buf, start + HEADER, length));
+    }
+
+    private static PositionedEvent readRecord(ByteBuffer buf) {
+        int length = buf.getInt();
+        buf.getInt();                                   // crc, checked once on open
+        long position = buf.getLong();
+        int streamVersion = buf.getInt();
+        Instant at = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        byte[] payload = new byte[length - FIXED_BODY];
+        buf.get(payload);
+        return new PositionedEvent(position, streamVersion, at, BinaryEventCodec.INSTANCE.decode("global log event", payload));
+    }
+
+    private static int crc(ByteBuffer buf, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.duplicate().limit(from + length).position(from));
+        return (int) crc.getValue();
+    }
+
+    // writer only. a grown copy carries every entry over, so a reader holding the old array still sees all it needs
+    private void index(long position, long recordEnd) {
+        int i = (int) (position - 1);
+        if (i == ends.length) ends = Arrays.copyOf(ends, ends.length * 2);
+        ends[i] = recordEnd;
+    }
+
+    // scan every record once: rebuild the index and drop whatever a crash left half written at the end
+    private void recover() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        long position = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+        while (offset + HEADER <= size) {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length < FIXED_BODY || offset + HEADER + length > size) break;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            ByteBuffer b = ByteBuffer.wrap(body);
+            if (crc(b, 0, length) != crc || b.getLong(0) != position + 1) break;
+            position++;
+            offset += HEADER + length;
+            index(position, offset);
+        }
+        if (offset < size) {
+            LOG.log(System.Logger.Level.WARNING, "global log: dropping " + (size - offset) + " bytes of torn tail after position " + position);
+            channel.truncate(offset);
+        }
+        end = offset;
+        taken = position;
+        head = position;
+    }
+}
@@ -0,0 +1,226 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Decorator over any event store: every committed append is also appended to the global log, in commit order.
+// - an append reserves a slot on its account's stripe, commits to the stream with no lock held, then waits for the
+//   account's lower slots to take their log positions and takes its own. only that step runs under the stripe's
+//   monitor; the log's write and fsync (appendAsync) are waited for outside it. one account reaches the log in the
+//   order of its stream versions, other accounts only share a stripe by hash
+// - the stream store stays the source of truth. the log append is post-commit and never fails the write: a caller
+//   told "failed" would retry an append that is already saved. a log append that throws is logged and counted in
+//   logFailures(), like dying between the two appends it leaves the event out of the log until reconcile() runs
+// - reconcile() on start puts back every stream version the log is missing: the whole store for a log that starts
+//   empty, the holes a failed or interrupted append left in a file log
+public final class GlobalLogEventStore implements AccountEventStorePort, AccountQueryPort {
+
+    private static final int STRIPES = 64;
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+    private static final int RECONCILE_BATCH = 10_000;
+    private static final System.Logger LOG = System.getLogger(GlobalLogEventStore.class.getName());
+
+    private final AccountEventStorePort delegate;
+    private final GlobalEventLogPort log;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong logFailures = new AtomicLong();
+
+    // an append between its reservation and taking its log positions; identity, not value, tells two apart
+    private static final class Slot {
+        final AccountId accountId;
+        final int after;            // the stream version the append was decided on
+
+        Slot(AccountId accountId, int after) {
+            this.accountId = accountId;
+            this.after = after;
+        }
+    }
+
+    // the slots of the accounts hashing here, guarded by this stripe's monitor. a handful at a time, a list will do
+    private static final class Stripe {
+        private final List<Slot> slots = new ArrayList<>();
+
+        synchronized Slot reserve(AccountId accountId, int after) {
+            Slot slot = new Slot(accountId, after);
+            slots.add(slot);
+            return slot;
+        }
+
+        synchronized void release(Slot slot) {
+            slots.remove(slot);
+            notifyAll();
+        }
+
+        // waits out the account's appends decided on an earlier version - committed ones take their positions,
+        // the ones that lose the version check leave - then takes this one's and lets the next one through.
+        // the stream already holds the events, so an interrupt doesn't stop them reaching the log
+        synchronized <T> T inTurn(Slot slot, Supplier<T> takePositions) {
+            boolean interrupted = false;
+            while (slots.stream().anyMatch(s -> s.accountId.equals(slot.accountId) && s.after < slot.after)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            try {
+                return takePositions.get();
+            } finally {
+                release(slot);
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public GlobalLogEventStore(AccountEventStorePort delegate, GlobalEventLogPort log) {
+        this.delegate = delegate;
+        this.log = log;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        Stripe stripe = stripeFor(accountId);
+        Slot slot = stripe.reserve(accountId, expectedVersion);
+        try {
+            delegate.saveEvents(accountId, expectedVersion, events);
+        } catch (RuntimeException e) {
+            stripe.release(slot);
+            throw e;
+        }
+        try {
+            stripe.inTurn(slot, () -> log.appendAsync(expectedVersion + 1, events)).join();
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            logFailures.incrementAndGet();
+            LOG.log(System.Logger.Level.ERROR, "global log: " + events.size() + " events of " + accountId + " at version "
+                    + (expectedVersion + 1) + " committed but not logged", cause);
+        }
+    }
+
+    // appends committed to the store that never reached the log
+    public long logFailures() {
+        return logFailures.get();
+    }
+
+    // the log needs the event's stream version, so the unconditional append goes through the conditional one
+    @Override
+    public void saveEvent(DomainEvent event) {
+        AccountId accountId = event.accountId();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                saveEvents(accountId, delegate.currentVersion(accountId), List.of(event));
+                return;
+            } catch (ConcurrencyConflictException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    private Stripe stripeFor(AccountId accountId) {
+        return stripes[Math.floorMod(accountId.hashCode(), STRIPES)];
+    }
+
+    // reads the log once for the stream versions it holds per account, then appends every version of every stream
+    // it lacks, each contiguous run as one append. costs a tail read per account, so it runs on start before the
+    // first command: an append racing it could reach the log twice. returns the events appended
+    public long reconcile() {
+        Map<AccountId, BitSet> logged = new HashMap<>();
+        for (long from = 0; ; ) {
+            List<PositionedEvent> batch = log.read(from, RECONCILE_BATCH);
+            if (batch.isEmpty()) break;
+            for (PositionedEvent p : batch) {
+                AccountId accountId = p.event().accountId();
+                if (accountId != null) logged.computeIfAbsent(accountId, k -> new BitSet()).set(p.streamVersion());
+            }
+            from = batch.get(batch.size() - 1).position();
+        }
+        long appended = 0;
+        try (Stream<AccountId> accounts = delegate.accountIds()) {
+            for (Iterator<AccountId> it = accounts.iterator(); it.hasNext(); ) {
+                AccountId accountId = it.next();
+                BitSet versions = logged.getOrDefault(accountId, new BitSet());
+                int first = versions.nextClearBit(1);
+                List<DomainEvent> tail = delegate.loadEvents(accountId, first - 1);
+                int run = 0;
+                for (int i = 0; i <= tail.size(); i++) {
+                    if (i < tail.size() && !versions.get(first + i)) {
+                        run++;
+                        continue;
+                    }
+                    if (run > 0) log.append(first + i - run, tail.subList(i - run, i));
+                    appended += run;
+                    run = 0;
+                }
+            }
+        }
+        if (appended > 0) LOG.log(System.Logger.Level.INFO, "global log: reconciled " + appended + " events from the streams");
+        return appended;
+    }
+
+    /* ---------- plain delegation ---------- */
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId) {
+        return delegate.loadEvents(accountId);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        return delegate.loadEvents(accountId, fromVersionExclusive);
+    }
+
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        return delegate.streamEvents(accountId);
+    }
+
+    @Override
+    public int currentVersion(AccountId accountId) {
+        return delegate.currentVersion(accountId);
+    }
+
+    @Override
+    public Stream<AccountId> accountIds() {
+        return delegate.accountIds();
+    }
+
+    @Override
+    public Account loadAccount(AccountId accountId) {
+        return delegate.loadAccount(accountId);
+    }
+
+    @Override
+    public Money findBalanceByAccountId(AccountId accountId) {
+        return loadAccount(accountId).getBalance();
+    }
+
+    @Override
+    public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
+        return delegate.loadEventsByNumericAcc(accNumber);
+    }
+
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        return delegate.findAccountIdByNumber(accNumber);
+    }
+}
@@ -2,38 +2,93 @@ package com.vvk.banque.adapter.persistence;
 
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.OutboxPort;
 import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.AccountOpened;
 import com.vvk.banque.domain.events.DomainEvent;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Local fallback store for when no cloud provider (AWS/Azure) is configured.
 // Stores events in memory, which is volatile.
-public final class InMemoryAccountStore implements AccountEventStorePort, AccountQueryPort {
+// Outbox mode: an append also flags its stream as unpublished; the unpublished events of a stream are always
+// the ones after its published cursor, the relay moves the cursor once it has handed them on.
+public final class InMemoryAccountStore implements AccountEventStorePort, AccountQueryPort, OutboxPort {
 
-	private final Map<AccountId, List<DomainEvent>> store = new HashMap<>()	;
-    // Key: AccountId (String representation), Value: List of DomainEvent
-    private final Map<String, List<DomainEvent>> eventStreams = new ConcurrentHashMap<>();
+    // Key: AccountId, Value: append-only chunked log - O(1) appends, zero-copy reads
+    private final Map<AccountId, ChunkedEventLog<DomainEvent>> eventStreams = new ConcurrentHashMap<>();
+    // Key: 5 digit account number, Value: full AccountId - filled when AccountOpened is saved
+    private final Map<Integer, AccountId> accountNumbers = new ConcurrentHashMap<>();
+    private final boolean outbox;
+    // outbox mode only: streams with events past their cursor, and the cursor = last stream version published
+    private final Set<AccountId> unpublishedStreams = ConcurrentHashMap.newKeySet();
+    private final Map<AccountId, Integer> publishedVersions = new ConcurrentHashMap<>();
+
+    public InMemoryAccountStore() {
+        this(false);
+    }
+
+    public InMemoryAccountStore(boolean outbox) {
+        this.outbox = outbox;
+    }
 
     @Override
     public void saveEvent(DomainEvent event) {
-        // Ensure the list for the account exists, then add the new event.
-        eventStreams.computeIfAbsent(
-                event.accountId().toString(), 
-                k -> new CopyOnWriteArrayList<>()
-        ).add(event);
+        streamFor(event.accountId()).append(event);
+        indexIfOpened(event);
+        if (outbox) unpublishedStreams.add(event.accountId());
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        // compare-and-set on the stream length, no lock: the CAS in tryAppend is the version check
+        ChunkedEventLog<DomainEvent> stream = streamFor(accountId);
+        if (!stream.tryAppend(expectedVersion, events)) {
+            throw new ConcurrencyConflictException("account " + accountId + " is at version " + stream.claimed()
+                    + ", expected " + expectedVersion);
+        }
+        events.forEach(this::indexIfOpened);
+        if (outbox && !events.isEmpty()) unpublishedStreams.add(accountId);
+    }
+
+    private ChunkedEventLog<DomainEvent> streamFor(AccountId accountId) {
+        ChunkedEventLog<DomainEvent> stream = eventStreams.get(accountId);
+        return stream != null ? stream : eventStreams.computeIfAbsent(accountId, k -> new ChunkedEventLog<>());
+    }
+
+    private void indexIfOpened(DomainEvent event) {
+        if (event instanceof AccountOpened e) {
+            accountNumbers.putIfAbsent(e.getAccountId().getAcc(), e.getAccountId());
+        }
+    }
+
+    // a failed first append leaves an empty log behind, that is not an account
+    @Override
+    public int currentVersion(AccountId accountId) {
+        ChunkedEventLog<DomainEvent> stream = eventStreams.get(accountId);
+        return stream == null ? 0 : stream.size();
+    }
+
+    @Override
+    public Stream<AccountId> accountIds() {
+        return eventStreams.entrySet().stream().filter(e -> e.getValue().size() > 0).map(Map.Entry::getKey);
     }
 
     @Override
     public List<DomainEvent> loadEvents(AccountId accountId) {
-        String key = accountId.toString();
-        // Return a copy of the list to prevent external modification, or an empty list if not found.
-        return eventStreams.getOrDefault(key, Collections.emptyList()).stream().collect(Collectors.toList());
+        return loadEvents(accountId, 0);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        // Read-only view over the log, nothing is copied; events appended later are not part of it.
+        ChunkedEventLog<DomainEvent> stream = eventStreams.get(accountId);
+        return stream == null ? Collections.emptyList() : stream.view(fromVersionExclusive);
     }
 
     @Override
@@ -45,16 +100,45 @@ public final class InMemoryAccountStore implements AccountEventStorePort, Accoun
         return Account.fromHistry(accountId, history);
     }
 
-@Override
-public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
-    String prefix = String.format("%05d", accNumber) + "-";
-    return store.values().stream()
-                .flatMap(List::stream)
-                .filter(e -> e.accountId().toString().startsWith(prefix))
-                .collect(Collectors.toList());
-}
+    @Override
+    public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
+        return findAccountIdByNumber(accNumber)
+                .map(this::loadEvents)
+                .orElse(Collections.emptyList());
+    }
 
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        return Optional.ofNullable(accountNumbers.get(accNumber));
+    }
+
+    /* ---------- outbox ---------- */
+
+    @Override
+    public List<OutboxEntry> unpublished(int maxCount) {
+        List<OutboxEntry> out = new ArrayList<>(Math.min(maxCount, 1024));
+        for (AccountId id : unpublishedStreams) {
+            int from = publishedVersions.getOrDefault(id, 0);
+            List<DomainEvent> tail = loadEvents(id, from);
+            for (int i = 0; i < tail.size() && out.size() < maxCount; i++) {
+                out.add(new OutboxEntry(id, from + i + 1, tail.get(i)));
+            }
+            if (out.size() >= maxCount) break;
+        }
+        return out;
+    }
 
+    @Override
+    public void markPublished(List<OutboxEntry> entries) {
+        Map<AccountId, Integer> upTo = new HashMap<>();
+        for (OutboxEntry e : entries) upTo.merge(e.accountId(), e.streamVersion(), Math::max);
+        upTo.forEach((id, version) -> {
+            int published = publishedVersions.merge(id, version, Math::max);
+            // drop the flag, then look again: an append that raced us has already bumped the size and sets it back
+            unpublishedStreams.remove(id);
+            if (eventStreams.get(id).size() > published) unpublishedStreams.add(id);
+        });
+    }
 
     // Since this is an event store, finding balance requires rebuilding the account state.
     // In a real CQRS application, this would query a dedicated read model.
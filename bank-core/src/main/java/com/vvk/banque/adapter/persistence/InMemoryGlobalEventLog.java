@@ -0,0 +1,61 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Global log kept in memory next to InMemoryAccountStore, volatile like it.
+// Same ChunkedEventLog the streams use: a whole append claims its positions with one CAS, readers get zero-copy views.
+public final class InMemoryGlobalEventLog implements GlobalEventLogPort {
+
+    private final ChunkedEventLog<PositionedEvent> log = new ChunkedEventLog<>();
+    private final Object appended = new Object();      // tailing subscribers wait here
+
+    @Override
+    public long append(int firstStreamVersion, List<? extends DomainEvent> events) {
+        if (events.isEmpty()) return head();
+        Instant now = Instant.now();
+        while (true) {
+            // positions go inside the records, so build them for the slot we expect and retry if someone got there first
+            int at = log.claimed();
+            List<PositionedEvent> positioned = new ArrayList<>(events.size());
+            for (int i = 0; i < events.size(); i++) {
+                positioned.add(new PositionedEvent(at + i + 1L, firstStreamVersion + i, now, events.get(i)));
+            }
+            if (log.tryAppend(at, positioned)) {
+                synchronized (appended) {
+                    appended.notifyAll();
+                }
+                return at + events.size();
+            }
+        }
+    }
+
+    @Override
+    public List<PositionedEvent> read(long fromPositionExclusive, int maxCount) {
+        List<PositionedEvent> tail = log.view((int) Math.min(fromPositionExclusive, Integer.MAX_VALUE));
+        return tail.size() <= maxCount ? tail : tail.subList(0, maxCount);
+    }
+
+    @Override
+    public long head() {
+        return log.size();
+    }
+
+    @Override
+    public boolean awaitAppend(long position, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (appended) {
+            while (head() <= position) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                appended.wait(Math.max(1, left / 1_000_000));
+            }
+        }
+        return true;
+    }
+}
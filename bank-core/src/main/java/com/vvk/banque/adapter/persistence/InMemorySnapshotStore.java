@@ -0,0 +1,28 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountSnapshotPort;
+import com.vvk.banque.domain.AggregatesObj.AccountSnapshot;
+import com.vvk.banque.domain.ValueObj.AccountId;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Local snapshot store, volatile like InMemoryAccountStore. Losing it is harmless:
+// the next load replays the full stream and takes a fresh snapshot.
+public final class InMemorySnapshotStore implements AccountSnapshotPort {
+
+    private final Map<AccountId, AccountSnapshot> latest = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<AccountSnapshot> loadLatest(AccountId accountId) {
+        return Optional.ofNullable(latest.get(accountId));
+    }
+
+    @Override
+    public void save(AccountSnapshot snapshot) {
+        // Keep whichever is newer, two loaders may race to snapshot the same account.
+        latest.merge(snapshot.accountId(), snapshot,
+                (old, neu) -> neu.version() >= old.version() ? neu : old);
+    }
+}
@@ -0,0 +1,67 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.domain.ValueObj.AccountId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// History read model kept in memory, next to InMemoryAccountStore and InMemoryGlobalEventLog.
+// Fed by a CatchUpSubscription on the global log: per account the entries sit in sequence order, a replayed
+// sequence is skipped. A page finds its cursor with a binary search and walks from there, skipping rows outside
+// the date range, until it has limit + 1 rows (the extra one only says there is another page)
+public final class InMemoryTransactionHistory implements TransactionHistoryPort {
+
+    private final Map<AccountId, List<AuditLogEntry>> accounts = new ConcurrentHashMap<>();
+
+    // CatchUpSubscription.Handler
+    public void apply(List<PositionedEvent> batch) {
+        for (PositionedEvent p : batch) {
+            AuditLogEntry entry = AuditLogEntry.of(p.event(), p.streamVersion(), p.recordedAt());
+            if (entry.getAccountId() == null) continue;
+            List<AuditLogEntry> entries = accounts.computeIfAbsent(entry.getAccountId(), k -> new ArrayList<>());
+            synchronized (entries) {
+                if (!entries.isEmpty() && entries.get(entries.size() - 1).getSequence() >= entry.getSequence()) continue;
+                entries.add(entry);
+            }
+        }
+    }
+
+    @Override
+    public HistoryPage findHistory(AccountId accountId, HistoryQuery query) {
+        List<AuditLogEntry> entries = accounts.get(accountId);
+        if (entries == null) return new HistoryPage(List.of(), 0);
+        List<AuditLogEntry> page = new ArrayList<>(query.limit());
+        boolean newestFirst = query.order() == Order.NEWEST_FIRST;
+        synchronized (entries) {
+            // keyset: the last entry below the cursor, or the first one above it
+            int i = newestFirst
+                    ? indexOf(entries, query.cursor() == 0 ? Integer.MAX_VALUE : query.cursor()) - 1
+                    : indexOf(entries, query.cursor() + 1);
+            int step = newestFirst ? -1 : 1;
+            for (; i >= 0 && i < entries.size() && page.size() <= query.limit(); i += step) {
+                AuditLogEntry e = entries.get(i);
+                if (query.matches(e.getSequence(), e.getOccurredAt())) page.add(e);
+            }
+        }
+        if (page.size() <= query.limit()) return new HistoryPage(page, 0);
+        List<AuditLogEntry> entriesOnPage = page.subList(0, query.limit());
+        return new HistoryPage(List.copyOf(entriesOnPage), entriesOnPage.get(query.limit() - 1).getSequence());
+    }
+
+    // first index whose sequence is at least `sequence`
+    private static int indexOf(List<AuditLogEntry> entries, int sequence) {
+        int lo = 0;
+        int hi = entries.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries.get(mid).getSequence() < sequence) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,173 @@
+package com.vvk.banque.adapter.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Small fixed-size JDBC pool, no extra dependency.
+// - connections are opened lazily up to maxSize, then callers wait up to acquireTimeout for one to come back
+// - each connection keeps its own PreparedStatement cache keyed by SQL, so a statement is parsed once per connection
+// - a connection that fails validation after an error is closed and its slot freed, the next caller opens a fresh one
+final class JdbcConnectionPool implements AutoCloseable {
+
+    static final int DEFAULT_POOL_SIZE = 4;
+    static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T apply(PooledConnection conn) throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long acquireTimeoutNanos;
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger opened = new AtomicInteger();
+    // a release checks closed and parks the connection under this lock, so close() cannot drain idle in between
+    // and leave a connection parked in a closed pool
+    private final Object lifecycle = new Object();
+    private volatile boolean closed;                    // written under lifecycle
+
+    JdbcConnectionPool(String url, String user, String pass, int maxSize, Duration acquireTimeout) {
+        this(() -> DriverManager.getConnection(url, user, pass), maxSize, acquireTimeout);
+    }
+
+    JdbcConnectionPool(ConnectionFactory factory, int maxSize, Duration acquireTimeout) {
+        if (maxSize < 1) throw new IllegalArgumentException("pool size must be at least 1, got " + maxSize);
+        if (acquireTimeout.isNegative()) throw new IllegalArgumentException("acquire timeout must not be negative");
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    // borrow a connection, run the work, hand it back - the connection never escapes the call
+    <T> T withConnection(SqlWork<T> work) throws SQLException {
+        PooledConnection pc = acquire();
+        boolean healthy = true;
+        try {
+            return work.apply(pc);
+        } catch (SQLException e) {
+            healthy = pc.isValid();
+            throw e;
+        } finally {
+            release(pc, healthy);
+        }
+    }
+
+    int openConnections() {
+        return opened.get();
+    }
+
+    private PooledConnection acquire() throws SQLException {
+        if (closed) throw new SQLException("connection pool is closed");
+        PooledConnection pc = idle.poll();
+        if (pc != null) return pc;
+        // room to grow: open one instead of waiting
+        for (int n = opened.get(); n < maxSize; n = opened.get()) {
+            if (opened.compareAndSet(n, n + 1)) {
+                try {
+                    return new PooledConnection(factory.open());
+                } catch (SQLException | RuntimeException e) {
+                    opened.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        try {
+            pc = idle.poll(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a pooled connection", e);
+        }
+        if (pc == null) {
+            // a discarded connection frees a slot without going through idle, try once more before giving up
+            if (opened.get() < maxSize) return acquire();
+            throw new SQLTimeoutException("no pooled connection available after "
+                    + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + " ms (pool size " + maxSize + ")");
+        }
+        return pc;
+    }
+
+    private void release(PooledConnection pc, boolean healthy) {
+        synchronized (lifecycle) {
+            if (healthy && !closed) {
+                idle.offer(pc);
+                return;
+            }
+        }
+        discard(pc);
+    }
+
+    private void discard(PooledConnection pc) {
+        opened.decrementAndGet();
+        pc.closeQuietly();
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> parked = new ArrayList<>();
+        synchronized (lifecycle) {
+            closed = true;
+            idle.drainTo(parked);
+        }
+        parked.forEach(this::discard);      // physical closes outside the lock, releases only wait for the drain
+    }
+
+    // owned by one caller at a time while borrowed, so the statement cache needs no locking
+    static final class PooledConnection {
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection conn) {
+            this.conn = conn;
+        }
+
+        // cached per connection - callers must not close the returned statement
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = conn.prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        Connection connection() {
+            return conn;
+        }
+
+        private boolean isValid() {
+            try {
+                return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            for (PreparedStatement ps : statements.values()) {
+                try { ps.close(); } catch (SQLException ignored) { }
+            }
+            statements.clear();
+            try { conn.close(); } catch (SQLException ignored) { }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// The original payload format: the event record as Jackson writes it.
+// Readable in the console and queryable in Cosmos, but every id and amount goes over the wire as text.
+// One mapper for every store. Each event type gets its ObjectReader / ObjectWriter up front, keyed by the
+// eventType the stores write, so decode binds the bytes straight to the record: no tree, no per-call lookup.
+public final class JsonEventCodec implements EventCodec {
+
+    static final JsonEventCodec INSTANCE = new JsonEventCodec();
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new ParameterNamesModule())
+            // Money also serializes its derived getters (zero, positive..), there is nothing to map them to
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, ObjectReader> readers = new HashMap<>();     // eventType -> reader
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+    private JsonEventCodec() {
+        // the sealed hierarchy is the list of types, a new event gets its reader without touching this class
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            readers.put(type.getSimpleName(), mapper.readerFor(type));
+            writers.put(type, mapper.writerFor(type));
+        }
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] encode(DomainEvent event) {
+        try { return writers.get(event.getClass()).writeValueAsBytes(event); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    @Override
+    public DomainEvent decode(String eventType, byte[] payload) {
+        if (BinaryEventCodec.isBinary(payload)) return BinaryEventCodec.INSTANCE.decode(eventType, payload);
+        try { return readerOf(eventType).readValue(payload); }
+        catch (IOException e) { throw new UncheckedIOException("bad " + eventType + " payload", e); }
+    }
+
+    // Cosmos embeds the payload as a document tree rather than bytes. The SDK has already parsed the document,
+    // the reader walks that tree once instead of convertValue's write-to-buffer-then-bind round
+    JsonNode toTree(DomainEvent event) {
+        return mapper.valueToTree(event);
+    }
+
+    DomainEvent fromTree(String eventType, JsonNode payload) {
+        try { return readerOf(eventType).readValue(payload); }
+        catch (IOException e) { throw new UncheckedIOException("bad " + eventType + " payload", e); }
+    }
+
+    private ObjectReader readerOf(String eventType) {
+        ObjectReader reader = readers.get(eventType);
+        if (reader == null) throw new IllegalArgumentException("Unknown event type: " + eventType);
+        return reader;
+    }
+}
@@ -0,0 +1,41 @@
+package com.vvk.banque.adapter.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+// rows the pre-versioning saveEvent wrote (Dynamo and Cosmos alike) carry a random key and no version, only a timestamp.
+// every versioned append numbered itself from the count of ALL rows in the stream, so in a mixed stream the legacy rows
+// own exactly the versions no versioned row took, the lowest ones, and they take them in timestamp order.
+// plan() works that out for one stream; the stores rewrite the rows at those versions and drop the random keys.
+final class LegacyEvents {
+
+    record Renumbered<R>(R row, int version) {}
+
+    private LegacyEvents() {}
+
+    // version: null for a legacy row. key breaks timestamp ties so two runs over the same stream agree
+    static <R> List<Renumbered<R>> plan(List<R> rows, Function<R, Integer> version, Function<R, String> timestamp,
+                                        Function<R, String> key) {
+        List<R> legacy = new ArrayList<>();
+        Set<Integer> taken = new HashSet<>();
+        for (R row : rows) {
+            Integer v = version.apply(row);
+            if (v == null) legacy.add(row);
+            else taken.add(v);
+        }
+        // Instant, not the string: toString drops zero fractions, so "...:00Z" would sort after "...:00.5Z"
+        legacy.sort(Comparator.<R, Instant>comparing(r -> Instant.parse(timestamp.apply(r))).thenComparing(key));
+        List<Renumbered<R>> out = new ArrayList<>(legacy.size());
+        int next = 1;
+        for (R row : legacy) {
+            while (taken.contains(next)) next++;
+            out.add(new Renumbered<>(row, next++));
+        }
+        return out;
+    }
+}
@@ -7,39 +7,83 @@ import com.vvk.banque.app.ports.out.AccountQueryPort;
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.domain.AggregatesObj.Account;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-public final class PostgresBalanceProjection implements AccountQueryPort {
+public final class PostgresBalanceProjection implements AccountQueryPort, AutoCloseable {
 
-    private final Connection conn;
+    private static final String UPSERT_SQL =
+        "INSERT INTO account_balance (acc_no, customer, balance, updated_at) " +
+        "VALUES (?, ?, ?, ?) ON CONFLICT (acc_no) DO UPDATE SET balance = ?, updated_at = ?";
+    private static final String ADD_SQL =
+        "UPDATE account_balance SET balance = balance + ?, updated_at = ? WHERE acc_no = ?";
+    private static final String BALANCE_SQL =
+        "SELECT balance FROM account_balance WHERE acc_no = ?";
+    // guarded variants for AsyncProjectionRunner: `version` is the last projected stream version (the checkpoint),
+    // a row only moves if it is still at the version the batch was built against
+    private static final String UPSERT_OPENED_SQL =
+        "INSERT INTO account_balance (acc_no, customer, balance, version, updated_at) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (acc_no) DO UPDATE SET customer = EXCLUDED.customer, balance = EXCLUDED.balance, " +
+        "version = EXCLUDED.version, updated_at = EXCLUDED.updated_at WHERE account_balance.version = ?";
+    private static final String ADD_GUARDED_SQL =
+        "UPDATE account_balance SET balance = balance + ?, version = ?, updated_at = ? WHERE acc_no = ? AND version = ?";
+    private static final String CHECKPOINTS_SQL =
+        "SELECT acc_no, version FROM account_balance";
+    private static final String CHECKPOINTS_FOR_SQL =
+        "SELECT acc_no, version FROM account_balance WHERE acc_no = ANY(?)";
+    private static final String LIST_SQL =
+        "SELECT acc_no, customer, balance, updated_at FROM account_balance ORDER BY acc_no";
+
+    // the pool defaults, for callers outside the package that size the pool from config
+    public static final int DEFAULT_POOL_SIZE = JdbcConnectionPool.DEFAULT_POOL_SIZE;
+    public static final Duration DEFAULT_POOL_TIMEOUT = JdbcConnectionPool.DEFAULT_ACQUIRE_TIMEOUT;
+
+    // pooled connections, each with its own prepared statement cache - concurrent requests don't queue on one socket
+    private final JdbcConnectionPool pool;
     private final AccountEventStorePort eventStore; 
 
     public PostgresBalanceProjection(String url, String user, String pass, AccountEventStorePort eventStore) throws SQLException {
-        this.conn = DriverManager.getConnection(url, user, pass);
+        this(url, user, pass, eventStore, JdbcConnectionPool.DEFAULT_POOL_SIZE, JdbcConnectionPool.DEFAULT_ACQUIRE_TIMEOUT);
+    }
+
+    public PostgresBalanceProjection(String url, String user, String pass, AccountEventStorePort eventStore,
+                                     int poolSize, Duration connectionTimeout) throws SQLException {
+        this.pool = new JdbcConnectionPool(url, user, pass, poolSize, connectionTimeout);
         this.eventStore = eventStore;
-        conn.createStatement().execute(
-            "CREATE TABLE IF NOT EXISTS account_balance(" +
-            "acc_no CHAR(5) PRIMARY KEY," +
-            "customer VARCHAR(3)," +
-            "balance NUMERIC(12,2) NOT NULL," +
-            "updated_at TIMESTAMP NOT NULL)"
-        );
+        pool.withConnection(c -> {
+            try (Statement st = c.connection().createStatement()) {
+                st.execute(
+                    "CREATE TABLE IF NOT EXISTS account_balance(" +
+                    "acc_no CHAR(5) PRIMARY KEY," +
+                    "customer VARCHAR(3)," +
+                    "balance NUMERIC(12,2) NOT NULL," +
+                    "updated_at TIMESTAMP NOT NULL)"
+                );
+                st.execute("ALTER TABLE account_balance ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0");
+            }
+            return null;
+        });
     }
 
     public void project(DomainEvent evt) {
         try {
-            if (evt instanceof AccountOpened e) {
-                upsert(e.getAccountId().getAcc(), e.getOwnerId().getCust(), e.getOpenBal());
-            } else if (evt instanceof MoneyDeposited e) {
-                add(e.accountId().getAcc(), e.amount());
-            } else if (evt instanceof MoneyWithdrawn e) {
-                add(e.accountId().getAcc(), e.amount().multiply(BigDecimal.valueOf(-1), java.math.RoundingMode.HALF_EVEN));
-            } else if (evt instanceof MoneyTransferInitiated e) { // Handles sender deduction
-                add(e.fromId().getAcc(), e.amount().multiply(BigDecimal.valueOf(-1), java.math.RoundingMode.HALF_EVEN));
-            } else if (evt instanceof MoneyTransferReceive e) { // Handles receiver addition
-                add(e.toAccountId().getAcc(), e.amount());
+            switch (evt) {
+                case AccountOpened e -> upsert(e.accountId().getAcc(), e.ownerId().getCust(), e.openBal());
+                case MoneyDeposited e -> add(e.accountId().getAcc(), e.amount().minorUnits(), e.amount().getCur());
+                case MoneyWithdrawn e -> add(e.accountId().getAcc(), Math.negateExact(e.amount().minorUnits()), e.amount().getCur());
+                // Handles sender deduction
+                case MoneyTransferInitiated e -> add(e.fromId().getAcc(), Math.negateExact(e.amount().minorUnits()), e.amount().getCur());
+                // Handles receiver addition
+                case MoneyTransferReceive e -> add(e.toAccountId().getAcc(), e.amount().minorUnits(), e.amount().getCur());
+                case MoneyTransferSend e -> { }   // legacy, never written by this version
+                case CustomerSignedUp e -> { }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Error projecting event: " + e.getMessage(), e);
@@ -47,42 +91,125 @@ public final class PostgresBalanceProjection implements AccountQueryPort {
     }
 
     private void upsert(int acc, String cust, Money amt) throws SQLException {
-        PreparedStatement ps = conn.prepareStatement(
-            "INSERT INTO account_balance (acc_no, customer, balance, updated_at) " +
-            "VALUES (?, ?, ?, ?) ON CONFLICT (acc_no) DO UPDATE SET balance = ?, updated_at = ?"
-        );
-        ps.setString(1, String.format("%05d", acc));
-        ps.setString(2, cust);
-        ps.setBigDecimal(3, amt.getAmt());
-        ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-        ps.setBigDecimal(5, amt.getAmt());
-        ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
-        ps.executeUpdate();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        pool.withConnection(c -> {
+            PreparedStatement ps = c.prepare(UPSERT_SQL);
+            ps.setString(1, String.format("%05d", acc));
+            ps.setString(2, cust);
+            ps.setBigDecimal(3, amt.getAmt());
+            ps.setTimestamp(4, now);
+            ps.setBigDecimal(5, amt.getAmt());
+            ps.setTimestamp(6, now);
+            return ps.executeUpdate();
+        });
+    }
+
+    // delta in minor units (cents), signed - no Money/BigDecimal arithmetic per event, one BigDecimal for the driver
+    private void add(int acc, long deltaMinor, Currency cur) throws SQLException {
+        BigDecimal delta = BigDecimal.valueOf(deltaMinor, cur.getDefaultFractionDigits());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        pool.withConnection(c -> {
+            PreparedStatement ps = c.prepare(ADD_SQL);
+            ps.setBigDecimal(1, delta);
+            ps.setTimestamp(2, now);
+            ps.setString(3, String.format("%05d", acc));
+            return ps.executeUpdate();
+        });
+    }
+
+    // one account's events in a batch folded into a single row change, see AsyncProjectionRunner
+    // opened: the row is (re)written with `minor` as the balance, else `minor` is added to it
+    record BalanceChange(int acc, String customer, boolean opened, long minor, Currency cur, int expectedVersion, int newVersion) {
+        BigDecimal amount() {
+            return BigDecimal.valueOf(minor, cur == null ? 2 : cur.getDefaultFractionDigits());
+        }
+    }
+
+    // applies all changes in one transaction with two JDBC batches, returns the ones whose guard did not match
+    List<BalanceChange> applyBatch(List<BalanceChange> changes) throws SQLException {
+        if (changes.isEmpty()) return List.of();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return pool.withConnection(c -> {
+            Connection conn = c.connection();
+            conn.setAutoCommit(false);
+            try {
+                List<BalanceChange> opened = new ArrayList<>();
+                List<BalanceChange> deltas = new ArrayList<>();
+                for (BalanceChange ch : changes) (ch.opened() ? opened : deltas).add(ch);
+
+                PreparedStatement upsert = c.prepare(UPSERT_OPENED_SQL);
+                for (BalanceChange ch : opened) {
+                    upsert.setString(1, String.format("%05d", ch.acc()));
+                    upsert.setString(2, ch.customer());
+                    upsert.setBigDecimal(3, ch.amount());
+                    upsert.setInt(4, ch.newVersion());
+                    upsert.setTimestamp(5, now);
+                    upsert.setInt(6, ch.expectedVersion());
+                    upsert.addBatch();
+                }
+                PreparedStatement add = c.prepare(ADD_GUARDED_SQL);
+                for (BalanceChange ch : deltas) {
+                    add.setBigDecimal(1, ch.amount());
+                    add.setInt(2, ch.newVersion());
+                    add.setTimestamp(3, now);
+                    add.setString(4, String.format("%05d", ch.acc()));
+                    add.setInt(5, ch.expectedVersion());
+                    add.addBatch();
+                }
+                List<BalanceChange> rejected = new ArrayList<>();
+                collectRejected(opened.isEmpty() ? new int[0] : upsert.executeBatch(), opened, rejected);
+                collectRejected(deltas.isEmpty() ? new int[0] : add.executeBatch(), deltas, rejected);
+                conn.commit();
+                return rejected;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
     }
 
-    private void add(int acc, Money delta) throws SQLException {
-        PreparedStatement ps = conn.prepareStatement(
-            "UPDATE account_balance SET balance = balance + ?, updated_at = ? WHERE acc_no = ?"
-        );
-        ps.setBigDecimal(1, delta.getAmt());
-        ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-        ps.setString(3, String.format("%05d", acc));
-        ps.executeUpdate();
+    private static void collectRejected(int[] counts, List<BalanceChange> changes, List<BalanceChange> rejected) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) rejected.add(changes.get(i));   // SUCCESS_NO_INFO (-2) counts as applied
+        }
+    }
+
+    // acc_no -> last projected stream version, for every row or just the given accounts
+    Map<Integer, Integer> loadCheckpoints() throws SQLException {
+        return pool.withConnection(c -> readCheckpoints(c.prepare(CHECKPOINTS_SQL)));
+    }
+
+    Map<Integer, Integer> loadCheckpoints(Collection<Integer> accs) throws SQLException {
+        if (accs.isEmpty()) return Map.of();
+        return pool.withConnection(c -> {
+            PreparedStatement ps = c.prepare(CHECKPOINTS_FOR_SQL);
+            ps.setArray(1, c.connection().createArrayOf("text",
+                    accs.stream().map(acc -> String.format("%05d", acc)).toArray()));
+            return readCheckpoints(ps);
+        });
+    }
+
+    private static Map<Integer, Integer> readCheckpoints(PreparedStatement ps) throws SQLException {
+        Map<Integer, Integer> out = new HashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.put(Integer.parseInt(rs.getString("acc_no").trim()), rs.getInt("version"));
+        }
+        return out;
     }
 
     @Override
     public Money findBalanceByAccountId(AccountId accountId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-            "SELECT balance FROM account_balance WHERE acc_no = ?"
-        )) {
-            ps.setString(1, String.format("%05d", accountId.getAcc()));
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return Money.of(rs.getBigDecimal("balance"), Currency.getInstance("USD"));
-                } else {
-                    return Money.of(BigDecimal.ZERO, Currency.getInstance("USD"));
+        try {
+            BigDecimal balance = pool.withConnection(c -> {
+                PreparedStatement ps = c.prepare(BALANCE_SQL);
+                ps.setString(1, String.format("%05d", accountId.getAcc()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getBigDecimal("balance") : BigDecimal.ZERO;
                 }
-            }
+            });
+            return Money.of(balance, Currency.getInstance("USD"));
         } catch (SQLException e) {
             throw new RuntimeException("Error querying balance for account: " + accountId.toString(), e);
         }
@@ -94,20 +221,26 @@ public final class PostgresBalanceProjection implements AccountQueryPort {
     }
     
     public String listMasked() throws SQLException {
-        ResultSet rs = conn.createStatement().executeQuery(
-            "SELECT acc_no, customer, balance, updated_at FROM account_balance ORDER BY acc_no"
-        );
-        StringBuilder sb = new StringBuilder();
-        while (rs.next()) {
-            sb.append(rs.getString("acc_no"))
-              .append("  ")
-              .append(rs.getString("customer"))
-              .append("  ")
-              .append(rs.getTimestamp("updated_at").toLocalDateTime())
-              .append("  ")
-              .append(rs.getBigDecimal("balance"))
-              .append(" USD\n");
-        }
-        return sb.isEmpty() ? "no accounts found" : sb.toString();
+        return pool.withConnection(c -> {
+            StringBuilder sb = new StringBuilder();
+            try (ResultSet rs = c.prepare(LIST_SQL).executeQuery()) {
+                while (rs.next()) {
+                    sb.append(rs.getString("acc_no"))
+                      .append("  ")
+                      .append(rs.getString("customer"))
+                      .append("  ")
+                      .append(rs.getTimestamp("updated_at").toLocalDateTime())
+                      .append("  ")
+                      .append(rs.getBigDecimal("balance"))
+                      .append(" USD\n");
+                }
+            }
+            return sb.isEmpty() ? "no accounts found" : sb.toString();
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.close();
     }
 }
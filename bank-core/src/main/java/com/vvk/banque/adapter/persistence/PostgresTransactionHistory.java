@@ -0,0 +1,155 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.domain.ValueObj.AccountId;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Transaction history read model in Postgres, one row per account event: primary key (account_id, seq), seq being the
+// stream version. the 5 digit number is not unique across account ids, so it never keys a row. Fed by its own
+// CatchUpSubscription on the global log.
+// - a batch from the subscription goes in as one JDBC batch in one transaction; ON CONFLICT DO NOTHING makes a
+//   replayed position harmless, so the subscription can always start from the beginning of the log
+// - a page is one index range scan on the primary key: seq below (or above) the cursor, ORDER BY seq, LIMIT
+//   page size + 1 - the extra row only says there is another page
+// - a page with a date range has its own statement, so the planner can take the (account_id, occurred_at) index instead
+//   of filtering the account's whole history on the primary key scan; pages without one never see the range at all
+public final class PostgresTransactionHistory implements TransactionHistoryPort, AutoCloseable {
+
+    private static final OffsetDateTime OPEN_FROM = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime OPEN_TO = OffsetDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO transaction_history (account_id, seq, action, occurred_at, metadata) " +
+        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (account_id, seq) DO NOTHING";
+    private static final String NEWEST_FIRST_SQL =
+        "SELECT seq, action, occurred_at, metadata FROM transaction_history " +
+        "WHERE account_id = ? AND seq < ? ORDER BY seq DESC LIMIT ?";
+    private static final String OLDEST_FIRST_SQL =
+        "SELECT seq, action, occurred_at, metadata FROM transaction_history " +
+        "WHERE account_id = ? AND seq > ? ORDER BY seq ASC LIMIT ?";
+    private static final String NEWEST_FIRST_IN_RANGE_SQL =
+        "SELECT seq, action, occurred_at, metadata FROM transaction_history " +
+        "WHERE account_id = ? AND seq < ? AND occurred_at >= ? AND occurred_at < ? ORDER BY seq DESC LIMIT ?";
+    private static final String OLDEST_FIRST_IN_RANGE_SQL =
+        "SELECT seq, action, occurred_at, metadata FROM transaction_history " +
+        "WHERE account_id = ? AND seq > ? AND occurred_at >= ? AND occurred_at < ? ORDER BY seq ASC LIMIT ?";
+
+    // the pool defaults, for callers outside the package that size the pool from config
+    public static final int DEFAULT_POOL_SIZE = JdbcConnectionPool.DEFAULT_POOL_SIZE;
+    public static final Duration DEFAULT_POOL_TIMEOUT = JdbcConnectionPool.DEFAULT_ACQUIRE_TIMEOUT;
+
+    private final JdbcConnectionPool pool;
+
+    public PostgresTransactionHistory(String url, String user, String pass) throws SQLException {
+        this(url, user, pass, DEFAULT_POOL_SIZE, DEFAULT_POOL_TIMEOUT);
+    }
+
+    public PostgresTransactionHistory(String url, String user, String pass, int poolSize, Duration connectionTimeout) throws SQLException {
+        this(new JdbcConnectionPool(url, user, pass, poolSize, connectionTimeout));
+    }
+
+    PostgresTransactionHistory(JdbcConnectionPool pool) throws SQLException {
+        this.pool = pool;
+        pool.withConnection(c -> {
+            try (Statement st = c.connection().createStatement()) {
+                st.execute(
+                    "CREATE TABLE IF NOT EXISTS transaction_history(" +
+                    "account_id UUID NOT NULL," +
+                    "seq INT NOT NULL," +
+                    "action VARCHAR(32) NOT NULL," +
+                    "occurred_at TIMESTAMPTZ NOT NULL," +
+                    "metadata TEXT NOT NULL," +
+                    "PRIMARY KEY (account_id, seq))"
+                );
+                st.execute("CREATE INDEX IF NOT EXISTS transaction_history_acc_time ON transaction_history (account_id, occurred_at)");
+            }
+            return null;
+        });
+    }
+
+    // CatchUpSubscription.Handler: a failure rolls the batch back and the subscription retries it
+    public void apply(List<PositionedEvent> batch) throws SQLException {
+        List<AuditLogEntry> entries = new ArrayList<>(batch.size());
+        for (PositionedEvent p : batch) {
+            AuditLogEntry entry = AuditLogEntry.of(p.event(), p.streamVersion(), p.recordedAt());
+            if (entry.getAccountId() != null) entries.add(entry);
+        }
+        insert(entries);
+    }
+
+    private void insert(List<AuditLogEntry> entries) throws SQLException {
+        if (entries.isEmpty()) return;
+        pool.withConnection(c -> {
+            Connection conn = c.connection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement ps = c.prepare(INSERT_SQL);
+                for (AuditLogEntry e : entries) {
+                    ps.setObject(1, e.getAccountId().getId());
+                    ps.setInt(2, e.getSequence());
+                    ps.setString(3, e.getAction());
+                    ps.setObject(4, e.getOccurredAt().atOffset(ZoneOffset.UTC));
+                    ps.setString(5, e.getMetadata());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return null;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    @Override
+    public HistoryPage findHistory(AccountId accountId, HistoryQuery query) {
+        boolean newestFirst = query.order() == Order.NEWEST_FIRST;
+        int cursor = query.cursor() == 0 && newestFirst ? Integer.MAX_VALUE : query.cursor();
+        boolean ranged = query.from() != null || query.to() != null;
+        String sql = ranged ? (newestFirst ? NEWEST_FIRST_IN_RANGE_SQL : OLDEST_FIRST_IN_RANGE_SQL)
+                            : (newestFirst ? NEWEST_FIRST_SQL : OLDEST_FIRST_SQL);
+        try {
+            List<AuditLogEntry> rows = pool.withConnection(c -> {
+                PreparedStatement ps = c.prepare(sql);
+                int p = 1;
+                ps.setObject(p++, accountId.getId());
+                ps.setInt(p++, cursor);
+                if (ranged) {
+                    ps.setObject(p++, query.from() == null ? OPEN_FROM : query.from().atOffset(ZoneOffset.UTC));
+                    ps.setObject(p++, query.to() == null ? OPEN_TO : query.to().atOffset(ZoneOffset.UTC));
+                }
+                ps.setInt(p, query.limit() + 1);
+                List<AuditLogEntry> out = new ArrayList<>(query.limit() + 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Instant at = rs.getObject("occurred_at", OffsetDateTime.class).toInstant();
+                        out.add(new AuditLogEntry(accountId, rs.getInt("seq"), rs.getString("action"), at, rs.getString("metadata")));
+                    }
+                }
+                return out;
+            });
+            if (rows.size() <= query.limit()) return new HistoryPage(rows, 0);
+            List<AuditLogEntry> page = rows.subList(0, query.limit());
+            return new HistoryPage(List.copyOf(page), page.get(query.limit() - 1).getSequence());
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading history for account: " + accountId, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.AccountSnapshotPort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.AggregatesObj.AccountSnapshot;
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Decorator over any event store: loadAccount rehydrates from the latest snapshot + tail events
+// instead of replaying the whole stream. A new snapshot is written once the tail reaches snapshotInterval.
+public final class SnapshottingEventStore implements AccountEventStorePort, AccountQueryPort {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+    private final AccountEventStorePort delegate;
+    private final AccountSnapshotPort snapshots;
+    private final int snapshotInterval;
+
+    public SnapshottingEventStore(AccountEventStorePort delegate, AccountSnapshotPort snapshots, int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("snapshot interval must be 1 or more, got: " + snapshotInterval);
+        }
+        this.delegate = delegate;
+        this.snapshots = snapshots;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public SnapshottingEventStore(AccountEventStorePort delegate, AccountSnapshotPort snapshots) {
+        this(delegate, snapshots, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    @Override
+    public Account loadAccount(AccountId accountId) {
+        Optional<AccountSnapshot> snapshot = snapshots.loadLatest(accountId);
+        Account account;
+        int replayed;
+        if (snapshot.isPresent()) {
+            List<DomainEvent> tail = delegate.loadEvents(accountId, snapshot.get().version());
+            account = Account.fromSnapshot(snapshot.get(), tail);
+            replayed = tail.size();
+        } else {
+            try (Stream<DomainEvent> history = delegate.streamEvents(accountId)) {
+                account = Account.fromHistry(accountId, history.iterator());
+            }
+            replayed = account.getVersion();
+        }
+        if (replayed >= snapshotInterval) {
+            snapshots.save(account.snapshot());
+        }
+        return account;
+    }
+
+    @Override
+    public Money findBalanceByAccountId(AccountId accountId) {
+        return loadAccount(accountId).getBalance();
+    }
+
+    /* ---------- plain delegation ---------- */
+
+    @Override
+    public void saveEvent(DomainEvent event) {
+        delegate.saveEvent(event);
+    }
+
+    @Override
+    public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+        delegate.saveEvents(accountId, expectedVersion, events);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId) {
+        return delegate.loadEvents(accountId);
+    }
+
+    @Override
+    public List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+        return delegate.loadEvents(accountId, fromVersionExclusive);
+    }
+
+    @Override
+    public Stream<DomainEvent> streamEvents(AccountId accountId) {
+        return delegate.streamEvents(accountId);
+    }
+
+    @Override
+    public int currentVersion(AccountId accountId) {
+        return delegate.currentVersion(accountId);
+    }
+
+    @Override
+    public Stream<AccountId> accountIds() {
+        return delegate.accountIds();
+    }
+
+    @Override
+    public List<DomainEvent> loadEventsByNumericAcc(int accNumber) {
+        return delegate.loadEventsByNumericAcc(accNumber);
+    }
+
+    @Override
+    public Optional<AccountId> findAccountIdByNumber(int accNumber) {
+        return delegate.findAccountIdByNumber(accNumber);
+    }
+
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+}
@@ -0,0 +1,230 @@
+package com.vvk.banque.adapter.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Group commit for an append-only file: fsync per append caps a disk at a few thousand appends a second, one fsync
+// for everything that queued up meanwhile does not.
+// - appenders enqueue ready-framed record bytes and wait; one flusher thread takes up to maxBatch of them, writes them
+//   with one gathering write at the end of the file, forces once and completes the whole batch together
+// - after the first append of a batch the flusher waits up to maxWait for it to fill. zero still batches: whatever
+//   queues while the previous fsync runs goes out in the next one
+// - appends land in the file in enqueue order; onDurable hooks run on the flusher in that order, before the appender
+//   wakes, so a caller that enqueues under its own lock can publish its index in file order from there. a hook that
+//   throws fails its own append (the records are on disk by then), the rest of the batch completes
+// - a failed write or fsync fails its batch and everything queued, and appends are refused until the owner calls
+//   resume(): that cuts the file back to the end of the last committed batch and hands the offset back, so the owner
+//   can rewind whatever it laid out past it and carry on without a reopen
+// the channel belongs to the caller, the log only writes to it (at its own position) and forces it
+public final class WriteAheadLog implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH = 512;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ZERO;
+    private static final System.Logger LOG = System.getLogger(WriteAheadLog.class.getName());
+
+    // appends and batches committed so far, and what their fsyncs cost
+    public record Stats(long appends, long batches, int largestBatch, long syncNanos, long maxSyncNanos) {
+        public double meanBatchSize()   { return batches == 0 ? 0 : (double) appends / batches; }
+        public double meanSyncMicros()  { return batches == 0 ? 0 : syncNanos / 1_000.0 / batches; }
+        public double maxSyncMicros()   { return maxSyncNanos / 1_000.0; }
+    }
+
+    private record Append(ByteBuffer records, Runnable onDurable, CompletableFuture<Long> done) {}
+
+    private final FileChannel channel;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final ArrayDeque<Append> queue = new ArrayDeque<>();     // under lock
+    private boolean closed;                                         // under lock
+    private IOException failure;                                    // under lock
+
+    private volatile Stats stats = new Stats(0, 0, 0, 0, 0);
+
+    // flusher only
+    private final List<Append> batch;
+    private volatile long end;                                      // written by the flusher, read by resume()
+
+    public WriteAheadLog(FileChannel channel, long end) {
+        this(channel, end, DEFAULT_MAX_BATCH, DEFAULT_MAX_WAIT);
+    }
+
+    // end: where the first append goes, normally the size of the file after recovery
+    public WriteAheadLog(FileChannel channel, long end, int maxBatch, Duration maxWait) {
+        if (maxBatch < 1) throw new IllegalArgumentException("max batch must be at least 1, got " + maxBatch);
+        if (maxWait.isNegative()) throw new IllegalArgumentException("max wait must not be negative, got " + maxWait);
+        this.channel = channel;
+        this.end = end;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batch = new ArrayList<>(maxBatch);
+        this.flusher = Thread.ofPlatform().name("wal-flusher").daemon().start(this::run);
+    }
+
+    // blocks until the records are on disk, returns the file offset just past them
+    public long append(ByteBuffer records) {
+        try {
+            return enqueue(records, () -> {}).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // completes with the file offset just past the records once they are on disk, onDurable has run by then
+    public CompletableFuture<Long> enqueue(ByteBuffer records, Runnable onDurable) {
+        Append append = new Append(records, onDurable, new CompletableFuture<>());
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("write-ahead log is closed");
+            if (failure != null) throw new UncheckedIOException("write-ahead log failed earlier, resume to recover", failure);
+            queue.add(append);
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        return append.done;
+    }
+
+    public Stats stats() {
+        return stats;
+    }
+
+    // true from a failed write or fsync until resume()
+    public boolean failed() {
+        lock.lock();
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // after a failure: truncates the file to the end of the last committed batch, takes appends again from there and
+    // returns that offset. the owner calls it under the lock it enqueues under, and rewinds its own layout to match
+    public long resume() {
+        lock.lock();
+        try {
+            if (failure == null) return end;
+            try {
+                channel.truncate(end);
+            } catch (IOException e) {
+                throw new UncheckedIOException("write-ahead log cannot cut back to offset " + end, e);
+            }
+            LOG.log(System.Logger.Level.INFO, "wal: resumed at offset " + end + " after: " + failure.getMessage());
+            failure = null;
+            return end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // commits everything enqueued before the call, then stops the flusher; the channel stays open
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try { flusher.join(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /* ---------- flusher thread ---------- */
+
+    private void run() {
+        while (nextBatch()) {
+            commit();
+            batch.clear();
+        }
+    }
+
+    // waits for a first append, then up to maxWait for the batch to fill; false once closed and drained
+    private boolean nextBatch() {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                if (closed) return false;
+                queued.awaitUninterruptibly();
+            }
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (queue.size() < maxBatch && !closed) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) break;
+                try { queued.awaitNanos(left); }
+                catch (InterruptedException e) { break; }
+            }
+            while (batch.size() < maxBatch && !queue.isEmpty()) batch.add(queue.poll());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void commit() {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long[] ends = new long[batch.size()];
+        long offset = end;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = batch.get(i).records();
+            offset += buffers[i].remaining();
+            ends[i] = offset;
+        }
+        long syncNanos;
+        try {
+            channel.position(end);
+            for (long left = offset - end; left > 0; ) left -= channel.write(buffers);
+            long started = System.nanoTime();
+            channel.force(false);
+            syncNanos = System.nanoTime() - started;
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        end = offset;
+        Stats s = stats;
+        stats = new Stats(s.appends() + batch.size(), s.batches() + 1, Math.max(s.largestBatch(), batch.size()),
+                s.syncNanos() + syncNanos, Math.max(s.maxSyncNanos(), syncNanos));
+        for (int i = 0; i < buffers.length; i++) {
+            Append a = batch.get(i);
+            try {
+                a.onDurable().run();
+                a.done().complete(ends[i]);
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.ERROR, "wal: onDurable hook failed for the append ending at " + ends[i], e);
+                a.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        List<Append> failed = new ArrayList<>(batch);
+        lock.lock();
+        try {
+            failure = e;
+            failed.addAll(queue);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        LOG.log(System.Logger.Level.ERROR, "wal: write failed at offset " + end + ", failing " + failed.size() + " appends: " + e.getMessage());
+        UncheckedIOException error = new UncheckedIOException("write-ahead log append failed at offset " + end, e);
+        for (Append a : failed) a.done().completeExceptionally(error);
+    }
+}
@@ -0,0 +1,56 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.AggregatesObj.Account	;
+import com.vvk.banque.domain.ValueObj.AccountId		;
+import com.vvk.banque.domain.events.DomainEvent		;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface AccountEventStorePort {
+
+	void saveEvent(DomainEvent event)				;
+
+	// conditional batch append - only succeeds if the stream is still at expectedVersion, else ConcurrencyConflictException
+	// all events of a command go in one call, stores write them in one atomic round trip
+	void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events);
+
+	List<DomainEvent> loadEvents(AccountId accountId)		;
+
+	// tail read - only the events after a known stream version (version = no. of events already applied)
+	// stores that can range-read should override, default still reads the full stream but skips the replay
+	default List<DomainEvent> loadEvents(AccountId accountId, int fromVersionExclusive) {
+		List<DomainEvent> all = loadEvents(accountId)		;
+		return all.subList(Math.min(Math.max(fromVersionExclusive, 0), all.size()), all.size());
+	}
+
+	// the whole stream in order, read lazily - the caller closes it (try-with-resources)
+	// stores that page their reads override, so a replay folds page by page instead of holding every event
+	default Stream<DomainEvent> streamEvents(AccountId accountId) {
+		return loadEvents(accountId).stream()			;
+	}
+
+	Account loadAccount(AccountId accountId)			;
+
+	List<DomainEvent> loadEventsByNumericAcc(int accNumber)	;
+
+	// events in the stream, i.e. the expected version for the next append - 0 for an account that has none.
+	// default counts the stream, stores that know it without reading the events override
+	default int currentVersion(AccountId accountId) {
+		try (Stream<DomainEvent> stream = streamEvents(accountId)) {
+			return (int) stream.count()				;
+		}
+	}
+
+	// every account that has a stream, in no particular order - for start-up recovery scans, not the command path.
+	// the caller closes the stream, cloud stores page through it
+	Stream<AccountId> accountIds()					;
+
+	// 5 digit acc no. -> full AccountId, stores keep a dedicated index written with AccountOpened
+	// default falls back to the numeric scan for stores without one
+	default Optional<AccountId> findAccountIdByNumber(int accNumber) {
+		List<DomainEvent> events = loadEventsByNumericAcc(accNumber)	;
+		return events.isEmpty() ? Optional.empty() : Optional.of(events.get(0).accountId());
+	}
+}
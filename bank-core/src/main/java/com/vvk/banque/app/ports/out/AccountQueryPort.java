@@ -0,0 +1,12 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.AggregatesObj.Account	;
+import com.vvk.banque.domain.ValueObj.AccountId		;
+import com.vvk.banque.domain.ValueObj.Money		;
+
+public interface AccountQueryPort {
+
+	Money findBalanceByAccountId(AccountId accountId)	;
+
+	Account loadAccount(AccountId accountId)		;
+}
@@ -0,0 +1,14 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.AggregatesObj.AccountSnapshot	;
+import com.vvk.banque.domain.ValueObj.AccountId			;
+
+import java.util.Optional;
+
+// pluggable snapshot storage - one latest snapshot per account is all the loader needs
+public interface AccountSnapshotPort {
+
+	Optional<AccountSnapshot> loadLatest(AccountId accountId)	;
+
+	void save(AccountSnapshot snapshot)				;
+}
@@ -0,0 +1,17 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.events.DomainEvent	;
+
+import java.util.concurrent.CompletableFuture	;
+
+public interface EventPublisherPort {
+
+	void publish(DomainEvent event)	;
+
+	// completes once the subscriber has durably dealt with the event (settlement: the credit is committed), fails if
+	// it gave up on it. an outbox relay clears a marker only then. default: dealt with when publish returns
+	default CompletableFuture<Void> publishAcknowledged(DomainEvent event) {
+		publish(event)					;
+		return CompletableFuture.completedFuture(null)	;
+	}
+}
@@ -0,0 +1,35 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.events.DomainEvent	;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// every committed event of every account in one sequence - what read models subscribe to.
+// positions start at 1 and only grow, a checkpoint of 0 means "from the very beginning".
+// within one account the log keeps stream order, streamVersion says where the event sits in its own stream
+public interface GlobalEventLogPort {
+
+	record PositionedEvent(long position, int streamVersion, Instant recordedAt, DomainEvent event) {}
+
+	// the events one append committed to a stream, the first at firstStreamVersion; returns the last position used
+	long append(int firstStreamVersion, List<? extends DomainEvent> events)	;
+
+	// same append, split in two: the positions are taken before it returns, the future completes once the events are
+	// written (and synced, for a log that syncs). a caller ordering appends under a lock waits for the write outside it.
+	// logs that don't split their appends do the whole append here
+	default CompletableFuture<Long> appendAsync(int firstStreamVersion, List<? extends DomainEvent> events) {
+		return CompletableFuture.completedFuture(append(firstStreamVersion, events));
+	}
+
+	// up to maxCount events after fromPositionExclusive, oldest first - empty when the reader is at the head
+	List<PositionedEvent> read(long fromPositionExclusive, int maxCount)		;
+
+	// last position handed out, 0 while the log is empty
+	long head()									;
+
+	// blocks until something is appended past position or the timeout runs out; true if there is something to read
+	boolean awaitAppend(long position, Duration timeout) throws InterruptedException;
+}
@@ -0,0 +1,20 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.domain.ValueObj.AccountId		;
+import com.vvk.banque.domain.events.DomainEvent		;
+
+import java.util.List;
+
+// events a store wrote with an "unpublished" marker in the same append as the events themselves.
+// a relay reads them, publishes, waits for the subscriber's ack, then clears the marker - a crash in between only
+// means publishing again. markers are cleared as a prefix of each stream, stores may rely on that
+public interface OutboxPort {
+
+	record OutboxEntry(AccountId accountId, int streamVersion, DomainEvent event) {}
+
+	// up to maxCount marked events, oldest first per account: for one account always the first unpublished ones
+	List<OutboxEntry> unpublished(int maxCount)	;
+
+	// clears the marker, entries may span accounts - clearing one already cleared is a no-op
+	void markPublished(List<OutboxEntry> entries)	;
+}
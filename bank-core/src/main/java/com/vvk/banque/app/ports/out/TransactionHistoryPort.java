@@ -0,0 +1,70 @@
+package com.vvk.banque.app.ports.out;
+
+import com.vvk.banque.app.services.dto.AuditLogEntry	;
+import com.vvk.banque.domain.ValueObj.AccountId		;
+
+import java.time.Instant	;
+import java.util.List		;
+
+// an account's history one page at a time, read from a projection instead of replaying the stream.
+// pages are keyset paged on (account, sequence), sequence being the stream version: a page starts right after the
+// cursor the previous one returned, so page 50 costs what page 1 costs and appends in between never shift a page
+public interface TransactionHistoryPort {
+
+	int DEFAULT_PAGE_SIZE = 20	;
+
+	enum Order { NEWEST_FIRST, OLDEST_FIRST }
+
+	// cursor: 0 for the first page, then the nextCursor of the page before. from / to: occurredAt in [from, to),
+	// null leaves that side open
+	record HistoryQuery(int cursor, int limit, Order order, Instant from, Instant to) {
+
+		public HistoryQuery {
+			if (limit < 1) throw new IllegalArgumentException("page size must be at least 1, got " + limit);
+			if (cursor < 0) throw new IllegalArgumentException("cursor must not be negative, got " + cursor);
+			if (order == null) order = Order.NEWEST_FIRST;
+		}
+
+		public static HistoryQuery newestFirst(int limit) {
+			return new HistoryQuery(0, limit, Order.NEWEST_FIRST, null, null);
+		}
+
+		public static HistoryQuery oldestFirst(int limit) {
+			return new HistoryQuery(0, limit, Order.OLDEST_FIRST, null, null);
+		}
+
+		public HistoryQuery between(Instant from, Instant to) {
+			return new HistoryQuery(cursor, limit, order, from, to);
+		}
+
+		public HistoryQuery after(int cursor) {
+			return new HistoryQuery(cursor, limit, order, from, to);
+		}
+
+		public HistoryQuery withLimit(int limit) {
+			return new HistoryQuery(cursor, limit, order, from, to);
+		}
+
+		public HistoryQuery withOrder(Order order) {
+			return new HistoryQuery(cursor, limit, order, from, to);
+		}
+
+		// would a row at this sequence / time be on a page after the cursor
+		public boolean matches(int sequence, Instant occurredAt) {
+			boolean afterCursor = cursor == 0 || (order == Order.NEWEST_FIRST ? sequence < cursor : sequence > cursor);
+			return afterCursor
+					&& (from == null || !occurredAt.isBefore(from))
+					&& (to == null || occurredAt.isBefore(to));
+		}
+	}
+
+	// entries in the order asked for; nextCursor goes into after() for the next page, 0 when this page is the last
+	record HistoryPage(List<AuditLogEntry> entries, int nextCursor) {
+
+		public boolean hasMore() {
+			return nextCursor != 0;
+		}
+	}
+
+	HistoryPage findHistory(AccountId accountId, HistoryQuery query)	;
+}
@@ -0,0 +1,214 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort	;
+import com.vvk.banque.app.ports.out.EventPublisherPort		;
+import com.vvk.banque.domain.AggregatesObj.Account		;
+import com.vvk.banque.domain.ValueObj.AccountId			;
+import com.vvk.banque.domain.ValueObj.Money			;
+import com.vvk.banque.domain.events.DomainEvent			;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// single writer per account: AccountId hashes to one of N shards, each shard is a bounded queue drained by one thread.
+// - commands for one account run one after another without locks, different accounts run in parallel
+// - the shard keeps hydrated Accounts between commands (LRU), a hot account is loaded once instead of per command
+// - writers outside the executor (settlement credits..) still work: the append is conditional, a conflict drops the
+//   cached copy, reloads and re-runs the command. a domain error on a cached copy is re-judged once on a fresh load,
+//   the credit it missed may be what the command needed
+// - a full shard makes submit wait up to enqueueTimeout, then the future fails with RejectedExecutionException
+// - the future completes from the store commit: a publish that throws afterwards is logged and counted in
+//   publishFailures(), never reported as a failed command (a caller retrying it would apply it twice)
+public final class AccountCommandExecutor implements AutoCloseable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY		= 1_024			;
+	public static final int DEFAULT_CACHED_ACCOUNTS		= 10_000		;	// per shard
+	public static final Duration DEFAULT_ENQUEUE_TIMEOUT	= Duration.ofSeconds(1)	;
+	private static final long POLL_MILLIS			= 100			;
+	private static final System.Logger LOG = System.getLogger(AccountCommandExecutor.class.getName());
+
+	// what one command committed; firstVersion is the stream version of events.get(0)
+	public record Committed(AccountId accountId, int firstVersion, List<DomainEvent> events) {}
+
+	private record Task(AccountId accountId, Consumer<Account> command, CompletableFuture<Committed> result) {}
+
+	private final AccountEventStorePort	eventStore	;
+	private final EventPublisherPort	eventPublisher	;
+	private final List<Shard>		shards		;
+	private final long			enqueueTimeoutNanos;
+	private final AtomicLong		publishFailures	= new AtomicLong();
+	private volatile boolean running = true;
+
+	public AccountCommandExecutor(AccountEventStorePort eventStore, EventPublisherPort eventPublisher, int shardCount) {
+		this(eventStore, eventPublisher, shardCount, DEFAULT_QUEUE_CAPACITY, DEFAULT_CACHED_ACCOUNTS, DEFAULT_ENQUEUE_TIMEOUT);
+	}
+
+	public AccountCommandExecutor(AccountEventStorePort eventStore, EventPublisherPort eventPublisher, int shardCount,
+				      int queueCapacity, int cachedAccounts, Duration enqueueTimeout) {
+		if (shardCount < 1) throw new IllegalArgumentException("need at least one shard, got " + shardCount);
+		this.eventStore		= eventStore			;
+		this.eventPublisher	= eventPublisher		;
+		this.enqueueTimeoutNanos	= enqueueTimeout.toNanos()	;
+		List<Shard> ss = new ArrayList<>(shardCount);
+		for (int i = 0; i < shardCount; i++) ss.add(new Shard(i, queueCapacity, cachedAccounts));
+		this.shards		= List.copyOf(ss)		;
+	}
+
+	/*---commands---*/
+
+	public CompletableFuture<Committed> deposit(AccountId accountId, Money amount) {
+		return submit(accountId, account -> account.deposit(amount));
+	}
+
+	public CompletableFuture<Committed> withdraw(AccountId accountId, Money amount) {
+		return submit(accountId, account -> account.withdraw(amount));
+	}
+
+	// runs on the sender's shard, the receiver is credited by settlement off the published MoneyTransferInitiated
+	public CompletableFuture<Committed> transfer(AccountId fromAccountId, AccountId toAccountId, Money amount) {
+		return submit(fromAccountId, account -> account.send(toAccountId, amount));
+	}
+
+	// the command mutates the aggregate, domain errors fail the future and leave the stream untouched
+	public CompletableFuture<Committed> submit(AccountId accountId, Consumer<Account> command) {
+		CompletableFuture<Committed> result = new CompletableFuture<>();
+		if (!running) {
+			result.completeExceptionally(new RejectedExecutionException("command executor is closed"));
+			return result;
+		}
+		Shard shard = shardFor(accountId);
+		shard.enqueue(new Task(accountId, command, result));
+		// close() raced us: its shard may have drained and exited before the task landed. the join in close() comes
+		// before its own sweep, so whichever of the two runs after the thread is gone fails the leftover
+		if (!running && !shard.thread.isAlive()) shard.rejectLeftovers();
+		return result;
+	}
+
+	// events committed but not handed to the publisher, settlement recovery re-drives the transfers among them
+	public long publishFailures() {
+		return publishFailures.get();
+	}
+
+	public int backlog() {
+		int n = 0;
+		for (Shard s : shards) n += s.queue.size();
+		return n;
+	}
+
+	// stops accepting commands, runs what is queued and waits for the shards, then fails what a racing submit
+	// put behind them
+	@Override
+	public void close() {
+		running = false;
+		for (Shard s : shards) {
+			try { s.thread.join(); }
+			catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+			s.rejectLeftovers();
+		}
+	}
+
+	private Shard shardFor(AccountId accountId) {
+		return shards.get(Math.floorMod(accountId.hashCode(), shards.size()));
+	}
+
+	private final class Shard {
+		private final BlockingQueue<Task> queue;
+		private final Thread thread;
+		private final Map<AccountId, Account> accounts;		// shard thread only
+
+		Shard(int index, int capacity, int cachedAccounts) {
+			this.queue	= new ArrayBlockingQueue<>(capacity);
+			this.accounts	= new LinkedHashMap<>(16, 0.75f, true) {
+				@Override protected boolean removeEldestEntry(Map.Entry<AccountId, Account> eldest) {
+					return size() > cachedAccounts;
+				}
+			};
+			this.thread	= Thread.ofPlatform().name("account-shard-" + index).daemon().start(this::run);
+		}
+
+		void enqueue(Task task) {
+			try {
+				if (!queue.offer(task, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+					task.result().completeExceptionally(new RejectedExecutionException(
+							"shard for account " + task.accountId() + " is full (" + queue.size() + " queued)"));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				task.result().completeExceptionally(e);
+			}
+		}
+
+		// only once the shard thread is gone, nothing takes from the queue after that
+		void rejectLeftovers() {
+			for (Task task; (task = queue.poll()) != null; ) {
+				task.result().completeExceptionally(new RejectedExecutionException("command executor is closed"));
+			}
+		}
+
+		private void run() {
+			while (running || !queue.isEmpty()) {
+				Task task;
+				try { task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS); }
+				catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+				if (task == null) continue;
+				try {
+					task.result().complete(execute(task));
+				} catch (RuntimeException e) {
+					accounts.remove(task.accountId());	// never keep an aggregate a failed command may have touched
+					task.result().completeExceptionally(e);
+				}
+			}
+		}
+
+		/*---1. cached or hydrate, 2. mutate, 3. conditional append, 4. publish---*/
+		private Committed execute(Task task) {
+			AccountId id = task.accountId();
+			for (int attempt = 1; ; attempt++) {
+				Account cached	= accounts.get(id);
+				Account account	= cached != null ? cached : eventStore.loadAccount(id);
+				try {
+					task.command().accept(account);
+				} catch (RuntimeException e) {
+					// the cached copy may lag a write from outside the shard (a settlement credit): judge it once more
+					// on what the store holds before failing the command
+					accounts.remove(id);
+					if (cached == null) throw e;
+					account = eventStore.loadAccount(id);
+					task.command().accept(account);
+				}
+
+				List<DomainEvent> events	= List.copyOf(account.getUncommittedEvents());
+				int committedVersion		= account.getCommittedVersion();
+				try {
+					eventStore.saveEvents(id, committedVersion, events);
+				} catch (ConcurrencyConflictException e) {
+					// written from outside this shard since we cached it - start over from the store
+					accounts.remove(id);
+					if (attempt >= OptimisticRetry.MAX_ATTEMPTS) throw e;
+					continue;
+				}
+				account.markEventsAsCommitted();
+				accounts.put(id, account);
+				publish(events);
+				return new Committed(id, committedVersion + 1, events);
+			}
+		}
+
+		// after the commit: the events are saved whatever happens here
+		private void publish(List<DomainEvent> events) {
+			for (DomainEvent event : events) {
+				try {
+					eventPublisher.publish(event);
+				} catch (RuntimeException e) {
+					publishFailures.incrementAndGet();
+					LOG.log(System.Logger.Level.ERROR, "command executor: " + event.getClass().getSimpleName() + " on "
+							+ event.accountId() + " committed but not published", e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort			;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent	;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// one reader of the global log: starts after a checkpoint, reads the history in big batches, then tails live appends.
+// - the handler gets events in log order a batch at a time and owns its checkpoint (keep it with the read model)
+// - a failing handler gets the same batch again after a backoff, nothing is skipped
+// - a read that comes back short means the subscription reached the head: from there it is live and waits on the log
+// a new read model is a new subscription from 0, rebuilding one is the same after wiping it - the command path never knows
+public final class CatchUpSubscription implements AutoCloseable {
+
+	public static final int DEFAULT_BATCH_SIZE	= 1_000			;
+	private static final Duration IDLE_WAIT		= Duration.ofMillis(100);
+	private static final long RETRY_BACKOFF_MILLIS	= 500			;
+	private static final System.Logger LOG = System.getLogger(CatchUpSubscription.class.getName());
+
+	public interface Handler {
+		void handle(List<PositionedEvent> batch) throws Exception;
+	}
+
+	private final String			name		;
+	private final GlobalEventLogPort	log		;
+	private final Handler			handler		;
+	private final int			batchSize	;
+	private final AtomicLong		failures	= new AtomicLong();
+	private final Thread			thread		;
+	private volatile long			position	;	// last position handed to the handler
+	private volatile boolean		live		;
+	private volatile boolean		running		= true	;
+
+	public CatchUpSubscription(String name, GlobalEventLogPort log, long checkpoint, Handler handler) {
+		this(name, log, checkpoint, DEFAULT_BATCH_SIZE, handler);
+	}
+
+	public CatchUpSubscription(String name, GlobalEventLogPort log, long checkpoint, int batchSize, Handler handler) {
+		if (batchSize < 1) throw new IllegalArgumentException("batch size must be at least 1, got " + batchSize);
+		this.name	= name		;
+		this.log	= log		;
+		this.handler	= handler	;
+		this.batchSize	= batchSize	;
+		this.position	= checkpoint	;
+		this.thread	= Thread.ofPlatform().name("subscription-" + name).daemon().start(this::run);
+	}
+
+	public long position()	{ return position;			}
+	public boolean isLive()	{ return live;				}
+	public long lag()	{ return Math.max(0, log.head() - position);	}
+	public long failures()	{ return failures.get();		}
+
+	// hands over what is already in the log, then stops
+	@Override
+	public void close() {
+		running = false;
+		try { thread.join(); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+	}
+
+	private void run() {
+		while (true) {
+			List<PositionedEvent> batch = log.read(position, batchSize);
+			if (batch.isEmpty()) {
+				live = true;
+				if (!running) return;
+				try { log.awaitAppend(position, IDLE_WAIT); }
+				catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+				continue;
+			}
+			if (!deliver(batch)) return;
+			position = batch.get(batch.size() - 1).position();
+			live	 = batch.size() < batchSize;
+		}
+	}
+
+	// false once closed with the batch still failing - the handler's own checkpoint says where to resume
+	private boolean deliver(List<PositionedEvent> batch) {
+		while (true) {
+			try {
+				handler.handle(batch);
+				return true;
+			} catch (Exception e) {
+				failures.incrementAndGet();
+				LOG.log(running ? System.Logger.Level.WARNING : System.Logger.Level.ERROR, "subscription " + name
+						+ ": batch after position " + position + " failed, " + (running ? "retrying" : "giving up"), e);
+				if (!running) return false;
+				try { Thread.sleep(RETRY_BACKOFF_MILLIS); }
+				catch (InterruptedException ie) { Thread.currentThread().interrupt(); return false; }
+			}
+		}
+	}
+}
@@ -5,8 +5,9 @@ import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.EventPublisherPort	;
 import com.vvk.banque.domain.ValueObj.AccountId		;
 import com.vvk.banque.domain.ValueObj.Money		;
-import com.vvk.banque.domain.events.MoneyDeposited	;
-import com.vvk.banque.domain.AggregatesObj.Account	;
+import com.vvk.banque.domain.events.DomainEvent	;
+
+import java.util.List;
 
 public class DepositMoneyCommandHandler implements DepositMoneyCommand {
 
@@ -23,24 +24,13 @@ public class DepositMoneyCommandHandler implements DepositMoneyCommand {
            @Override
          public void executeDepositMoney(AccountId accountId, Money amount) {
 
-	/*---1. hydrate aggregte --*/
-
-	Account account = eventStore.loadAccount(accountId)	;
-
-	/*--2. muatate ---------*/
-
-	account.deposit(amount)	;
+	/*---1. hydrate, 2. mutate, 3. persist - retried on a version conflict --*/
 
-	/*----3. persiste new event ----*/
-
-	MoneyDeposited event = new MoneyDeposited(accountId, amount)	;
-	eventStore.saveEvent(event)	;
+	List<DomainEvent> committed = OptimisticRetry.run(eventStore, accountId, account -> account.deposit(amount));
 
 	/*----4. publish to outside wrld-----*/
 
-	eventPublisher.publish(event)	;
-
-
+	committed.forEach(eventPublisher::publish)	;
 
 	}
 }
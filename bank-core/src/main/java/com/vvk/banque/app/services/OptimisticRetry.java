@@ -0,0 +1,37 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort	;
+import com.vvk.banque.domain.AggregatesObj.Account		;
+import com.vvk.banque.domain.ValueObj.AccountId			;
+import com.vvk.banque.domain.events.DomainEvent			;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// load -> decide -> conditional append; on a lost race reload and decide again on fresh state.
+// no locks, handlers can run in parallel and a conflict only costs one extra load
+final class OptimisticRetry {
+
+	static final int MAX_ATTEMPTS = 5	;
+
+	private OptimisticRetry() {}
+
+	// returns the events that were committed so the caller can publish them
+	static List<DomainEvent> run(AccountEventStorePort eventStore, AccountId accountId, Consumer<Account> command) {
+		for (int attempt = 1; ; attempt++) {
+			Account account = eventStore.loadAccount(accountId)	;
+			command.accept(account)					;	// domain errors (insufficient funds..) are not retried
+
+			List<DomainEvent> events = List.copyOf(account.getUncommittedEvents());
+			try {
+				eventStore.saveEvents(accountId, account.getCommittedVersion(), events);
+			} catch (ConcurrencyConflictException e) {
+				if (attempt >= MAX_ATTEMPTS) throw e	;
+				continue				;
+			}
+			account.markEventsAsCommitted()			;
+			return events					;
+		}
+	}
+}
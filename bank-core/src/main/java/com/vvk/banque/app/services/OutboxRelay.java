@@ -0,0 +1,149 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.app.ports.out.EventPublisherPort			;
+import com.vvk.banque.app.ports.out.OutboxPort				;
+import com.vvk.banque.app.ports.out.OutboxPort.OutboxEntry		;
+import com.vvk.banque.domain.ValueObj.AccountId				;
+import com.vvk.banque.domain.events.DomainEvent				;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// moves events from a store's outbox to the real publisher, off the command path.
+// - drains in batches: publish every entry, wait for the subscriber to acknowledge it (publishAcknowledged: settlement
+//   acks once the credit is committed), then clear the markers of what was acknowledged in one call
+// - at least once: a marker goes only after its ack, so a crash, a failed or a late ack publishes it again later,
+//   subscribers dedupe (settlement does)
+// - per account in stream order: a failed publish stops that account for this round, its later events wait for the
+//   retry instead of overtaking it; other accounts in the batch carry on. markers are cleared as a prefix of each
+//   stream, the first unacknowledged event keeps everything after it marked
+// handlers in outbox mode get the relay as their EventPublisherPort - publish() only wakes it, the store already has the event
+public final class OutboxRelay implements EventPublisherPort, AutoCloseable {
+
+	public static final int DEFAULT_BATCH_SIZE		= 500			;
+	public static final Duration DEFAULT_POLL_INTERVAL	= Duration.ofMillis(200);
+	private static final long RETRY_BACKOFF_MILLIS		= 500			;
+	private static final long ACK_TIMEOUT_MILLIS		= 30_000		;	// unacknowledged by then: left marked, sent again
+	private static final System.Logger LOG = System.getLogger(OutboxRelay.class.getName());
+
+	private final OutboxPort		outbox		;
+	private final EventPublisherPort	publisher	;
+	private final int			batchSize	;
+	private final long			pollNanos	;
+	private final AtomicLong		published	= new AtomicLong();
+	private final AtomicLong		failures	= new AtomicLong();
+	private final Thread			thread		;
+	private volatile boolean		running		= true	;
+
+	public OutboxRelay(OutboxPort outbox, EventPublisherPort publisher) {
+		this(outbox, publisher, DEFAULT_BATCH_SIZE, DEFAULT_POLL_INTERVAL);
+	}
+
+	public OutboxRelay(OutboxPort outbox, EventPublisherPort publisher, int batchSize, Duration pollInterval) {
+		if (batchSize < 1) throw new IllegalArgumentException("batch size must be at least 1, got " + batchSize);
+		this.outbox	= outbox		;
+		this.publisher	= publisher		;
+		this.batchSize	= batchSize		;
+		this.pollNanos	= pollInterval.toNanos()	;
+		this.thread	= Thread.ofPlatform().name("outbox-relay").daemon().start(this::run);
+	}
+
+	// called by the handlers right after their append: the event is in the outbox already, just go and look
+	@Override
+	public void publish(DomainEvent event) {
+		LockSupport.unpark(thread);
+	}
+
+	public long published()	{ return published.get();	}
+	public long failures()	{ return failures.get();	}
+
+	// stops after one last drain of what is marked by now
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(thread);
+		try { thread.join(); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+	}
+
+	private void run() {
+		while (true) {
+			boolean stopping = !running;			// read before the drain, so a close() always gets one more
+			int moved;
+			boolean clean;
+			try {
+				List<OutboxEntry> batch = outbox.unpublished(batchSize);
+				moved = batch.size();
+				clean = relay(batch);
+			} catch (RuntimeException e) {			// store down: same as a failed publish, wait and look again
+				failures.incrementAndGet();
+				LOG.log(System.Logger.Level.WARNING, "outbox relay: drain failed, retrying", e);
+				moved = 0;
+				clean = false;
+			}
+			if (stopping && (moved == 0 || !clean)) return;
+			if (!clean) LockSupport.parkNanos(RETRY_BACKOFF_MILLIS * 1_000_000);
+			else if (moved < batchSize && !stopping) LockSupport.parkNanos(pollNanos);	// caught up, a publish() cuts it short
+		}
+	}
+
+	// false if anything stayed unpublished
+	private boolean relay(List<OutboxEntry> batch) {
+		if (batch.isEmpty()) return true;
+		Map<AccountId, List<OutboxEntry>> byAccount = new LinkedHashMap<>();
+		for (OutboxEntry e : batch) byAccount.computeIfAbsent(e.accountId(), k -> new ArrayList<>()).add(e);
+
+		// 1. hand everything over, so the subscriber works on the whole batch at once
+		Map<OutboxEntry, CompletableFuture<Void>> acks = new LinkedHashMap<>();
+		boolean clean = true;
+		for (List<OutboxEntry> events : byAccount.values()) {
+			events.sort(Comparator.comparingInt(OutboxEntry::streamVersion));
+			for (OutboxEntry e : events) {
+				try {
+					acks.put(e, publisher.publishAcknowledged(e.event()));
+				} catch (RuntimeException ex) {
+					failures.incrementAndGet();
+					LOG.log(System.Logger.Level.WARNING, "outbox relay: publishing " + e.accountId() + " v"
+							+ e.streamVersion() + " failed, retrying", ex);
+					clean = false;
+					break;				// the rest of this account waits behind it
+				}
+			}
+		}
+		// 2. wait for the acks, a failed one surfaces below per entry
+		try {
+			CompletableFuture.allOf(acks.values().toArray(CompletableFuture[]::new)).get(ACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			// handled per entry
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// 3. clear each account's acknowledged prefix
+		List<OutboxEntry> done = new ArrayList<>(acks.size());
+		for (List<OutboxEntry> events : byAccount.values()) {
+			for (OutboxEntry e : events) {
+				CompletableFuture<Void> ack = acks.get(e);
+				if (ack == null) break;				// never handed over
+				if (!ack.isDone() || ack.isCompletedExceptionally()) {
+					failures.incrementAndGet();
+					LOG.log(System.Logger.Level.WARNING, "outbox relay: " + e.accountId() + " v" + e.streamVersion()
+							+ (ack.isDone() ? " was not acknowledged" : " not acknowledged in time") + ", keeping it marked");
+					clean = false;
+					break;
+				}
+				done.add(e);
+			}
+		}
+		if (!done.isEmpty()) {
+			outbox.markPublished(done);
+			published.addAndGet(done.size());
+		}
+		return clean;
+	}
+}
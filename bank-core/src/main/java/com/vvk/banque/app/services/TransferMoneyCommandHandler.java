@@ -3,11 +3,12 @@ package com.vvk.banque.app.services;
 import com.vvk.banque.app.ports.in.TransferMoneyCommand;
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.EventPublisherPort;
-import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
 import com.vvk.banque.domain.events.DomainEvent; // Added for iterating uncommitted events
 
+import java.util.List;
+
 // Removed imports for MoneyTransferSend/Receive
 
 public class TransferMoneyCommandHandler implements TransferMoneyCommand {
@@ -26,23 +27,19 @@ public class TransferMoneyCommandHandler implements TransferMoneyCommand {
                                  AccountId toAccountId,
                                  Money     amount) {
                                  
-        /*--- 1. HYDRATE AGGREGATE (ONLY THE SENDER) ---*/
-        Account fromAccount = eventStore.loadAccount(fromAccountId);
-        
-        /*--- 2. MUTATE (DOMIAN LOGIC) ---*/
+        /*--- 1. HYDRATE AGGREGATE (ONLY THE SENDER), 2. MUTATE, 3. PERSIST ---*/
         // The domain logic is contained within the aggregate's 'send' method,
         // which validates the transfer and records a single MoneyTransferInitiated event.
-        fromAccount.send(toAccountId, amount); 
+        // The append is conditional on the sender's version; a lost race reloads and re-validates the balance.
+        List<DomainEvent> committed = OptimisticRetry.run(eventStore, fromAccountId,
+                fromAccount -> fromAccount.send(toAccountId, amount));
 
-        /*--- 3. PERSIST & PUBLISH UNCOMMITTED EVENTS (MoneyTransferInitiated) ---*/
-        // We save the single event generated by the Aggregate (MoneyTransferInitiated)
-        for (DomainEvent event : fromAccount.getUncommittedEvents()) {
-            eventStore.saveEvent(event);
+        /*--- 4. PUBLISH (MoneyTransferInitiated) ---*/
+        for (DomainEvent event : committed) {
             eventPublisher.publish(event);
         }
-        fromAccount.markEventsAsCommitted(); 
         
-        // The receiving account update must happen asynchronously by an event listener 
-        // that consumes the published MoneyTransferInitiated event.
+        // The receiving account is credited asynchronously: TransferSettlementProcessor consumes the
+        // published MoneyTransferInitiated event and appends MoneyTransferReceive to the receiver.
     }
 }
@@ -0,0 +1,358 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort	;
+import com.vvk.banque.app.ports.out.EventPublisherPort		;
+import com.vvk.banque.domain.AggregatesObj.Account			;
+import com.vvk.banque.domain.ValueObj.AccountId			;
+import com.vvk.banque.domain.ValueObj.TransactionId		;
+import com.vvk.banque.domain.events.DomainEvent			;
+import com.vvk.banque.domain.events.MoneyTransferInitiated		;
+import com.vvk.banque.domain.events.MoneyTransferReceive		;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// the listener TransferMoneyCommandHandler's comment asks for: credits the receiver of every MoneyTransferInitiated.
+// - partitioned by receiving account, one worker owns a receiver so its appends never race each other
+// - idempotent on transferId: a receiver's settled ids are seeded from its own stream, a redelivered transfer is skipped
+// - the sender's request only appends MoneyTransferInitiated and publishes, the credit happens here, through the
+//   receiver's own Account.receive so its currency and opened checks apply like any other command
+// - a credit the receiver refuses (unknown, wrong currency...) is refunded: the sender was debited when the transfer
+//   was committed, so the amount goes back through the sender's own Account.receive, once per transferId, and the
+//   transfer is dead-lettered for a look. a refused transfer redelivered after its refund only counts as a duplicate
+// - a store failure is retried with back-off, then dead-lettered. dead letters are listed in deadLetters() and
+//   re-driven by retryDeadLetters()
+// - the queues are memory only: recover() re-publishes every MoneyTransferInitiated in the given streams, the
+//   idempotency check skips the settled ones, so a start-up scan re-drives what a crash left unsettled
+public final class TransferSettlementProcessor implements EventPublisherPort, AutoCloseable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY	= 10_000	;
+	private static final int RECEIVERS_PER_WORKER	= 10_000	;	// cached settlement state, evicted ones are re-read from the store
+	private static final long POLL_MILLIS		= 100		;
+	public static final int DEFAULT_MAX_ATTEMPTS	= 5		;
+	public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(100);	// doubled after every failed attempt
+	private static final int MAX_DEAD_LETTERS	= 1_000		;	// most recent kept, recover() finds the rest on restart
+	private static final System.Logger LOG = System.getLogger(TransferSettlementProcessor.class.getName());
+
+	// told about every credit that got committed, refunds to a sender included, with the stream version it landed at
+	@FunctionalInterface
+	public interface SettlementListener {
+		void settled(int streamVersion, MoneyTransferReceive event);
+	}
+
+	// a transfer that was given up on: refused by the receiver (and refunded), or the store kept failing
+	public record DeadLetter(MoneyTransferInitiated transfer, String reason, Instant at) {}
+
+	private record Pending(MoneyTransferInitiated transfer, long publishedNanos, CompletableFuture<Void> ack) {}
+
+	// the receiving account refused the credit (unknown, wrong currency...), retrying won't change that
+	private static final class Refused extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		Refused(String message) { super(message, null, false, false); }
+	}
+
+	// what a worker knows about one receiving account: the committed aggregate and the transfers already credited
+	private static final class Receiver {
+		Account account;
+		final Set<TransactionId> settled = new HashSet<>();
+
+		Receiver(Account account, List<DomainEvent> history) {
+			this.account = account;
+			remember(history);
+		}
+
+		// events written by someone else since, folded onto the committed state
+		void absorb(List<DomainEvent> tail) {
+			account = Account.fromSnapshot(account.snapshot(), tail);
+			remember(tail);
+		}
+
+		void remember(List<DomainEvent> events) {
+			for (DomainEvent e : events) {
+				if (e instanceof MoneyTransferReceive r && r.transferId() != null) settled.add(r.transferId());
+			}
+		}
+	}
+
+	private final AccountEventStorePort	eventStore	;
+	private final SettlementListener	listener	;
+	private final List<Worker>		workers		;
+	private final int			maxAttempts	;
+	private final long			retryBackoffMillis;
+	private final ArrayDeque<DeadLetter>	deadLetters	= new ArrayDeque<>();	// guarded by itself
+	private final AtomicLong settledCount	= new AtomicLong();
+	private final AtomicLong duplicateCount	= new AtomicLong();
+	private final AtomicLong failedCount	= new AtomicLong();
+	private final AtomicLong lastLagNanos	= new AtomicLong();
+	private final AtomicLong maxLagNanos	= new AtomicLong();
+	private volatile boolean running	= true;
+
+	public TransferSettlementProcessor(AccountEventStorePort eventStore, int workerCount, SettlementListener listener) {
+		this(eventStore, workerCount, DEFAULT_QUEUE_CAPACITY, listener);
+	}
+
+	public TransferSettlementProcessor(AccountEventStorePort eventStore, int workerCount, int queueCapacity, SettlementListener listener) {
+		this(eventStore, workerCount, queueCapacity, listener, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF);
+	}
+
+	// tests shorten the back-off
+	TransferSettlementProcessor(AccountEventStorePort eventStore, int workerCount, int queueCapacity, SettlementListener listener,
+			int maxAttempts, Duration retryBackoff) {
+		if (workerCount < 1) throw new IllegalArgumentException("need at least one settlement worker, got " + workerCount);
+		if (maxAttempts < 1) throw new IllegalArgumentException("need at least one attempt, got " + maxAttempts);
+		this.eventStore	= eventStore	;
+		this.listener	= listener	;
+		this.maxAttempts	= maxAttempts	;
+		this.retryBackoffMillis	= retryBackoff.toMillis();
+		List<Worker> ws = new ArrayList<>(workerCount);
+		for (int i = 0; i < workerCount; i++) ws.add(new Worker(i, queueCapacity));
+		this.workers	= List.copyOf(ws);
+	}
+
+	// everything else on the bus is ignored, so this can sit next to other publishers
+	@Override
+	public void publish(DomainEvent event) {
+		publishAcknowledged(event);
+	}
+
+	// completes once the credit is committed (or was already). a refused credit is dealt with too, it is refunded and
+	// dead-lettered, redelivering it can't help; a store failure that outlasts the retries fails it, so the sender redelivers
+	@Override
+	public CompletableFuture<Void> publishAcknowledged(DomainEvent event) {
+		if (!(event instanceof MoneyTransferInitiated t)) return CompletableFuture.completedFuture(null);
+		if (!running) throw new IllegalStateException("settlement processor is closed");
+		if (t.transferId() == null) {		// pre-transferId event, can't be made idempotent - settle it by hand
+			deadLetter(t, "no transferId, can't be settled idempotently");
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<Void> ack = new CompletableFuture<>();
+		workers.get(Math.floorMod(t.toId().hashCode(), workers.size())).enqueue(new Pending(t, System.nanoTime(), ack));
+		return ack;
+	}
+
+	// re-publishes every transfer these accounts sent; settled ones are skipped as duplicates. returns how many
+	// were re-published. the caller closes the stream
+	public long recover(Stream<AccountId> senders) {
+		long republished = 0;
+		for (Iterator<AccountId> it = senders.iterator(); it.hasNext(); ) {
+			try (Stream<DomainEvent> events = eventStore.streamEvents(it.next())) {
+				for (Iterator<DomainEvent> e = events.iterator(); e.hasNext(); ) {
+					if (e.next() instanceof MoneyTransferInitiated t && t.transferId() != null) {
+						publish(t);
+						republished++;
+					}
+				}
+			}
+		}
+		return republished;
+	}
+
+	// hands every dead letter back to the workers, e.g. after the store came back; returns how many
+	public int retryDeadLetters() {
+		List<DeadLetter> retry;
+		synchronized (deadLetters) {
+			retry = List.copyOf(deadLetters);
+			deadLetters.clear();
+		}
+		for (DeadLetter d : retry) publish(d.transfer());
+		return retry.size();
+	}
+
+	/*---metrics---*/
+
+	public long settled()		{ return settledCount.get();	}
+	public long duplicates()	{ return duplicateCount.get();	}
+	public long failed()		{ return failedCount.get();	}	// dead-lettered since start, retried ones included
+	public Duration lastLag()	{ return Duration.ofNanos(lastLagNanos.get());	}	// publish -> receiver credit committed
+	public Duration maxLag()	{ return Duration.ofNanos(maxLagNanos.get());	}
+
+	public int backlog() {
+		int n = 0;
+		for (Worker w : workers) n += w.queue.size();
+		return n;
+	}
+
+	// oldest first, the most recent MAX_DEAD_LETTERS of them
+	public List<DeadLetter> deadLetters() {
+		synchronized (deadLetters) {
+			return List.copyOf(deadLetters);
+		}
+	}
+
+	private void deadLetter(MoneyTransferInitiated t, String reason) {
+		failedCount.incrementAndGet();
+		synchronized (deadLetters) {
+			if (deadLetters.size() == MAX_DEAD_LETTERS) deadLetters.removeFirst();
+			deadLetters.addLast(new DeadLetter(t, reason, Instant.now()));
+		}
+		LOG.log(System.Logger.Level.ERROR, "transfer settlement: " + t.transferId() + " to " + t.toId() + " not settled: " + reason);
+	}
+
+	// stops accepting transfers, settles what is queued and waits for the workers
+	@Override
+	public void close() {
+		running = false;
+		for (Worker w : workers) {
+			try { w.thread.join(); }
+			catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+		}
+	}
+
+	private final class Worker {
+		private final BlockingQueue<Pending> queue;
+		private final Thread thread;
+		// access-ordered, only touched by this worker's thread
+		private final Map<AccountId, Receiver> receivers = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<AccountId, Receiver> eldest) {
+				return size() > RECEIVERS_PER_WORKER;
+			}
+		};
+
+		Worker(int index, int capacity) {
+			this.queue	= new ArrayBlockingQueue<>(capacity);
+			this.thread	= Thread.ofPlatform().name("transfer-settlement-" + index).daemon().start(this::run);
+		}
+
+		// blocks when the partition is full, a stalled receiver slows senders instead of losing credits
+		void enqueue(Pending p) {
+			try { queue.put(p); }
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("interrupted while queueing transfer for settlement", e);
+			}
+		}
+
+		private void run() {
+			while (running || !queue.isEmpty()) {
+				Pending p;
+				try { p = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS); }
+				catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+				if (p != null) settleOrDeadLetter(p);
+			}
+		}
+
+		// the partition waits while one transfer backs off, the next credit to that receiver would hit the same store
+		private void settleOrDeadLetter(Pending p) {
+			MoneyTransferInitiated t = p.transfer();
+			for (int attempt = 1; ; attempt++) {
+				try {
+					try {
+						settle(p);
+					} catch (Refused refused) {
+						refuse(t, refused.getMessage());
+					}
+					p.ack().complete(null);
+					return;
+				} catch (RuntimeException e) {
+					receivers.remove(t.toId());		// state may be stale, re-read on the next attempt
+					if (attempt >= maxAttempts) {
+						deadLetter(t, "gave up after " + attempt + " attempts: " + e);
+						p.ack().completeExceptionally(e);
+						return;
+					}
+					LOG.log(System.Logger.Level.WARNING, "transfer settlement: " + t.transferId() + " failed (attempt "
+							+ attempt + " of " + maxAttempts + "), retrying: " + e);
+					try { Thread.sleep(retryBackoffMillis << (attempt - 1)); }
+					catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						deadLetter(t, "interrupted while retrying: " + e);
+						p.ack().completeExceptionally(e);
+						return;
+					}
+				}
+			}
+		}
+
+		/*---1. seed, 2. dedupe, 3. receive on the aggregate, 4. conditional append, on conflict absorb the tail and go again---*/
+		private void settle(Pending p) {
+			MoneyTransferInitiated t = p.transfer();
+			Receiver r = receivers.get(t.toId());
+			if (r == null) {
+				// the cloud stores throw on loading an unknown stream, asking for its version first keeps that off the retries
+				if (eventStore.currentVersion(t.toId()) == 0) throw new Refused("receiving account " + t.toId() + " has no events");
+				List<DomainEvent> history = eventStore.loadEvents(t.toId());
+				r = new Receiver(Account.fromHistry(t.toId(), history), history);
+				receivers.put(t.toId(), r);
+			}
+			Account credited;
+			while (true) {
+				if (r.settled.contains(t.transferId())) {
+					duplicateCount.incrementAndGet();
+					return;
+				}
+				credited = Account.fromSnapshot(r.account.snapshot(), List.of());
+				try {
+					credited.receive(t.fromId(), t.amount(), t.transferId());
+				} catch (RuntimeException e) {
+					throw new Refused(e.getMessage());
+				}
+				try {
+					eventStore.saveEvents(t.toId(), credited.getCommittedVersion(), credited.getUncommittedEvents());
+				} catch (ConcurrencyConflictException e) {
+					// someone else wrote to the receiver (a deposit, or another node settling): catch up and re-check
+					r.absorb(eventStore.loadEvents(t.toId(), r.account.getVersion()));
+					continue;
+				}
+				break;
+			}
+			MoneyTransferReceive credit = (MoneyTransferReceive) credited.getUncommittedEvents().get(0);
+			credited.markEventsAsCommitted();
+			r.account = credited;
+			r.settled.add(t.transferId());
+			long lag = System.nanoTime() - p.publishedNanos();
+			lastLagNanos.set(lag);
+			maxLagNanos.accumulateAndGet(lag, Math::max);
+			settledCount.incrementAndGet();
+			notifyListener(credited.getVersion(), credit);
+		}
+
+		// the receiver refused: refund the sender, then dead-letter. a sender that refuses the refund too leaves it
+		// to the dead letter; a store failure on the way goes back to the retries, the refund is idempotent
+		private void refuse(MoneyTransferInitiated t, String reason) {
+			try {
+				if (refund(t)) deadLetter(t, reason + ", refunded to " + t.fromId());
+				else duplicateCount.incrementAndGet();
+			} catch (Refused e) {
+				deadLetter(t, reason + ", not refunded: " + e.getMessage());
+			}
+		}
+
+		// credits the sender back with the transfer's own id; false when its stream already holds that refund
+		private boolean refund(MoneyTransferInitiated t) {
+			while (true) {
+				List<DomainEvent> history = eventStore.loadEvents(t.fromId());
+				for (DomainEvent e : history) {
+					if (e instanceof MoneyTransferReceive r && t.transferId().equals(r.transferId())) return false;
+				}
+				Account sender = Account.fromHistry(t.fromId(), history);
+				try {
+					sender.receive(t.toId(), t.amount(), t.transferId());
+				} catch (RuntimeException e) {
+					throw new Refused(e.getMessage());
+				}
+				try {
+					eventStore.saveEvents(t.fromId(), sender.getCommittedVersion(), sender.getUncommittedEvents());
+				} catch (ConcurrencyConflictException e) {
+					continue;						// the sender moved on meanwhile, re-read and re-check
+				}
+				notifyListener(sender.getVersion(), (MoneyTransferReceive) sender.getUncommittedEvents().get(0));
+				return true;
+			}
+		}
+
+		private void notifyListener(int streamVersion, MoneyTransferReceive credit) {
+			try { listener.settled(streamVersion, credit); }
+			catch (RuntimeException e) {		// the credit is committed, a listener can't undo or repeat it
+				LOG.log(System.Logger.Level.WARNING, "transfer settlement: listener failed for " + credit.transferId() + ": " + e);
+			}
+		}
+	}
+}
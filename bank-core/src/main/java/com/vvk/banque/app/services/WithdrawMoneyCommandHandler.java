@@ -4,10 +4,11 @@ import com.vvk.banque.app.ports.in.WithdrawMoneyCommand;
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.EventPublisherPort;
 
-import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
-import com.vvk.banque.domain.events.MoneyWithdrawn;
+import com.vvk.banque.domain.events.DomainEvent;
+
+import java.util.List;
 
 public class WithdrawMoneyCommandHandler implements WithdrawMoneyCommand {
 
@@ -25,23 +26,13 @@ public class WithdrawMoneyCommandHandler implements WithdrawMoneyCommand {
                @Override
 		public void executeWithdrawMoney(AccountId accountId, Money amount) {
 		
-		/*---1.hydrate aggregate----*/
-
-		Account account	=	eventStore.loadAccount (accountId)	;
-
-		/*---2.mutate--------------*/
-		
-		account.withdraw(amount)	;
-		
-
-		/*---3.persist new evennt---*/
+		/*---1.hydrate, 2.mutate, 3.persist - retried on a version conflict---*/
 
-		MoneyWithdrawn event = new MoneyWithdrawn(accountId, amount)	;
-		eventStore.saveEvent(event)	;
+		List<DomainEvent> committed = OptimisticRetry.run(eventStore, accountId, account -> account.withdraw(amount));
 
 		/*----4.publish to outside wrld---*/
 
-		eventPublisher.publish(event)		;
+		committed.forEach(eventPublisher::publish)	;
 	}
 }
 
@@ -2,25 +2,59 @@ package com.vvk.banque.app.services.dto;
 
 import java.time.Instant;
 import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.events.*;
 
 public final class AuditLogEntry {
 
     private final AccountId accountId;
+    private final int sequence;
     private final String action;
     private final Instant occurredAt;
     private final String metadata;
 
     public AuditLogEntry(AccountId accountId, String action, Instant occurredAt, String metadata) {
+        this(accountId, 0, action, occurredAt, metadata);
+    }
+
+    // sequence: the event's version in its account stream, 0 where the caller does not know it
+    public AuditLogEntry(AccountId accountId, int sequence, String action, Instant occurredAt, String metadata) {
         this.accountId = accountId;
+        this.sequence = sequence;
         this.action = action;
         this.occurredAt = occurredAt;
         this.metadata = metadata;
     }
 
+    public static AuditLogEntry of(DomainEvent event, Instant occurredAt) {
+        return of(event, 0, occurredAt);
+    }
+
+    // one line of audit per event: action is the event type, metadata the facts worth keeping (never credentials)
+    public static AuditLogEntry of(DomainEvent event, int sequence, Instant occurredAt) {
+        String action = event.getClass().getSimpleName();
+        return switch (event) {
+            case AccountOpened e -> new AuditLogEntry(e.accountId(), sequence, action, occurredAt,
+                    "owner=" + e.ownerId() + " openBal=" + e.openBal());
+            case MoneyDeposited e -> new AuditLogEntry(e.accountId(), sequence, action, occurredAt, "amount=" + e.amount());
+            case MoneyWithdrawn e -> new AuditLogEntry(e.accountId(), sequence, action, occurredAt, "amount=" + e.amount());
+            case MoneyTransferInitiated e -> new AuditLogEntry(e.fromId(), sequence, action, occurredAt,
+                    "to=" + e.toId() + " amount=" + e.amount() + " transfer=" + e.transferId());
+            case MoneyTransferSend e -> new AuditLogEntry(e.fromAccountId(), sequence, action, occurredAt,
+                    "to=" + e.toAccountId() + " amount=" + e.amount());
+            case MoneyTransferReceive e -> new AuditLogEntry(e.toAccountId(), sequence, action, occurredAt,
+                    "from=" + e.fromAccountId() + " amount=" + e.amount() + " transfer=" + e.transferId());
+            case CustomerSignedUp e -> new AuditLogEntry(null, sequence, action, occurredAt, "customer=" + e.customerId());
+        };
+    }
+
     public AccountId getAccountId() {
         return accountId;
     }
 
+    public int getSequence() {
+        return sequence;
+    }
+
     public String getAction() {
         return action;
     }
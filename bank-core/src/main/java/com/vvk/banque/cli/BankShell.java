@@ -4,33 +4,80 @@ import com.vvk.banque.domain.AggregatesObj.Account;
 import com.vvk.banque.domain.AggregatesObj.Customer;
 import com.vvk.banque.domain.ValueObj.*;
 import com.vvk.banque.adapter.persistence.*;
+import com.vvk.banque.adapter.event.AuditLogWriter;
 import com.vvk.banque.domain.events.*;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import com.vvk.banque.app.ports.out.AccountEventStorePort;
 import com.vvk.banque.app.ports.out.AccountQueryPort;
+import com.vvk.banque.app.ports.out.EventPublisherPort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.app.ports.out.OutboxPort;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryPage;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryQuery;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.app.services.AccountCommandExecutor;
+import com.vvk.banque.app.services.CatchUpSubscription;
+import com.vvk.banque.app.services.OutboxRelay;
+import com.vvk.banque.app.services.TransferSettlementProcessor;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import java.util.Currency;
 
 public final class BankShell {
+    private static final System.Logger LOG = System.getLogger(BankShell.class.getName());
     private static final Scanner in = new Scanner(System.in);
+    private static final boolean OUTBOX = envInt("OUTBOX", 0) != 0;
+    private static final GlobalEventLogPort globalLog = chooseGlobalLog();
+    private static final AccountEventStorePort cloudStore = chooseCloudStore();
+    private static final GlobalLogEventStore loggedStore = initLoggedStore();
     private static final AccountEventStorePort eventStore = chooseEventStore();
     private static final AccountQueryPort queryPort = (AccountQueryPort) eventStore;
     private static final PostgresBalanceProjection readModel = initPostgres();
-    private static final Map<String, Customer> customers = new HashMap<>();
+    private static final AsyncProjectionRunner projector = initProjector();
+    private static final CatchUpSubscription projection = initProjection();
+    private static final PostgresTransactionHistory history = initHistory();
+    private static final CatchUpSubscription historyFeed = initHistoryFeed();
+    private static final AuditLogWriter audit = initAudit();
+    private static final TransferSettlementProcessor settlement = initSettlement();
+    private static final EventPublisherPort publisher = initPublisher();
+    private static final AccountCommandExecutor executor = initExecutor();
+    private static final Map<String, Customer> customers = new ConcurrentHashMap<>();
     private static final DatabaseSequence seq = new AtomicSequence();
     private static final String SETTLEMENT_PASSWORD = System.getenv().getOrDefault("VVK_SETTLE_PASSWORD", "default_password_if_not_set");
 
     public static void main(String[] args) { interactive(); }
 
+    // interactive path, prints what execute returns
     public void handle(String line) {
+        CommandResult result = execute(line);
+        if (result.status() == CommandResult.Status.EXIT) System.exit(0);
+        System.out.print(result.output());
+    }
+
+    // no shared output stream, every call builds its own result - safe to call from many threads at once
+    public CommandResult execute(String line) {
         String[] cmd = line.trim().split("\\s+");
-        if (cmd.length == 0) return;
+        if (cmd.length == 0) return CommandResult.ok("");
+        StringWriter buf = new StringWriter();
+        PrintWriter out = new PrintWriter(buf);
         try {
             switch (cmd[0]) {
-                case "help" -> System.out.println(
+                case "help" -> out.print(
                     """
                     signup   <3LETTERS> <email> <pwd>          - create customer (e.g.: signup VVK ixnine@amzn.to)
                     open     <5DIGITS> <3LETTERS> <amount> [CUR] - create account (e.g.: open 12345 VVK 100 USD or open 12345 VVK 100 [defaults to USD])
@@ -38,31 +85,33 @@ public final class BankShell {
                     withdraw <5DIGITS> <amount> [CUR]            - take money (e.g.: withdraw 12345 30 USD)
                     transfer <5DIGITS> <5DIGITS> <amount> [CUR]  - move money (e.g.: transfer 12345 54321 20 USD)
                     balance  <5DIGITS>                          - get account balance
+                    history  <5DIGITS> [cursor=N] [from=DATE] [to=DATE] [size=N] [oldest]
+                                                                - one page of transactions, newest first (dates YYYY-MM-DD, UTC, to inclusive)
                     vvk_list                                    - list all accounts
-                    vvk_settle <password>                       - settle pending transfers (only preeya can run, may ask pw from her :-0)
+                    vvk_settle <password> [retry]               - transfer settlement status, retry re-drives the dead letters (only preeya can run, may ask pw from her :-0)
                     exit                                        - quit
                     """
                 );
                 case "signup" -> {
                     if (!cmd[1].matches("[A-Z]{3}")) {
-                        System.out.println("Error: Customer ID must be 3 uppercase letters");
-                        return;
+                        return CommandResult.error("Error: Customer ID must be 3 uppercase letters");
                     }
                     CustomerId custId = CustomerId.generate(cmd[1]);
                     Customer c = Customer.signUp(custId, cmd[1], cmd[2], cmd[3]);
                     customers.put(cmd[1], c);
-                    System.out.println("Customer created: " + custId);
+                    out.println("Customer created: " + custId);
                 }
                 case "open" -> {
                     if (!cmd[1].matches("[1-9]\\d{4}")) {
-                        System.out.println("Error: Account ID must be 5 digits, first digit 1-9");
-                        return;
+                        return CommandResult.error("Error: Account ID must be 5 digits, first digit 1-9");
                     }
                     int accNumber = Integer.parseInt(cmd[1]);
+                    if (eventStore.findAccountIdByNumber(accNumber).isPresent()) {
+                        return CommandResult.error("Error: Account " + cmd[1] + " already exists");
+                    }
                     AccountId accId = new AccountId(accNumber, UUID.randomUUID());
                     if (!customers.containsKey(cmd[2])) {
-                        System.out.println("Error: Customer " + cmd[2] + " not found");
-                        return;
+                        return CommandResult.error("Error: Customer " + cmd[2] + " not found");
                     }
                     CustomerId custId = customers.get(cmd[2]).getCustomerId();
 
@@ -72,50 +121,47 @@ public final class BankShell {
                          try {
                              currency = Currency.getInstance(cmd[4].toUpperCase());
                          } catch (IllegalArgumentException e) {
-                              System.out.println("Error: Invalid currency code '" + cmd[4] + "'. Using default USD.");
+                              out.println("Error: Invalid currency code '" + cmd[4] + "'. Using default USD.");
                          }
                     }
                     Money openingBalance = Money.of(amountValue, currency);
                     Account a = Account.open(accId, custId, openingBalance);
-                    saveAndProject(a);
-                    System.out.println("Account " + a.getID() + " opened with " + openingBalance);
+                    save(a);
+                    out.println("Account " + a.getID() + " opened with " + openingBalance);
                 }
                 case "deposit" -> {
-                    Account a = loadAccount(cmd[1]);
+                    AccountId id = resolveAccountId(cmd[1]);
                     BigDecimal amountValue = new BigDecimal(cmd[2]);
                     Currency currency = Currency.getInstance("USD");
                     if (cmd.length >= 4) {
                          try {
                              currency = Currency.getInstance(cmd[3].toUpperCase());
                          } catch (IllegalArgumentException e) {
-                              System.out.println("Error: Invalid currency code '" + cmd[3] + "'. Using default USD.");
+                              out.println("Error: Invalid currency code '" + cmd[3] + "'. Using default USD.");
                          }
                     }
                     Money amount = Money.of(amountValue, currency);
-                    a.deposit(amount);
-                    saveAndProject(a);
-                    System.out.println("Deposited " + amount + " to account " + a.getID());
+                    await(executor.deposit(id, amount));   // serialized per account on its shard
+                    out.println("Deposited " + amount + " to account " + id);
                 }
                 case "withdraw" -> {
-                    Account a = loadAccount(cmd[1]);
+                    AccountId id = resolveAccountId(cmd[1]);
                     BigDecimal amountValue = new BigDecimal(cmd[2]);
                     Currency currency = Currency.getInstance("USD");
                     if (cmd.length >= 4) {
                          try {
                              currency = Currency.getInstance(cmd[3].toUpperCase());
                          } catch (IllegalArgumentException e) {
-                              System.out.println("Error: Invalid currency code '" + cmd[3] + "'. Using default USD.");
+                              out.println("Error: Invalid currency code '" + cmd[3] + "'. Using default USD.");
                          }
                     }
                     Money amount = Money.of(amountValue, currency);
-                    a.withdraw(amount);
-                    saveAndProject(a);
-                    System.out.println("Withdrew " + amount + " from account " + a.getID());
+                    await(executor.withdraw(id, amount));
+                    out.println("Withdrew " + amount + " from account " + id);
                 }
                 case "transfer" -> {
-                    Account from = loadAccount(cmd[1]);
-                    Account toAccount = loadAccount(cmd[2]);
-                    AccountId toId = toAccount.getID();
+                    AccountId fromId = resolveAccountId(cmd[1]);
+                    AccountId toId = resolveAccountId(cmd[2]);   // index lookup, the receiver is not replayed here
 
                     BigDecimal amountValue = new BigDecimal(cmd[3]);
                     Currency currency = Currency.getInstance("USD");
@@ -123,46 +169,94 @@ public final class BankShell {
                          try {
                              currency = Currency.getInstance(cmd[4].toUpperCase());
                          } catch (IllegalArgumentException e) {
-                              System.out.println("Error: Invalid currency code '" + cmd[4] + "'. Using default USD.");
+                              out.println("Error: Invalid currency code '" + cmd[4] + "'. Using default USD.");
                          }
                     }
                     Money amount = Money.of(amountValue, currency);
+                    // settlement refunds a credit the receiver refuses, but a currency it can't hold is known before
+                    // the sender is debited: only the first event of its stream is read for it
+                    Currency held = currencyOf(toId);
+                    if (!held.equals(currency)) {
+                        return CommandResult.error("Error: account " + cmd[2] + " holds " + held + ", it can't receive " + currency);
+                    }
 
-                    // Initiate transfer (deduct from sender)
-                    from.send(toId, amount);
-                    saveAndProject(from);
-
-                    // Immediately process receive (add to receiver)
-                    MoneyTransferReceive receiveEvent = new MoneyTransferReceive(toId, from.getID(), amount);
-                    eventStore.saveEvent(receiveEvent);
-                    readModel.project(receiveEvent);
+                    // Initiate transfer (deduct from sender) - the only append on this path,
+                    // the executor publishes MoneyTransferInitiated to settlement which credits the receiver
+                    await(executor.transfer(fromId, toId, amount));
 
-                    System.out.println("Transfer of " + amount + " completed from " + from.getID() + " to " + toId);
+                    out.println("Transfer of " + amount + " sent from " + fromId + " to " + toId + ", receiver credit is settling");
                 }
                 case "balance" -> {
-                    Account account = loadAccount(cmd[1]);
-                    Money bal = readModel.findBalanceByAccountId(account.getID());
-                    System.out.println(bal);
+                    Money bal = readModel.findBalanceByAccountId(resolveAccountId(cmd[1]));
+                    out.println(bal);
                 }
-                case "vvk_list" -> System.out.println(readModel.listMasked());
+                case "history" -> {
+                    AccountId id = resolveAccountId(cmd[1]);
+                    HistoryPage page = history.findHistory(id, historyQuery(cmd));
+                    if (page.entries().isEmpty()) out.println("no transactions");
+                    for (AuditLogEntry e : page.entries()) {
+                        out.println("#" + e.getSequence() + "  " + e.getOccurredAt() + "  " + e.getAction() + "  " + e.getMetadata());
+                    }
+                    if (page.hasMore()) out.println("more: history " + cmd[1] + " cursor=" + page.nextCursor());
+                }
+                case "vvk_list" -> out.println(readModel.listMasked());
                 case "vvk_settle" -> {
                      if (cmd.length < 2) {
-                         System.out.println("Error: vvk_settle requires a password.");
-                         return;
+                         return CommandResult.error("Error: vvk_settle requires a password.");
                      }
                      String providedPassword = cmd[1];
                      if (!SETTLEMENT_PASSWORD.equals(providedPassword)) {
-                         System.out.println("Error: Invalid settlement password.");
-                         return;
+                         return CommandResult.error("Error: Invalid settlement password.");
+                     }
+                     if (cmd.length > 2 && cmd[2].equals("retry")) {
+                         out.println("Re-driving " + settlement.retryDeadLetters() + " dead-lettered transfers");
+                     }
+                     out.println("Commands: " + executor.backlog() + " queued, " + executor.publishFailures()
+                             + " committed but not published");
+                     out.println("Settlement: " + settlement.settled() + " settled, " + settlement.duplicates() + " duplicates, "
+                             + settlement.failed() + " failed, " + settlement.backlog() + " queued, lag last "
+                             + settlement.lastLag().toMillis() + " ms / max " + settlement.maxLag().toMillis() + " ms");
+                     for (TransferSettlementProcessor.DeadLetter dl : settlement.deadLetters()) {
+                         out.println("  not settled " + dl.transfer().transferId() + " " + dl.transfer().fromId().getAcc() + " -> "
+                                 + dl.transfer().toId().getAcc() + " " + dl.transfer().amount() + " at " + dl.at() + ": " + dl.reason());
+                     }
+                     out.println("Projection: " + (projection.isLive() ? "live" : "catching up") + " at position "
+                             + projection.position() + " of " + globalLog.head() + ", " + projection.failures() + " failed batches, "
+                             + loggedStore.logFailures() + " appends missing from the log");
+                     out.println("Balances: " + projector.projectedEvents() + " projected, " + projector.failedBatches()
+                             + " failed batches, " + projector.backlog() + " queued, " + projector.deadLettered() + " accounts skipped");
+                     for (AsyncProjectionRunner.DeadLetter dl : projector.deadLetters()) {
+                         out.println("  skipped " + dl.accountId() + " after version " + dl.checkpoint() + " at " + dl.at() + ": " + dl.error());
+                     }
+                     out.println("History: " + (historyFeed.isLive() ? "live" : "catching up") + " at position "
+                             + historyFeed.position() + ", " + historyFeed.failures() + " failed batches");
+                     if (publisher instanceof OutboxRelay relay) {
+                         out.println("Outbox: " + relay.published() + " relayed, " + relay.failures() + " failed publishes");
+                     }
+                     if (globalLog instanceof FileGlobalEventLog file && file.walStats() != null) {
+                         WriteAheadLog.Stats wal = file.walStats();
+                         out.println(String.format("Global log: %d appends in %d fsyncs, batch mean %.1f / max %d, fsync mean %.0f us / max %.0f us",
+                                 wal.appends(), wal.batches(), wal.meanBatchSize(), wal.largestBatch(),
+                                 wal.meanSyncMicros(), wal.maxSyncMicros()));
+                     }
+                     if (cloudStore instanceof FileEventStore file && file.syncStats() != null) {
+                         WriteAheadLog.Stats sync = file.syncStats();
+                         out.println(String.format("Event store: %d appends in %d forces, batch mean %.1f / max %d, force mean %.0f us / max %.0f us",
+                                 sync.appends(), sync.batches(), sync.meanBatchSize(), sync.largestBatch(),
+                                 sync.meanSyncMicros(), sync.maxSyncMicros()));
+                     }
+                     if (audit != null) {
+                         out.println("Audit: " + audit.durable() + " on disk, " + audit.backlog() + " queued, "
+                                 + audit.stalls() + " publishes waited on a full ring");
                      }
-                     System.out.println("Settlement process completed (dummy command - transfers are immediate).");
                 }
-                case "exit" -> System.exit(0);
-                default -> System.out.println("Unknown command: " + cmd[0]);
+                case "exit" -> { return CommandResult.exit(); }
+                default -> { return CommandResult.error("Unknown command: " + cmd[0]); }
             }
         } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
+            return CommandResult.error("Error: " + e.getMessage());
         }
+        return CommandResult.ok(buf.toString());
     }
 
     private static void interactive() {
@@ -174,37 +268,136 @@ public final class BankShell {
         }
     }
 
-    private static Account loadAccount(String accNumberStr) {
+    private static AccountId resolveAccountId(String accNumberStr) {
         try {
             int accNumber = Integer.parseInt(accNumberStr);
-            List<DomainEvent> events = eventStore.loadEventsByNumericAcc(accNumber);
-            if (events.isEmpty()) throw new RuntimeException("Account not found: " + accNumberStr);
-            AccountId fullAccountId = events.get(0).accountId();
-            return eventStore.loadAccount(fullAccountId);
+            return eventStore.findAccountIdByNumber(accNumber)
+                    .orElseThrow(() -> new RuntimeException("Account not found: " + accNumberStr));
         } catch (NumberFormatException e) {
              throw new RuntimeException("Invalid account number format: " + accNumberStr);
-        } catch (Exception e) {
-            throw new RuntimeException("Account not found or error loading: " + accNumberStr, e);
         }
     }
 
-    private static void saveAndProject(Account a) {
-        a.getUncommittedEvents().forEach(evt -> {
-            eventStore.saveEvent(evt);
-            readModel.project(evt);
-        });
+    // the currency an account was opened in, from AccountOpened at the head of its stream
+    private static Currency currencyOf(AccountId id) {
+        try (Stream<DomainEvent> events = eventStore.streamEvents(id)) {
+            return events.findFirst()
+                    .filter(e -> e instanceof AccountOpened)
+                    .map(e -> ((AccountOpened) e).openBal().getCur())
+                    .orElseThrow(() -> new RuntimeException("Account not found: " + id));
+        }
+    }
+
+    private static void save(Account a) {
+        // one conditional batch append for all pending events, the read model picks them up from the global log
+        eventStore.saveEvents(a.getID(), a.getCommittedVersion(), List.copyOf(a.getUncommittedEvents()));
         a.markEventsAsCommitted();
     }
 
+    // history <acc> [cursor=N] [from=YYYY-MM-DD] [to=YYYY-MM-DD] [size=N] [oldest]: dates are whole UTC days, to included
+    private static HistoryQuery historyQuery(String[] cmd) {
+        HistoryQuery query = HistoryQuery.newestFirst(TransactionHistoryPort.DEFAULT_PAGE_SIZE);
+        for (int i = 2; i < cmd.length; i++) {
+            String opt = cmd[i];
+            String value = opt.substring(opt.indexOf('=') + 1);
+            if (opt.equals("oldest")) {
+                query = query.withOrder(TransactionHistoryPort.Order.OLDEST_FIRST);
+            } else if (opt.startsWith("cursor=")) {
+                query = query.after(Integer.parseInt(value));
+            } else if (opt.startsWith("size=")) {
+                query = query.withLimit(Integer.parseInt(value));
+            } else if (opt.startsWith("from=")) {
+                query = query.between(LocalDate.parse(value).atStartOfDay().toInstant(ZoneOffset.UTC), query.to());
+            } else if (opt.startsWith("to=")) {
+                query = query.between(query.from(), LocalDate.parse(value).plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+            } else {
+                throw new IllegalArgumentException("unknown history option: " + opt);
+            }
+        }
+        return query;
+    }
+
+    // domain errors come back wrapped in CompletionException, hand the original to the caller
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // every stream version the log lacks goes in before anything appends: the whole store for an in-memory log, the
+    // holes a crash or a failed log append left in a file log. read models tailing the log see them like any append
+    private static GlobalLogEventStore initLoggedStore() {
+        GlobalLogEventStore store = new GlobalLogEventStore(cloudStore, globalLog);
+        store.reconcile();
+        return store;
+    }
+
     private static AccountEventStorePort chooseEventStore() {
+        // Snapshots keep loadAccount at "latest snapshot + tail" instead of a full replay on old accounts,
+        // the cache in front skips even that for accounts touched recently (one tail read per hit).
+        // Innermost, every committed append is teed into the global log the read models subscribe to.
+        return new CachingEventStore(
+                new SnapshottingEventStore(loggedStore,
+                        new InMemorySnapshotStore(), snapshotInterval()),
+                envInt("ACCOUNT_CACHE_SIZE", CachingEventStore.DEFAULT_MAX_ENTRIES));
+    }
+
+    private static int snapshotInterval() {
+        return envInt("SNAPSHOT_INTERVAL", SnapshottingEventStore.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    private static AccountEventStorePort chooseCloudStore() {
         String cloud = System.getenv("CLOUD");
-        if ("aws".equals(cloud)) return new DynamoEventStore(DynamoDbClient.create(), "bank-events");
+        // write format for new events, both stores keep reading json and binary payloads either way
+        EventCodec codec = EventCodec.forName(System.getenv().getOrDefault("EVENT_CODEC", "json"));
+        int pageSize = envInt("EVENT_PAGE_SIZE", CosmosEventStore.DEFAULT_PAGE_SIZE);
+        if ("file".equals(cloud)) return initFileStore();
+        if ("aws".equals(cloud)) {
+            DynamoEventStore dynamo = new DynamoEventStore(DynamoDbClient.create(), "bank-events", codec, pageSize, OUTBOX);
+            dynamo.migrateLegacyEvents();       // once per table, before the first command rather than inside it
+            return dynamo;
+        }
         String cosmosUri = System.getenv("COSMOS_URI");
         String cosmosKey = System.getenv("COSMOS_KEY");
         if (cosmosUri == null || cosmosKey == null) {
             throw new IllegalStateException("COSMOS_URI and COSMOS_KEY environment variables must be set to connect to Azure Cosmos DB event store.");
         }
-        return new CosmosEventStore(cosmosUri, cosmosKey, "bankdb", "bank-events");
+        CosmosEventStore cosmos = new CosmosEventStore(cosmosUri, cosmosKey, "bankdb", "bank-events", codec, pageSize, OUTBOX);
+        cosmos.migrateLegacyEvents();
+        return cosmos;
+    }
+
+    // CLOUD=file: local mmap'd segments, binary payloads only. EVENT_STORE_FSYNC=1 returns from an append only once it
+    // is on disk (group committed, one force for every append queued meanwhile), otherwise appends are as durable as
+    // the page cache until the segment rolls
+    private static FileEventStore initFileStore() {
+        String dir = System.getenv().getOrDefault("EVENT_STORE_DIR", "data/events");
+        try {
+            return new FileEventStore(Path.of(dir),
+                    envInt("EVENT_SEGMENT_MB", FileEventStore.DEFAULT_SEGMENT_BYTES >> 20) * 1024 * 1024,
+                    envInt("EVENT_STORE_FSYNC", 0) != 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open event store in " + dir, e);
+        }
+    }
+
+    private static GlobalEventLogPort chooseGlobalLog() {
+        // in memory by default: the log starts empty on every start, the reconcile in initLoggedStore refills it from
+        // the streams before the first command
+        String path = System.getenv("GLOBAL_LOG_PATH");
+        if (path == null) return new InMemoryGlobalEventLog();
+        // with fsync on, appends are group committed: one fsync per batch of up to GLOBAL_LOG_MAX_BATCH appends, the
+        // flusher waits up to GLOBAL_LOG_MAX_WAIT_US for a batch to fill (0: take whatever queued during the last fsync)
+        try {
+            return new FileGlobalEventLog(Path.of(path), envInt("GLOBAL_LOG_FSYNC", 1) != 0,
+                    envInt("GLOBAL_LOG_MAX_BATCH", WriteAheadLog.DEFAULT_MAX_BATCH),
+                    Duration.ofNanos(envInt("GLOBAL_LOG_MAX_WAIT_US", (int) WriteAheadLog.DEFAULT_MAX_WAIT.toNanos() / 1_000) * 1_000L));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open global log " + path, e);
+        }
     }
 
     private static PostgresBalanceProjection initPostgres() {
@@ -213,10 +406,140 @@ public final class BankShell {
         String pass = System.getenv("POSTGRES_PASS");
         if (url == null || user == null || pass == null)
             throw new IllegalStateException("Postgres env vars missing. Set POSTGRES_URL, POSTGRES_USER, and POSTGRES_PASS.");
-        try { return new PostgresBalanceProjection(url, user, pass, eventStore); }
+        int poolSize = envInt("POSTGRES_POOL_SIZE", PostgresBalanceProjection.DEFAULT_POOL_SIZE);
+        Duration timeout = Duration.ofMillis(envInt("POSTGRES_POOL_TIMEOUT_MS",
+                (int) PostgresBalanceProjection.DEFAULT_POOL_TIMEOUT.toMillis()));
+        try { return new PostgresBalanceProjection(url, user, pass, eventStore, poolSize, timeout); }
         catch (Exception e) { throw new RuntimeException(e); }
     }
 
+    private static AsyncProjectionRunner initProjector() {
+        AsyncProjectionRunner runner = new AsyncProjectionRunner(readModel, eventStore,
+                envInt("PROJECTION_QUEUE_CAPACITY", AsyncProjectionRunner.DEFAULT_QUEUE_CAPACITY),
+                Duration.ofMillis(envInt("PROJECTION_BATCH_WINDOW_MS", (int) AsyncProjectionRunner.DEFAULT_BATCH_WINDOW.toMillis())),
+                envInt("PROJECTION_MAX_BATCH", AsyncProjectionRunner.DEFAULT_MAX_BATCH));
+        return runner;
+    }
+
+    // the whole log from the start: the runner skips whatever its per-account checkpoints already cover
+    private static CatchUpSubscription initProjection() {
+        return new CatchUpSubscription("balance-projection", globalLog, 0,
+                envInt("PROJECTION_CATCH_UP_BATCH", CatchUpSubscription.DEFAULT_BATCH_SIZE),
+                batch -> batch.forEach(p -> projector.submit(p.streamVersion(), p.event())));
+    }
+
+    // same database as the balances, own table and pool
+    private static PostgresTransactionHistory initHistory() {
+        try {
+            return new PostgresTransactionHistory(System.getenv("POSTGRES_URL"), System.getenv("POSTGRES_USER"),
+                    System.getenv("POSTGRES_PASS"), envInt("POSTGRES_POOL_SIZE", PostgresTransactionHistory.DEFAULT_POOL_SIZE),
+                    Duration.ofMillis(envInt("POSTGRES_POOL_TIMEOUT_MS", (int) PostgresTransactionHistory.DEFAULT_POOL_TIMEOUT.toMillis())));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // from the start of the log like the balances, rows already there are skipped on insert
+    private static CatchUpSubscription initHistoryFeed() {
+        return new CatchUpSubscription("transaction-history", globalLog, 0,
+                envInt("PROJECTION_CATCH_UP_BATCH", CatchUpSubscription.DEFAULT_BATCH_SIZE), history::apply);
+    }
+
+    // AUDIT_LOG_DIR turns the audit trail on: rotating files, fsynced in groups every AUDIT_FLUSH_MS
+    private static AuditLogWriter initAudit() {
+        String dir = System.getenv("AUDIT_LOG_DIR");
+        if (dir == null) return null;
+        try {
+            return new AuditLogWriter(Path.of(dir),
+                    envInt("AUDIT_RING_CAPACITY", AuditLogWriter.DEFAULT_CAPACITY),
+                    Duration.ofMillis(envInt("AUDIT_FLUSH_MS", (int) AuditLogWriter.DEFAULT_FLUSH_INTERVAL.toMillis())),
+                    envInt("AUDIT_MAX_FILE_MB", (int) (AuditLogWriter.DEFAULT_MAX_FILE_BYTES >> 20)) * 1024L * 1024L);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open audit log in " + dir, e);
+        }
+    }
+
+    private static TransferSettlementProcessor initSettlement() {
+        // credits reach the read model through the global log like every other append. the audit trail gets them
+        // here, unless the outbox relay already publishes them from the store
+        TransferSettlementProcessor.SettlementListener listener = audit != null && !OUTBOX
+                ? (version, credit) -> audit.publish(credit)
+                : (version, credit) -> {};
+        TransferSettlementProcessor processor = new TransferSettlementProcessor(eventStore,
+                envInt("SETTLEMENT_WORKERS", Runtime.getRuntime().availableProcessors()), listener);
+        // the queues die with the process: re-drive every transfer in the store, the settled ones are skipped.
+        // the outbox needs no scan, a transfer stays marked until settlement acknowledged its credit
+        if (!OUTBOX) Thread.ofPlatform().name("settlement-recovery").daemon().start(() -> {
+            try (Stream<AccountId> accounts = eventStore.accountIds()) {
+                LOG.log(System.Logger.Level.INFO, "settlement recovery: re-drove " + processor.recover(accounts) + " transfers");
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.ERROR, "settlement recovery failed, unsettled transfers wait for the next start", e);
+            }
+        });
+        return processor;
+    }
+
+    // OUTBOX=1: appends carry an unpublished marker and a relay feeds settlement from the store, so a slow or
+    // crashed publish never costs a command its latency or its event. otherwise commands publish inline
+    private static EventPublisherPort initPublisher() {
+        EventPublisherPort downstream = audit == null ? settlement : new EventPublisherPort() {
+            @Override
+            public void publish(DomainEvent event) {
+                publishAcknowledged(event);
+            }
+
+            // the relay waits for settlement's ack, the audit ring is best effort
+            @Override
+            public CompletableFuture<Void> publishAcknowledged(DomainEvent event) {
+                CompletableFuture<Void> settled = settlement.publishAcknowledged(event);
+                audit.publish(event);
+                return settled;
+            }
+        };
+        if (!OUTBOX) return downstream;
+        if (!(cloudStore instanceof OutboxPort outbox)) {
+            throw new IllegalStateException("OUTBOX=1 needs an event store with an outbox (Dynamo or Cosmos), got "
+                    + cloudStore.getClass().getSimpleName());
+        }
+        return new OutboxRelay(outbox, downstream,
+                envInt("OUTBOX_BATCH_SIZE", OutboxRelay.DEFAULT_BATCH_SIZE),
+                Duration.ofMillis(envInt("OUTBOX_POLL_MS", (int) OutboxRelay.DEFAULT_POLL_INTERVAL.toMillis())));
+    }
+
+    private static AccountCommandExecutor initExecutor() {
+        // published events go to settlement, it ignores everything but MoneyTransferInitiated
+        AccountCommandExecutor commands = new AccountCommandExecutor(eventStore, publisher,
+                envInt("COMMAND_SHARDS", Runtime.getRuntime().availableProcessors()));
+        // exit drains every queue in pipeline order: commands feed settlement (through the outbox relay if on),
+        // both append to the global log, the subscription hands the log to the projector. anything lost to a
+        // crash is picked up from the projection checkpoints (and the outbox markers) on the next start
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            commands.close();
+            if (publisher instanceof OutboxRelay relay) relay.close();
+            settlement.close();
+            if (audit != null) audit.close();
+            projection.close();
+            historyFeed.close();
+            projector.close();
+            if (globalLog instanceof AutoCloseable closeable) {
+                try { closeable.close(); }
+                catch (Exception e) { LOG.log(System.Logger.Level.ERROR, "global log close failed", e); }
+            }
+            if (cloudStore instanceof AutoCloseable closeable) {
+                try { closeable.close(); }
+                catch (Exception e) { LOG.log(System.Logger.Level.ERROR, "event store close failed", e); }
+            }
+        }, "bank-shell-drain"));
+        return commands;
+    }
+
+    private static int envInt(String name, int fallback) {
+        String value = System.getenv(name);
+        if (value == null) return fallback;
+        try { return Integer.parseInt(value.trim()); }
+        catch (NumberFormatException e) { throw new IllegalStateException(name + " must be a number, got: " + value); }
+    }
+
     private static final class AtomicSequence implements DatabaseSequence {
         private final AtomicInteger counter = new AtomicInteger(10_000);
         @Override public int nextAcc() { return counter.getAndIncrement(); }
@@ -3,6 +3,7 @@ package com.vvk.banque.cli;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
 
 public final class BankShellDemo {
     private static final BankShell core = new BankShell(); 
@@ -12,6 +13,7 @@ public final class BankShellDemo {
         HttpServer server = HttpServer.create(new InetSocketAddress("0.0.0.0", port), 0);
         server.createContext("/", BankShellDemo::serveHtml); 
         server.createContext("/cli", BankShellDemo::handleCli); 
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor()); // one virtual thread per request, blocking store calls are cheap
         server.start();
         System.out.println("Banque-VVK Production Demo at http://0.0.0.0:" + port);
     }
@@ -795,8 +797,9 @@ public final class BankShellDemo {
             '5': 'transfer',
             '6': 'balance',
             '7': 'vvk_list',
-            '8': 'vvk_settle',
-            '9': 'exit'
+            '8': 'history',
+            '9': 'vvk_settle',
+            '10': 'exit'
         };
         
         function showHelp() {
@@ -808,8 +811,9 @@ public final class BankShellDemo {
 5. transfer <5DIGITS> <5DIGITS> <amount> [CUR] - move money (e.g.: transfer 12345 54321 20 USD)
 6. balance  <5DIGITS>                         - get account balance
 7. vvk_list                                   - list all accounts
-8. vvk_settle <password>                      - settle pending transfers (only preeya can run, may ask pw from her :-0)
-9. exit                                       - quit
+8. history  <5DIGITS> [cursor=N] [from=DATE] [to=DATE] - one page of transactions, newest first
+9. vvk_settle <password>                      - settle pending transfers (only preeya can run, may ask pw from her :-0)
+10. exit                                      - quit
             `.trim();
             
             addTerminalOutput(helpText);
@@ -883,13 +887,32 @@ public final class BankShellDemo {
                             const cust = parts[1];
                             const balance = parts[parts.length - 2];
                             const currency = parts[parts.length - 1];
-                            return `<li><strong>${id}</strong> (${cust})<span>${balance} ${currency}</span></li>`;
+                            return `<li data-acc="${id}" style="cursor: pointer"><strong>${id}</strong> (${cust})<span>${balance} ${currency}</span></li>`;
                         }
                         return `<li>${acc}</li>`;
                     }).join('');
+                    historyList.querySelectorAll('li[data-acc]').forEach(li =>
+                        li.addEventListener('click', () => showHistory(li.dataset.acc)));
                 }
             }
         });
+
+        // one page per request, newest first: "older" asks for the page after the cursor the last one ended on
+        async function showHistory(acc, cursor) {
+            const historyList = document.getElementById('historyList');
+            const result = await sendCommand(cursor ? `history ${acc} cursor=${cursor}` : `history ${acc}`);
+            const lines = result.split(/\r?\n/).filter(line => line.trim() !== '');
+            const more = lines.find(line => line.startsWith('more: '));
+            const rows = lines.filter(line => line !== more).map(line => `<li>${line}</li>`).join('');
+            if (!cursor) historyList.innerHTML = `<li><strong>${acc}</strong></li>`;
+            historyList.querySelector('li.history-more')?.remove();
+            historyList.insertAdjacentHTML('beforeend', rows);
+            if (more) {
+                const next = more.substring(more.indexOf('cursor=') + 7);
+                historyList.insertAdjacentHTML('beforeend', `<li class="history-more" style="cursor: pointer">older...</li>`);
+                historyList.querySelector('li.history-more').addEventListener('click', () => showHistory(acc, next));
+            }
+        }
     </script>
 </body>
 </html>
@@ -903,23 +926,14 @@ public final class BankShellDemo {
 
     private static void handleCli(HttpExchange ex) throws IOException {
         String cmd = new String(ex.getRequestBody().readAllBytes()).trim();
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        PrintStream ps = new PrintStream(buf, true);
-
-        PrintStream old = System.out;
-        System.setOut(ps);
-        try {
-            core.handle(cmd);
-        }
-        catch (Exception e) {
-            ps.println("Error: " + e.getMessage());
-        }
-        finally {
-            System.setOut(old);
-        }
+        // each request gets its own result, nothing global is swapped so requests can run side by side
+        CommandResult result = core.execute(cmd);
+        String text = result.status() == CommandResult.Status.EXIT
+                ? "exit is only available in the interactive shell\n"
+                : result.output();
 
         // CRITICAL FIX: Convert \n to \r\n for proper line breaks in browser
-        String output = buf.toString().replace("\n", "\r\n");
+        String output = text.replace("\n", "\r\n");
         byte[] out = output.getBytes();
         ex.sendResponseHeaders(200, out.length);
         try (OutputStream os = ex.getResponseBody()) { 
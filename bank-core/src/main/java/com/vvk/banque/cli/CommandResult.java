@@ -0,0 +1,11 @@
+package com.vvk.banque.cli;
+
+// what one shell command produced, instead of writing to System.out
+public record CommandResult(Status status, String output) {
+
+    public enum Status { OK, ERROR, EXIT }
+
+    static CommandResult ok(String output)     { return new CommandResult(Status.OK, output); }
+    static CommandResult error(String message) { return new CommandResult(Status.ERROR, message + System.lineSeparator()); }
+    static CommandResult exit()                { return new CommandResult(Status.EXIT, ""); }
+}
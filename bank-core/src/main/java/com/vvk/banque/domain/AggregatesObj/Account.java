@@ -10,13 +10,17 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Currency;
+import java.util.Iterator;
 import java.util.List;
 
 public final class Account {
 
 	private final	AccountId	aID;		
 	private final	CustomerId	ownerId;
-	private		Money		balance;	
+	// balance kept in minor units so replay folds on a long, Money is only built at the edge (getBalance)
+	private		long		balanceMinor;
+	private		Currency	cur;		// set by AccountOpened
+	private		Money		balanceView;	// lazily built from balanceMinor, reset on every apply
 	private		int		version;
 	
 	private final List<DomainEvent> uncommitted = new ArrayList<>();
@@ -34,11 +38,31 @@ public final class Account {
 	}
 
 	public static Account fromHistry(AccountId aID, List<DomainEvent> history) {
-		if (history == null || history.isEmpty()) {
+		return fromHistry(aID, history == null ? Collections.emptyIterator() : history.iterator());
+	}
+
+	// same fold, applied as the events arrive - a store can hand over page after page without collecting the stream
+	public static Account fromHistry(AccountId aID, Iterator<DomainEvent> history) {
+		if (!history.hasNext()) {
 			throw new AccountNullException("Account with ID " + aID.toString() + " not found");
 		}
-		Account acc = new Account(aID, ((AccountOpened) history.get(0)).getOwnerId(), null);
-		for (DomainEvent event : history) {
+		DomainEvent first = history.next();
+		Account acc = new Account(aID, ((AccountOpened) first).getOwnerId(), null);
+		acc.apply(first);
+		while (history.hasNext()) {
+			acc.apply(history.next());
+		}
+		return acc;
+	}
+
+	// rehydrate from latest snapshot + tail events, tail must start right after snapshot.version()
+	public static Account fromSnapshot(AccountSnapshot snapshot, List<DomainEvent> tail) {
+		if (snapshot == null) {
+			throw new AccountNullException("snapshot can't be null");
+		}
+		Account acc = new Account(snapshot.accountId(), snapshot.ownerId(), snapshot.balance());
+		acc.version = snapshot.version();
+		for (DomainEvent event : tail) {
 			acc.apply(event);
 		}
 		return acc;
@@ -52,7 +76,7 @@ public final class Account {
 
 	public void withdraw(Money amt) {
 		if(!amt.isPositive()) throw new PositiveMoneyException("amt must be more than 0");
-		if (balance.isLT(amt)) throw new InsufficientBalanceException("insufficient funs. u only have: " + balance);
+		if (balanceMinor < minorOf(amt)) throw new InsufficientBalanceException("insufficient funs. u only have: " + getBalance());
 		record(new MoneyWithdrawn(aID, amt));
 	}
 
@@ -62,66 +86,99 @@ public final class Account {
 	 */
 	public void send(AccountId to, Money amt) {
 		if (to.equals(aID)) throw new InvalidTransferException("can't do transfer to same acc. it's not an infinite money glitch");
-		if (balance.isLT(amt)) throw new InsufficientBalanceException("insufficient funs. can't transfer. u only have: " + balance);
+		if (balanceMinor < minorOf(amt)) throw new InsufficientBalanceException("insufficient funs. can't transfer. u only have: " + getBalance());
 		record(new MoneyTransferInitiated(aID, to, amt)); // <-- FIXED: Using MoneyTransferInitiated
 	}
 
 	/*
-	 * FIX 2 & 3: The following two methods have been REMOVED for the single-aggregate principle:
-	 * 1. public void transferTo(Account toAccount, Money amt) { ... } // Cross-aggregate interaction
-	 * 2. public void receive(AccountId from, Money amt) { ... } // Receiving is now an event-driven process, not a sync command
+	 * FIX 2 & 3: transferTo(Account toAccount, Money amt) stays REMOVED for the single-aggregate principle.
+	 * receive is back, but event-driven: the settlement listener calls it on the receiver's own aggregate
+	 * for a committed MoneyTransferInitiated, never from the sender's request
 	 */
+	public void receive(AccountId from, Money amt, TransactionId transferId) {
+		if (!amt.isPositive()) throw new PositiveMoneyException("amt must be more than 0");
+		if (from.equals(aID)) throw new InvalidTransferException("can't receive a transfer from the same acc");
+		minorOf(amt);	// opened, same currency - a credit this account can't hold is refused, not folded in
+		record(new MoneyTransferReceive(aID, from, amt, transferId));
+	}
 	
 	/*--private state change--*/
 	private void record(DomainEvent event) {
-		apply(event);
+		apply(event);	// apply owns the version bump, so version stays equal to the stream length incl. pending events
 		uncommitted.add(event);
-		this.version++; // This increment is typically managed by apply in other systems, but we keep the current pattern.
 	}
 
+	// exhaustive over the sealed DomainEvent: a new event type won't compile until it is handled here
 	private void apply(DomainEvent event) {
-		if (event instanceof AccountOpened e) {
-			balance = e.getOpenBal();
-			version = 1;
-		} else if (event instanceof MoneyDeposited e) {
-			balance = balance.add(e.amount());
-			version++;
-		} else if (event instanceof MoneyWithdrawn e) {
-			balance = balance.subtract(e.amount());
-			version++;
-		// FIX 1: The correct event applied to the sender's stream (reduces balance)
-		} else if (event instanceof MoneyTransferInitiated e) { 
-			balance = balance.subtract(e.amount());
-			version++;
-		// Keep the old events for history replay consistency (though they should be deprecated)
-		} else if (event instanceof MoneyTransferSend e) { 
-			balance = balance.subtract(e.amount());
-			version++;
-		} else if (event instanceof MoneyTransferReceive e) {
-			balance = balance.add(e.amount());
-			version++;
-		} else if (event instanceof CustomerSignedUp e) {
-			// nothing to do here
-		} else {
-			throw new IllegalArgumentException("unhandled event type: " + event.getClass().getSimpleName());
+		balanceView = null;
+		switch (event) {
+			case AccountOpened e -> {
+				cur = e.openBal().getCur();
+				balanceMinor = e.openBal().minorUnits();
+				version = 1;
+			}
+			case MoneyDeposited e		-> credit(e.amount());
+			case MoneyWithdrawn e		-> debit(e.amount());
+			// FIX 1: The correct event applied to the sender's stream (reduces balance)
+			case MoneyTransferInitiated e	-> debit(e.amount());
+			// Keep the old events for history replay consistency (though they should be deprecated)
+			case MoneyTransferSend e	-> debit(e.amount());
+			case MoneyTransferReceive e	-> credit(e.amount());
+			case CustomerSignedUp e		-> { }	// nothing to do here
 		}
 	}
+
+	private void credit(Money amt) {
+		balanceMinor = Math.addExact(balanceMinor, minorOf(amt));
+		version++;
+	}
+
+	private void debit(Money amt) {
+		balanceMinor = Math.subtractExact(balanceMinor, minorOf(amt));
+		version++;
+	}
 	
 	//gttrs
 
 	public AccountId getID() { return aID; }
 	public CustomerId getOwnerId() { return ownerId; }
-	public Money getBalance() { return balance; }
+	public Money getBalance() {
+		if (balanceView == null && cur != null) balanceView = Money.ofMinor(balanceMinor, cur);
+		return balanceView;
+	}
 	public int getVersion() { return version; }
+	// stream version the aggregate was loaded at, i.e. the expected version for appending the uncommitted events
+	public int getCommittedVersion() { return version - uncommitted.size(); }
 	public List<DomainEvent> getUncommittedEvents() { return Collections.unmodifiableList(uncommitted); }
 	public void markEventsAsCommitted() { uncommitted.clear(); }
 
+	// only committed state is snapshotted, pending events have no stream version yet
+	public AccountSnapshot snapshot() {
+		if (!uncommitted.isEmpty()) {
+			throw new IllegalStateException("can't snapshot account " + aID + " with uncommitted events");
+		}
+		return new AccountSnapshot(aID, ownerId, getBalance(), version);
+	}
+
 
 	//constr
 	private Account(AccountId aID, CustomerId ownerId, Money balance) {
 		this.aID = aID;
 		this.ownerId = ownerId;
-		this.balance = balance;
+		if (balance != null) {
+			this.cur = balance.getCur();
+			this.balanceMinor = balance.minorUnits();
+			this.balanceView = balance;
+		}
 		this.version = 0;
 	}
+
+	// amount in minor units of this account's currency - same currency rule as Money.add/subtract
+	private long minorOf(Money amt) {
+		if (cur == null) throw new AccountOpenedException("account " + aID + " has no AccountOpened event yet");
+		if (!cur.equals(amt.getCur())) {
+			throw new IllegalArgumentException("currencies do not match: " + cur + " != " + amt.getCur());
+		}
+		return amt.minorUnits();
+	}
 }
@@ -0,0 +1,19 @@
+package com.vvk.banque.domain.AggregatesObj;
+
+import com.vvk.banque.domain.ValueObj.AccountId;
+import com.vvk.banque.domain.ValueObj.CustomerId;
+import com.vvk.banque.domain.ValueObj.Money;
+
+import java.util.Objects;
+
+// point-in-time state of an Account - balance as of stream version, so rehydration only needs the tail after it
+public record AccountSnapshot(AccountId accountId, CustomerId ownerId, Money balance, int version) {
+
+	public AccountSnapshot {
+		Objects.requireNonNull(accountId, "snapshot accountId can't be null");
+		Objects.requireNonNull(balance, "snapshot balance can't be null");
+		if (version < 1) {
+			throw new IllegalArgumentException("snapshot version must be 1 or more, AccountOpened is always version 1");
+		}
+	}
+}
@@ -43,7 +43,9 @@ public final class Customer {
         if (history == null || history.isEmpty()) {
             throw new AccountNullException("Customer not found from history");
         }
-        CustomerSignedUp signedUpEvent = (CustomerSignedUp) history.get(0);
+        if (!(history.get(0) instanceof CustomerSignedUp signedUpEvent)) {
+            throw new CustomerNotFoundException("Customer history must start with CustomerSignedUp");
+        }
         Customer customer = new Customer(
             signedUpEvent.getCustomerId(),
             signedUpEvent.getName(),
@@ -18,13 +18,12 @@ public final class AccountId {
             throw new IllegalArgumentException("AccountId must be positive");
         }
 
-        String padded = String.format("%05d", acc);
-
-        if (padded.length() != 5) {                       // safety net in extreme
+        // same rules as formatting to %05d and checking the digits, without a String.format per id decoded
+        if (acc > 99_999) {                               // safety net in extreme
             throw new IllegalArgumentException("AccountId must be exactly 5 digits");
         }
 
-        if (padded.charAt(0) == '0') {
+        if (acc < 10_000) {
             throw new IllegalArgumentException("First digit of accID can't be zero");
         }
 
@@ -84,5 +83,6 @@ public final class AccountId {
     public int hashCode() { return id.hashCode(); }
 
     @Override
-    public String toString() { return String.format("%05d-%s", acc, id); }
+    // acc is always 10000..99999, plain concatenation gives the same "%05d-uuid" without a String.format per call
+    public String toString() { return acc + "-" + id; }
 }
@@ -14,6 +14,8 @@ import java.util.concurrent.ConcurrentMap;
 public final class Money implements Comparable<Money> {
 	private final BigDecimal amt;
 	private final Currency cur;
+	private final long minor;	// same amount in minor units (cents), NOT_LONG when it does not fit - not part of the json shape
+	private static final long NOT_LONG = Long.MIN_VALUE;
 /* zero cache -- sinle shared 0 starting balance instance rather than having thousands of identical objects */
 	private static final ConcurrentMap<Currency, Money> ZEROS = new ConcurrentHashMap<>();
 //constructr w/ caveats to enforce basic rules
@@ -33,7 +35,14 @@ public final class Money implements Comparable<Money> {
 		this.amt = amt.stripTrailingZeros()
               		.setScale(cur.getDefaultFractionDigits(), RoundingMode.HALF_EVEN);    // rounding to nearest even
 		this.cur = cur;
+		this.minor = minorOf(this.amt);
 }
+// trusted path for amounts already in minor units - scale is right by construction, skips strip + setScale
+	private Money(long minor, Currency cur) {
+		this.amt = BigDecimal.valueOf(minor, cur.getDefaultFractionDigits());
+		this.cur = cur;
+		this.minor = minor;
+	}
 /*--factories added, to make returning new object clearer--*/
 	public static Money of(BigDecimal amount, Currency currency) {
 		return new Money(amount, currency);
@@ -41,6 +50,15 @@ public final class Money implements Comparable<Money> {
 	public static Money zero(Currency currency)	{
 		return ZEROS.computeIfAbsent(currency, c -> new Money(BigDecimal.ZERO, c));
 	}
+	public static Money ofMinor(long minorUnits, Currency currency) {
+		if (currency == null) {
+			throw new IllegalArgumentException("Monetary amount and currency cant be null!");
+		}
+		if (minorUnits == NOT_LONG) {
+			throw new ArithmeticException("amount out of range for minor units: " + minorUnits);
+		}
+		return new Money(minorUnits, currency);
+	}
 // getters
 	public BigDecimal getAmt() {
 		return amt;
@@ -48,6 +66,14 @@ public final class Money implements Comparable<Money> {
 	public Currency getCur() {
 		return cur;
 	}
+// amt is already scaled to the currency's fraction digits, so minor units are just its unscaled value (12.34 USD -> 1234)
+	public long minorUnits() {
+		if (minor == NOT_LONG) {
+			throw new ArithmeticException("amount too large for minor units: " + this);
+		}
+		return minor;
+	}
+	public boolean fitsMinorUnits() { return minor != NOT_LONG; }
 	/*- quick tests to enforce */
 	public boolean isZero()	    { return amt.signum() == 0; }
 	public boolean isPositive() { return amt.signum() > 0; }
@@ -55,10 +81,18 @@ public final class Money implements Comparable<Money> {
 // BL loosely:  defining what to do w/ money
 	public Money add(Money other) {
 		matchCurrency(other);	// checking currency match prior to adding
+		if (minor != NOT_LONG && other.minor != NOT_LONG) {
+			long sum = minor + other.minor;
+			if (((minor ^ sum) & (other.minor ^ sum)) >= 0 && sum != NOT_LONG) return new Money(sum, cur); // no overflow -> long path
+		}
 		return new Money(this.amt.add(other.amt), this.cur);	// new Money obj, uses modified constructor
 	}
 	public Money subtract(Money other) {
 		matchCurrency(other);
+		if (minor != NOT_LONG && other.minor != NOT_LONG) {
+			long diff = minor - other.minor;
+			if (((minor ^ other.minor) & (minor ^ diff)) >= 0 && diff != NOT_LONG) return new Money(diff, cur);
+		}
 		return new Money(this.amt.subtract(other.amt), this.cur); // new Money obj, uses modified constructor
 	}
 	public Money multiply (BigDecimal factor, RoundingMode mode) {
@@ -67,15 +101,19 @@ public final class Money implements Comparable<Money> {
 				 .setScale(cur.getDefaultFractionDigits(), mode), this.cur); // Uses scaled result
 	}
 	public boolean isLT(Money other) {
-		matchCurrency(other);
-		return this.amt.compareTo(other.amt) < 0;
+		return compareTo(other) < 0;
 	}
 	/*--comparable--*/
 	@Override
 	public int compareTo(Money other) {
 		matchCurrency(other);
+		if (minor != NOT_LONG && other.minor != NOT_LONG) return Long.compare(minor, other.minor); // same scale, compare cents
 		return this.amt.compareTo(other.amt);
 	}
+	private static long minorOf(BigDecimal scaled) {
+		// precision <= 18 always fits a long, bigger amounts stay on the BigDecimal path
+		return scaled.precision() <= 18 ? scaled.unscaledValue().longValue() : NOT_LONG;
+	}
 /*-- this helper method is for strictly ensuring  matching currency, used above --*/
 	private void matchCurrency(Money other) {
 		if (!this.cur.equals(other.cur)) {
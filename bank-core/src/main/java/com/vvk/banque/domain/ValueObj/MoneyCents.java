@@ -0,0 +1,84 @@
+package com.vvk.banque.domain.ValueObj;
+
+import java.util.Currency;
+import java.util.Objects;
+
+// Money in minor units (cents) on a plain long - for hot paths like replay and projection deltas.
+// overflow checked, currency checked, only for ISO currencies with fixed fraction digits.
+// convert at the edges: MoneyCents.of(money) in, toMoney() out
+public final class MoneyCents implements Comparable<MoneyCents> {
+	private final long minor;
+	private final Currency cur;
+
+	private MoneyCents(long minor, Currency cur) {
+		if (cur == null) {
+			throw new IllegalArgumentException("currency cant be null!");
+		}
+		if (cur.getDefaultFractionDigits() < 0) {
+			throw new IllegalArgumentException("currency " + cur.getCurrencyCode() + " has no fixed fraction digits");
+		}
+		this.minor = minor;
+		this.cur = cur;
+	}
+/*--factories--*/
+	public static MoneyCents of(Money money) {
+		return new MoneyCents(money.minorUnits(), money.getCur());
+	}
+	public static MoneyCents ofMinor(long minor, Currency currency) {
+		return new MoneyCents(minor, currency);
+	}
+	public static MoneyCents zero(Currency currency) {
+		return new MoneyCents(0L, currency);
+	}
+// getters
+	public long getMinor()	  { return minor; }
+	public Currency getCur() { return cur; }
+
+	public boolean isZero()	    { return minor == 0; }
+	public boolean isPositive() { return minor > 0; }
+	public boolean isNegative() { return minor < 0; }
+// arithmetic - Math.*Exact throws ArithmeticException instead of silently wrapping around
+	public MoneyCents add(MoneyCents other) {
+		matchCurrency(other);
+		return new MoneyCents(Math.addExact(minor, other.minor), cur);
+	}
+	public MoneyCents subtract(MoneyCents other) {
+		matchCurrency(other);
+		return new MoneyCents(Math.subtractExact(minor, other.minor), cur);
+	}
+	public MoneyCents negate() {
+		return new MoneyCents(Math.negateExact(minor), cur);
+	}
+	public boolean isLT(MoneyCents other) {
+		return compareTo(other) < 0;
+	}
+	@Override
+	public int compareTo(MoneyCents other) {
+		matchCurrency(other);
+		return Long.compare(minor, other.minor);
+	}
+// back to the BigDecimal Money at the edge (api, persistence)
+	public Money toMoney() {
+		return Money.ofMinor(minor, cur);
+	}
+	private void matchCurrency(MoneyCents other) {
+		if (!this.cur.equals(other.cur)) {
+			throw new IllegalArgumentException("currencies do not match: " + this.cur + " != " + other.cur);
+		}
+	}
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof MoneyCents)) return false;
+		MoneyCents other = (MoneyCents) o;
+		return minor == other.minor && cur.equals(other.cur);
+	}
+	@Override
+	public int hashCode() {
+		return Objects.hash(minor, cur);
+	}
+	@Override
+	public String toString() {
+		return toMoney().toString();
+	}
+}
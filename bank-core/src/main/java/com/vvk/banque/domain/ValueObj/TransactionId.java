@@ -1,11 +1,15 @@
 package com.vvk.banque.domain.ValueObj;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
 import java.util.Objects;
 import java.util.UUID;
 
 public final class TransactionId {
 	private final UUID	tID;
 	
+	@JsonCreator	// serialized as the bare uuid string
 	public TransactionId(UUID tID) {
 	
 	if (tID == null) {
@@ -24,6 +28,7 @@ public final class TransactionId {
 
 	// getter
 
+	@JsonValue
 	public UUID getTID() {
 
 		return tID;
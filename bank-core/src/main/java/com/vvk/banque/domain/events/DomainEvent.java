@@ -2,29 +2,17 @@ package com.vvk.banque.domain.events;
 
 import com.vvk.banque.domain.ValueObj.AccountId;
 
-public interface DomainEvent {
-    default AccountId accountId() {
-        if (this instanceof AccountOpened e)        return e.getAccountId();
-        if (this instanceof MoneyDeposited e)       return e.accountId();
-        if (this instanceof MoneyWithdrawn e)       return e.accountId();
-        // The sender's ID is the primary ID for the MoneyTransferSend event
-        if (this instanceof MoneyTransferSend e)    return e.fromAccountId();
-        // The receiver's ID is the primary ID for the MoneyTransferReceive event
-        if (this instanceof MoneyTransferReceive e) return e.toAccountId();
-        throw new IllegalStateException("no accountId");
-    }
-    
-    // Default implementation for source ID of a transfer
-    default AccountId fromId() { 
-        if (this instanceof MoneyTransferSend e)    return e.fromAccountId();
-        if (this instanceof MoneyTransferReceive e) return e.fromAccountId();
-        throw new UnsupportedOperationException(); 
-    }
-    
-    // Default implementation for destination ID of a transfer
-    default AccountId toId()   { 
-        if (this instanceof MoneyTransferSend e)    return e.toAccountId();
-        if (this instanceof MoneyTransferReceive e) return e.toAccountId();
-        throw new UnsupportedOperationException(); 
-    }
+// closed set of events, every type is a record: switches over DomainEvent are checked for exhaustiveness
+// and dispatch on the type once instead of walking an instanceof chain
+public sealed interface DomainEvent
+        permits AccountOpened, MoneyDeposited, MoneyWithdrawn, MoneyTransferInitiated,
+                MoneyTransferSend, MoneyTransferReceive, CustomerSignedUp {
+
+    // the stream the event belongs to, each record answers for itself
+    AccountId accountId();
+
+    // source / destination of a transfer, only transfer events have them
+    default AccountId fromId() { throw new UnsupportedOperationException(getClass().getSimpleName() + " has no fromId"); }
+
+    default AccountId toId()   { throw new UnsupportedOperationException(getClass().getSimpleName() + " has no toId"); }
 }
@@ -1,15 +1,20 @@
 package com.vvk.banque.domain.events;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty; 
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.ValueObj.TransactionId;
 
 public record MoneyTransferInitiated(
     @JsonProperty("fromId") AccountId fromId, 
     @JsonProperty("toId") AccountId toId,    
-    @JsonProperty("amount") Money amount     
+    @JsonProperty("amount") Money amount,
+    @JsonProperty("transferId") TransactionId transferId   // settlement idempotency key, null on events written before it existed
 ) implements DomainEvent {
+    public MoneyTransferInitiated(AccountId fromId, AccountId toId, Money amount) {
+        this(fromId, toId, amount, TransactionId.generate());
+    }
+
     @Override
     public AccountId accountId() {
         return fromId; // the transfer initiating account
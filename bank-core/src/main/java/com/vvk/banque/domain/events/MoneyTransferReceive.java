@@ -1,30 +1,28 @@
 package com.vvk.banque.domain.events;
 
-import com.fasterxml.jackson.annotation.JsonCreator; // 👈
-import com.fasterxml.jackson.annotation.JsonProperty; // 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
+import com.vvk.banque.domain.ValueObj.TransactionId;
 
-public final class MoneyTransferReceive implements DomainEvent {
-    private final AccountId toAccountId;
-    private final AccountId fromAccountId;
-    private final Money amount;
+public record MoneyTransferReceive(
+        @JsonProperty("toAccountId") AccountId toAccountId,
+        @JsonProperty("fromAccountId") AccountId fromAccountId,
+        @JsonProperty("amount") Money amount,
+        @JsonProperty("transferId") TransactionId transferId   // the MoneyTransferInitiated this settles
+) implements DomainEvent {
 
-    @JsonCreator
-    public MoneyTransferReceive(
-            @JsonProperty("toAccountId") AccountId toAccountId,
-            @JsonProperty("fromAccountId") AccountId fromAccountId,
-            @JsonProperty("amount") Money amount) {
-        this.toAccountId = toAccountId;
-        this.fromAccountId = fromAccountId;
-        this.amount = amount;
+    public MoneyTransferReceive(AccountId toAccountId, AccountId fromAccountId, Money amount) {
+        this(toAccountId, fromAccountId, amount, null);
     }
 
     public AccountId getToAccountId() { return toAccountId; }
     public AccountId getFromAccountId() { return fromAccountId; }
     public Money getAmount() { return amount; }
+    public TransactionId getTransferId() { return transferId; }
 
-    public AccountId toAccountId() { return toAccountId; }
-    public AccountId fromAccountId() { return fromAccountId; }
-    public Money amount() { return amount; }
+    // The receiver's ID is the primary ID for the MoneyTransferReceive event
+    @Override public AccountId accountId() { return toAccountId; }
+    @Override public AccountId fromId()    { return fromAccountId; }
+    @Override public AccountId toId()      { return toAccountId; }
 }
@@ -1,24 +1,22 @@
 package com.vvk.banque.domain.events;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.vvk.banque.domain.ValueObj.AccountId;
 import com.vvk.banque.domain.ValueObj.Money;
 
-public final class MoneyTransferSend implements DomainEvent {
-    private final AccountId fromAccountId;
-    private final AccountId toAccountId;
-    private final Money amount;
+// superseded by MoneyTransferInitiated, kept so old streams still replay
+public record MoneyTransferSend(
+        @JsonProperty("fromAccountId") AccountId fromAccountId,
+        @JsonProperty("toAccountId") AccountId toAccountId,
+        @JsonProperty("amount") Money amount
+) implements DomainEvent {
 
-    public MoneyTransferSend(AccountId fromAccountId, AccountId toAccountId, Money amount) {
-        this.fromAccountId = fromAccountId;
-        this.toAccountId = toAccountId;
-        this.amount = amount;
-    }
-
-public AccountId getFromAccountId() { return fromAccountId; }
+    public AccountId getFromAccountId() { return fromAccountId; }
     public AccountId getToAccountId() { return toAccountId; }
     public Money getAmount() { return amount; }
 
-    public AccountId fromAccountId() { return fromAccountId; }
-    public AccountId toAccountId() { return toAccountId; }
-    public Money amount() { return amount; }
+    // The sender's ID is the primary ID for the MoneyTransferSend event
+    @Override public AccountId accountId() { return fromAccountId; }
+    @Override public AccountId fromId()    { return fromAccountId; }
+    @Override public AccountId toId()      { return toAccountId; }
 }
@@ -0,0 +1,6 @@
+package com.vvk.banque.domain.exceptions;
+
+// stream moved past the version the command was decided on - reload and retry, never overwrite
+public class ConcurrencyConflictException extends RuntimeException {
+    public ConcurrencyConflictException(String msg) { super(msg); }
+}
@@ -0,0 +1,150 @@
+package com.vvk.banque.adapter.event;
+
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogWriterTest {
+
+	private static final AccountId ACC = new AccountId(12345, UUID.randomUUID());
+
+	@TempDir
+	Path dir;
+
+	private static MoneyDeposited deposit(int cents) {
+		return new MoneyDeposited(ACC, Money.ofMinor(cents, Currency.getInstance("USD")));
+	}
+
+	private List<String> lines() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			List<String> out = new ArrayList<>();
+			for (Path f : files.sorted().toList()) out.addAll(Files.readAllLines(f));
+			return out;
+		}
+	}
+
+//Test1 - every published event is one line on disk once the writer is closed
+
+	@Test
+	void publish_WritesOneLinePerEvent() throws Exception {
+		AuditLogWriter audit = new AuditLogWriter(dir);
+		audit.publish(new AccountOpened(ACC, CustomerId.generate("VVK"), Money.of(new BigDecimal("100"), Currency.getInstance("USD"))));
+		audit.publish(deposit(550));
+		audit.close();
+
+		List<String> lines = lines();
+		assertEquals(2, lines.size());
+		String[] cols = lines.get(1).split("\t");
+		assertEquals(ACC.toString(), cols[1]);
+		assertEquals("MoneyDeposited", cols[2]);
+		assertEquals("amount=5.50 USD", cols[3]);
+		assertEquals(2, audit.durable());
+	}
+
+//Test2 - the flush interval makes entries durable without a close
+
+	@Test
+	void flushInterval_SyncsInTheBackground() throws Exception {
+		try (AuditLogWriter audit = new AuditLogWriter(dir, 64, Duration.ofMillis(10), AuditLogWriter.DEFAULT_MAX_FILE_BYTES)) {
+			for (int i = 0; i < 10; i++) audit.publish(deposit(i));
+			long deadline = System.currentTimeMillis() + 5_000;
+			while (audit.durable() < 10) {
+				if (System.currentTimeMillis() > deadline) fail("not synced: " + audit.durable());
+				Thread.sleep(5);
+			}
+			assertEquals(10, lines().size());
+		}
+	}
+
+//Test3 - files roll at the size limit and a restart continues after the last one
+
+	@Test
+	void rotation_RollsAndRestartContinues() throws Exception {
+		try (AuditLogWriter audit = new AuditLogWriter(dir, 1024, Duration.ofMillis(10), 1 << 16)) {
+			for (int i = 0; i < 2_000; i++) audit.publish(deposit(i));
+		}
+		long files;
+		try (Stream<Path> s = Files.list(dir)) { files = s.count(); }
+		assertTrue(files >= 3, "files: " + files);
+
+		new AuditLogWriter(dir).close();
+		try (Stream<Path> s = Files.list(dir)) {
+			assertTrue(s.anyMatch(p -> p.getFileName().toString().equals(String.format("audit-%06d.log", files + 1))));
+		}
+		assertEquals(2_000, lines().size());
+	}
+
+//Test4 - producers racing on a tiny ring wait for room, nothing is dropped
+
+	@Test
+	void fullRing_ProducersWait_NothingLost() throws Exception {
+		AuditLogWriter audit = new AuditLogWriter(dir, 4, Duration.ofMillis(1), AuditLogWriter.DEFAULT_MAX_FILE_BYTES);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			producers.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < 2_500; i++) audit.publish(deposit(i));
+			}));
+		}
+		for (Thread p : producers) p.join();
+		audit.close();
+
+		assertEquals(10_000, lines().size());
+		assertEquals(10_000, audit.durable());
+		assertTrue(audit.stalls() > 0);
+	}
+
+//Test5 - close racing producers: every publish either throws or is on disk, none goes missing in between
+
+	@Test
+	void closeWhilePublishing_AcceptedEntriesAllWritten() throws Exception {
+		AuditLogWriter audit = new AuditLogWriter(dir, 8, Duration.ofMillis(1), AuditLogWriter.DEFAULT_MAX_FILE_BYTES);
+		AtomicInteger accepted = new AtomicInteger();
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			producers.add(Thread.ofPlatform().start(() -> {
+				try {
+					while (true) {
+						audit.publish(deposit(1));
+						accepted.incrementAndGet();
+					}
+				} catch (IllegalStateException closed) {
+					// expected once close() ran
+				}
+			}));
+		}
+		Thread.sleep(20);
+		audit.close();
+		for (Thread p : producers) p.join();
+
+		assertEquals(accepted.get(), lines().size());
+		assertEquals(accepted.get(), audit.durable());
+	}
+
+//Test6 - a roll whose next file can't be opened is retried as a roll: the next open moves on, nothing is lost
+
+	@Test
+	void rotation_NextFileFailsToOpen_RetriedWithoutWedging() throws Exception {
+		try (AuditLogWriter audit = new AuditLogWriter(dir, 1024, Duration.ofMillis(1), 1 << 16)) {
+			Files.createDirectory(dir.resolve("audit-000002.log"));	// where the first roll goes, after the writer picked 1
+			for (int i = 0; i < 2_000; i++) audit.publish(deposit(i));
+		}
+
+		List<String> written = new ArrayList<>(Files.readAllLines(dir.resolve("audit-000001.log")));
+		for (int i = 3; Files.exists(dir.resolve(String.format("audit-%06d.log", i))); i++) {
+			written.addAll(Files.readAllLines(dir.resolve(String.format("audit-%06d.log", i))));
+		}
+		assertEquals(2_000, written.size());
+	}
+}
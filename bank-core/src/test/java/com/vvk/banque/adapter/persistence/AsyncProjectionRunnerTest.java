@@ -0,0 +1,165 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.adapter.persistence.PostgresBalanceProjection.BalanceChange;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncProjectionRunnerTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	// balance table stand-in: acc_no -> {balance in cents, version}, same guard as the SQL
+	private final Map<Integer, long[]> rows = new ConcurrentHashMap<>();
+	private final List<List<BalanceChange>> batches = new CopyOnWriteArrayList<>();
+	private final Set<Integer> poisoned = ConcurrentHashMap.newKeySet();		// rows the table refuses, whole batch fails
+	private final AsyncProjectionRunner.Target table = new AsyncProjectionRunner.Target() {
+		@Override public List<BalanceChange> applyBatch(List<BalanceChange> changes) {
+			for (BalanceChange ch : changes) {
+				if (poisoned.contains(ch.acc())) throw new IllegalStateException("row " + ch.acc() + " rejected");
+			}
+			batches.add(changes);
+			List<BalanceChange> rejected = new ArrayList<>();
+			for (BalanceChange ch : changes) {
+				long[] row = rows.get(ch.acc());
+				int version = row == null ? 0 : (int) row[1];
+				if (version != ch.expectedVersion() || (row == null && !ch.opened())) { rejected.add(ch); continue; }
+				long balance = ch.opened() ? ch.minor() : row[0] + ch.minor();
+				rows.put(ch.acc(), new long[] { balance, ch.newVersion() });
+			}
+			return rejected;
+		}
+		@Override public Map<Integer, Integer> loadCheckpoints() {
+			Map<Integer, Integer> out = new HashMap<>();
+			rows.forEach((acc, row) -> out.put(acc, (int) row[1]));
+			return out;
+		}
+		@Override public Map<Integer, Integer> loadCheckpoints(Collection<Integer> accs) {
+			Map<Integer, Integer> out = new HashMap<>(loadCheckpoints());
+			out.keySet().retainAll(accs);
+			return out;
+		}
+	};
+
+	private InMemoryAccountStore store;
+	private AccountId accId;
+
+	@BeforeEach
+	void setUp() {
+		store = new InMemoryAccountStore();
+		accId = new AccountId(12345, UUID.randomUUID());
+	}
+
+	private AsyncProjectionRunner runner(boolean catchUp) {
+		return new AsyncProjectionRunner(table, store, 100, Duration.ofMillis(200), 50, catchUp);
+	}
+
+	// commit like BankShell.saveAndProject, returns the committed events
+	private List<DomainEvent> commit(Account a) {
+		List<DomainEvent> events = List.copyOf(a.getUncommittedEvents());
+		store.saveEvents(a.getID(), a.getCommittedVersion(), events);
+		a.markEventsAsCommitted();
+		return events;
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	@Test
+	void submit_CoalescesAccountEventsIntoOneRowChange() {
+		Account a = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		List<DomainEvent> opened = commit(a);
+		a.deposit(usd("10.50"));
+		a.deposit(usd("5"));
+		a.withdraw(usd("20"));
+		List<DomainEvent> moves = commit(a);
+
+		try (AsyncProjectionRunner r = runner(false)) {
+			r.submit(1, opened);
+			r.submit(2, moves);
+		}
+
+		assertArrayEquals(new long[] { 9550, 4 }, rows.get(12345));
+		assertEquals(1, batches.size());
+		assertEquals(1, batches.get(0).size());
+	}
+
+	@Test
+	void submit_OutOfOrderFallsBackToStoreTail() {
+		Account a = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		commit(a);
+		a.deposit(usd("1"));
+		List<DomainEvent> v2 = commit(a);
+		a.deposit(usd("2"));
+		List<DomainEvent> v3 = commit(a);
+
+		try (AsyncProjectionRunner r = runner(false)) {
+			r.submit(3, v3);   // v1 never submitted, v2 arrives after v3
+			r.submit(2, v2);
+		}
+
+		assertArrayEquals(new long[] { 10300, 3 }, rows.get(12345));
+	}
+
+	@Test
+	void catchUp_ResumesFromCheckpointWithoutReapplying() {
+		Account a = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		commit(a);
+		a.deposit(usd("25"));
+		commit(a);
+		rows.put(12345, new long[] { 10000, 1 });   // projected up to the open, then the process died
+
+		try (AsyncProjectionRunner r = runner(true)) {
+			r.submit(2, List.of(new MoneyDeposited(accId, usd("25"))));   // replayed submit of an event the catch-up already covers
+		}
+
+		assertArrayEquals(new long[] { 12500, 2 }, rows.get(12345));
+	}
+
+	@Test
+	void catchUp_AccountWithoutRow_ProjectedFromTheStore() {
+		commit(Account.open(accId, CustomerId.generate("VVK"), usd("100")));	// committed, never submitted nor logged
+
+		runner(true).close();		// the worker catches up before it takes events, close waits for it
+
+		assertArrayEquals(new long[] { 10000, 1 }, rows.get(12345));
+	}
+
+	@Test
+	void poisonAccount_DeadLetteredAfterRetries_OthersStillProjected() throws InterruptedException {
+		AccountId bad = new AccountId(66666, UUID.randomUUID());
+		List<DomainEvent> good = commit(Account.open(accId, CustomerId.generate("VVK"), usd("100")));
+		List<DomainEvent> poison = commit(Account.open(bad, CustomerId.generate("VVK"), usd("100")));
+		poisoned.add(66666);
+
+		try (AsyncProjectionRunner r = new AsyncProjectionRunner(table, store, 100, Duration.ofMillis(200), 50, false,
+				3, Duration.ofMillis(1))) {
+			r.submit(1, poison);
+			r.submit(1, good);
+			long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+			while (r.deadLettered() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+
+			assertEquals(1, r.deadLettered());
+			AsyncProjectionRunner.DeadLetter dl = r.deadLetters().get(0);
+			assertEquals(bad, dl.accountId());
+			assertEquals(0, dl.checkpoint());
+			assertEquals("row 66666 rejected", dl.error());
+			assertEquals(3, r.failedBatches());
+		}
+
+		assertArrayEquals(new long[] { 10000, 1 }, rows.get(12345));
+		assertNull(rows.get(66666));
+	}
+}
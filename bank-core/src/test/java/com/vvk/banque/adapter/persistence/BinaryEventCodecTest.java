@@ -0,0 +1,106 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryEventCodecTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private final AccountId from = new AccountId(11111, UUID.randomUUID());
+	private final AccountId to   = new AccountId(22222, UUID.randomUUID());
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	private List<DomainEvent> everyType() {
+		CustomerId owner = CustomerId.generate("VVK");
+		return List.of(
+				new AccountOpened(from, owner, usd("100")),
+				new MoneyDeposited(from, usd("12.34")),
+				new MoneyWithdrawn(from, usd("0.01")),
+				new MoneyTransferInitiated(from, to, usd("30")),
+				new MoneyTransferSend(from, to, usd("30")),
+				new MoneyTransferReceive(to, from, usd("30")),			// legacy form, no transfer id
+				new CustomerSignedUp(owner, "Vik", "vik@example.com", "hash"));
+	}
+
+	private static String type(DomainEvent e) {
+		return e.getClass().getSimpleName();
+	}
+
+//Test1 - every event type survives the round trip and comes out smaller than json
+
+	@Test
+	void encode_EveryType_RoundTripsAndShrinks() {
+		for (DomainEvent e : everyType()) {
+			byte[] binary = EventCodec.binary().encode(e);
+			byte[] json   = EventCodec.json().encode(e);
+
+			assertEquals(e, EventCodec.binary().decode(type(e), binary));
+			assertTrue(binary.length < json.length / 2, type(e) + ": " + binary.length + " vs json " + json.length);
+		}
+		// magic, tag, version, acc + uuid, currency + minor units
+		assertEquals(3 + 20 + 10, EventCodec.binary().encode(new MoneyDeposited(from, usd("1"))).length);
+	}
+
+//Test2 - either codec reads both formats, a table can change its write format mid-stream
+
+	@Test
+	void decode_ReadsBothFormats() {
+		for (DomainEvent e : everyType()) {
+			assertEquals(e, EventCodec.json().decode(type(e), EventCodec.binary().encode(e)));
+			assertEquals(e, EventCodec.binary().decode(type(e), EventCodec.json().encode(e)));
+		}
+	}
+
+//Test3 - payloads written by the old store, with Money's derived getters in them, still decode
+
+	@Test
+	void decode_LegacyJsonPayload() {
+		String legacy = "{\"accountId\":{\"acc\":11111,\"id\":\"" + from.getId() + "\"},"
+				+ "\"amount\":{\"amt\":5.00,\"cur\":\"USD\",\"zero\":false,\"negative\":false,\"positive\":true}}";
+
+		DomainEvent e = EventCodec.binary().decode("MoneyDeposited", legacy.getBytes(StandardCharsets.UTF_8));
+		assertEquals(new MoneyDeposited(from, usd("5")), e);
+	}
+
+//Test4 - amounts past a long and currencies without a unique numeric code fall back, not fail
+
+	@Test
+	void encode_UnusualMoney_RoundTrips() {
+		Money huge = Money.of(new BigDecimal("123456789012345678901234.56"), USD);
+		Money dinar = Money.of(new BigDecimal("3"), Currency.getInstance("CSD"));	// shares numeric 891 with YUM
+
+		for (Money m : List.of(huge, dinar, usd("-7.50"))) {
+			MoneyDeposited e = new MoneyDeposited(from, m);
+			assertEquals(e, EventCodec.binary().decode("MoneyDeposited", EventCodec.binary().encode(e)));
+		}
+	}
+
+//Test5 - a schema version this build never wrote is rejected rather than misread
+
+	@Test
+	void decode_UnknownSchemaVersion_Throws() {
+		byte[] payload = EventCodec.binary().encode(new MoneyDeposited(from, usd("1")));
+		payload[2] = 9;
+
+		assertThrows(IllegalArgumentException.class, () -> EventCodec.binary().decode("MoneyDeposited", payload));
+	}
+
+	@Test
+	void forName_PicksCodec() {
+		assertSame(EventCodec.binary(), EventCodec.forName(" Binary "));
+		assertSame(EventCodec.json(), EventCodec.forName("json"));
+		assertThrows(IllegalArgumentException.class, () -> EventCodec.forName("avro"));
+	}
+}
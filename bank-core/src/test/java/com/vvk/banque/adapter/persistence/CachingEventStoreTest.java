@@ -0,0 +1,112 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingEventStoreTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore inner;
+	private final AtomicInteger fullLoads = new AtomicInteger();	// loadAccount reaching the store = full replay
+
+	// counts full hydrations, everything else goes straight through
+	private final AccountEventStorePort counting = new AccountEventStorePort() {
+		@Override public void saveEvent(DomainEvent event) { inner.saveEvent(event); }
+		@Override public void saveEvents(AccountId id, int expected, List<DomainEvent> events) { inner.saveEvents(id, expected, events); }
+		@Override public List<DomainEvent> loadEvents(AccountId id) { return inner.loadEvents(id); }
+		@Override public List<DomainEvent> loadEvents(AccountId id, int from) { return inner.loadEvents(id, from); }
+		@Override public Account loadAccount(AccountId id) { fullLoads.incrementAndGet(); return inner.loadAccount(id); }
+		@Override public List<DomainEvent> loadEventsByNumericAcc(int acc) { return inner.loadEventsByNumericAcc(acc); }
+		@Override public Stream<AccountId> accountIds() { return inner.accountIds(); }
+	};
+
+	@BeforeEach
+	void setUp() {
+		inner = new InMemoryAccountStore();
+	}
+
+	private AccountId open(int acc) {
+		AccountId id = new AccountId(acc, UUID.randomUUID());
+		inner.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		return id;
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	@Test
+	void loadAccount_HitSkipsFullReplay() {
+		AccountId id = open(12345);
+		CachingEventStore store = new CachingEventStore(counting, 10);
+
+		store.loadAccount(id);
+		store.loadAccount(id);
+		store.loadAccount(id);
+
+		assertEquals(1, fullLoads.get());
+		assertEquals(new CachingEventStore.CacheStats(2, 1, 0, 1), store.stats());
+	}
+
+	@Test
+	void loadAccount_CatchesUpOnWritesThatBypassedCache() {
+		AccountId id = open(12345);
+		CachingEventStore store = new CachingEventStore(counting, 10);
+		store.loadAccount(id);
+
+		inner.saveEvents(id, 1, List.of(new MoneyDeposited(id, usd("25"))));	// written around the cache
+
+		Account acc = store.loadAccount(id);
+		assertEquals(usd("125"), acc.getBalance());
+		assertEquals(2, acc.getVersion());
+		assertEquals(1, fullLoads.get());
+	}
+
+	@Test
+	void saveEvents_RollsCachedEntryForward() {
+		AccountId id = open(12345);
+		CachingEventStore store = new CachingEventStore(counting, 10);
+		Account acc = store.loadAccount(id);
+		acc.deposit(usd("10"));
+		store.saveEvents(id, acc.getCommittedVersion(), List.copyOf(acc.getUncommittedEvents()));
+
+		Account reloaded = store.loadAccount(id);
+		assertEquals(usd("110"), reloaded.getBalance());
+		assertEquals(2, reloaded.getVersion());
+		assertEquals(1, fullLoads.get());
+	}
+
+	@Test
+	void loadAccount_EvictsLeastRecentlyUsed() {
+		AccountId a = open(11111);
+		AccountId b = open(22222);
+		AccountId c = open(33333);
+		CachingEventStore store = new CachingEventStore(counting, 2);
+
+		store.loadAccount(a);
+		store.loadAccount(b);
+		store.loadAccount(a);		// b is now the eldest
+		store.loadAccount(c);		// evicts b
+		store.loadAccount(a);
+		store.loadAccount(b);		// miss again
+
+		assertEquals(4, fullLoads.get());
+		CachingEventStore.CacheStats stats = store.stats();
+		assertEquals(2, stats.hits());
+		assertEquals(2, stats.evictions());
+		assertEquals(2, stats.size());
+	}
+}
@@ -0,0 +1,68 @@
+package com.vvk.banque.adapter.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedEventLogTest {
+
+	@Test
+	void append_AcrossChunkBoundaries_KeepsOrder() {
+		ChunkedEventLog<Integer> log = new ChunkedEventLog<>();
+		for (int i = 0; i < 1000; i++) log.append(i);
+
+		List<Integer> all = log.view(0);
+		assertEquals(1000, all.size());
+		assertEquals(IntStream.range(0, 1000).boxed().toList(), all);
+		assertEquals(IntStream.range(700, 1000).boxed().toList(), log.view(700));
+	}
+
+	@Test
+	void view_IsFixedAtTimeOfRead() {
+		ChunkedEventLog<String> log = new ChunkedEventLog<>();
+		log.append("a");
+		List<String> before = log.view(0);
+		log.append("b");
+
+		assertEquals(List.of("a"), before);
+		assertEquals(List.of("a", "b"), log.view(0));
+		assertThrows(UnsupportedOperationException.class, () -> before.add("c"));
+	}
+
+	@Test
+	void tryAppend_OnlyWinsAtExpectedSize() {
+		ChunkedEventLog<String> log = new ChunkedEventLog<>();
+		assertTrue(log.tryAppend(0, List.of("a", "b")));
+		assertFalse(log.tryAppend(1, List.of("x")));
+		assertFalse(log.tryAppend(3, List.of("x")));
+		assertTrue(log.tryAppend(2, List.of("c")));
+		assertEquals(List.of("a", "b", "c"), log.view(0));
+	}
+
+	@Test
+	void concurrentTryAppend_ExactlyOneWinnerPerVersion() throws Exception {
+		ChunkedEventLog<Integer> log = new ChunkedEventLog<>();
+		int writers = 4, perWriter = 2000;
+		ExecutorService pool = Executors.newFixedThreadPool(writers);
+		List<Future<?>> runs = new ArrayList<>();
+		for (int w = 0; w < writers; w++) {
+			runs.add(pool.submit(() -> {
+				int done = 0;
+				while (done < perWriter) {
+					if (log.tryAppend(log.size(), List.of(done))) done++;
+				}
+				return null;
+			}));
+		}
+		for (Future<?> run : runs) run.get(30, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		List<Integer> all = log.view(0);
+		assertEquals(writers * perWriter, all.size());
+		assertFalse(all.contains(null));
+	}
+}
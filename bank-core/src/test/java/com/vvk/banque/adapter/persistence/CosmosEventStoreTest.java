@@ -0,0 +1,77 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CosmosEventStoreTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final AccountId accId = new AccountId(12345, UUID.randomUUID());
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	// a document as the container hands it back, system properties included
+	private ObjectNode doc(String id, Integer version, DomainEvent event, String timestamp) {
+		ObjectNode doc = MAPPER.createObjectNode();
+		doc.put("id", id);
+		doc.put("accountId", accId.toString());
+		if (version != null) doc.put("version", version);
+		doc.put("eventType", event.getClass().getSimpleName());
+		doc.set("payload", JsonEventCodec.INSTANCE.toTree(event));
+		doc.put("timestamp", timestamp);
+		doc.put("_rid", "rid-" + id);
+		doc.put("_etag", "\"etag\"");
+		doc.put("_ts", 1704067200);
+		return doc;
+	}
+
+//Test1 - a partition holding legacy and versioned documents replays in order once the legacy ones are moved
+
+	@Test
+	void legacyMoves_MixedPartition_FillTheFreeVersionsInTimestampOrder() {
+		List<DomainEvent> history = new ArrayList<>(Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		for (String amt : List.of("10", "20", "30")) history.add(new MoneyDeposited(accId, usd(amt)));
+		// two from the pre-versioning saveEvent (random id, no version), then two numbered from the count of both
+		List<JsonNode> partition = List.of(
+				doc(accId + ":4", 4, history.get(3), "2024-01-02T00:00:00Z"),
+				doc("f9e0c6a4-legacy", null, history.get(0), "2024-01-01T00:00:00Z"),
+				doc(accId + ":3", 3, history.get(2), "2024-01-01T12:00:00Z"),
+				doc("0b1d2e3f-legacy", null, history.get(1), "2024-01-01T00:00:00.250Z"));
+
+		List<CosmosEventStore.LegacyMove> moves = CosmosEventStore.legacyMoves(partition);
+
+		assertEquals(List.of("f9e0c6a4-legacy", "0b1d2e3f-legacy"), moves.stream().map(CosmosEventStore.LegacyMove::legacyId).toList());
+		assertEquals(List.of(accId + ":1", accId + ":2"), moves.stream().map(m -> m.doc().get("id").asText()).toList());
+		assertFalse(moves.get(0).doc().has("_rid") || moves.get(0).doc().has("_etag") || moves.get(0).doc().has("_ts"));
+		// what ORDER BY c.version returns after the moves
+		List<JsonNode> migrated = new ArrayList<>(partition.stream().filter(d -> d.has("version")).toList());
+		moves.forEach(m -> migrated.add(m.doc()));
+		migrated.sort(Comparator.comparingInt(d -> d.get("version").asInt()));
+		assertEquals(history, migrated.stream()
+				.map(d -> JsonEventCodec.INSTANCE.fromTree(d.get("eventType").asText(), d.get("payload"))).toList());
+	}
+
+//Test2 - a partition already versioned has nothing to move
+
+	@Test
+	void legacyMoves_VersionedPartition_Empty() {
+		DomainEvent opened = Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents().get(0);
+
+		assertTrue(CosmosEventStore.legacyMoves(List.of(doc(accId + ":1", 1, opened, "2024-01-01T00:00:00Z"))).isEmpty());
+	}
+}
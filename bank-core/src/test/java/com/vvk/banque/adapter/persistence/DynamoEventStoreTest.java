@@ -0,0 +1,372 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.OutboxPort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DynamoEventStoreTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private FakeDynamo dynamo;
+	private AccountId accId;
+
+	@BeforeEach
+	void setUp() {
+		dynamo = new FakeDynamo();
+		accId  = new AccountId(12345, UUID.randomUUID());
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	// AccountOpened(100) + n deposits of 1, appended through the store so items look like the real thing
+	private DynamoEventStore storeWith(int deposits, int pageSize) {
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events", EventCodec.binary(), pageSize);
+		Account acc = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		for (int i = 0; i < deposits; i++) acc.deposit(usd("1"));
+		List<DomainEvent> events = acc.getUncommittedEvents();
+		// 98 per append: the open's number index and registry items share its transaction's 100
+		for (int from = 0; from < events.size(); from += 98) {
+			store.saveEvents(accId, from, events.subList(from, Math.min(from + 98, events.size())));
+		}
+		return store;
+	}
+
+//Test1 - a stream longer than one page is read to the end, in order
+
+	@Test
+	void loadEvents_FollowsLastEvaluatedKey() {
+		DynamoEventStore store = storeWith(249, 100);
+
+		List<DomainEvent> events = store.loadEvents(accId);
+
+		assertEquals(250, events.size());
+		assertTrue(events.get(0) instanceof AccountOpened);
+		assertEquals(3, dynamo.queries.size());
+		assertNull(dynamo.queries.get(0).exclusiveStartKey().get("eventId"));
+		assertEquals("0000000100", dynamo.queries.get(1).exclusiveStartKey().get("eventId").s());
+	}
+
+//Test2 - loadAccount folds the pages as they come
+
+	@Test
+	void loadAccount_FoldsAcrossPages() {
+		DynamoEventStore store = storeWith(249, 100);
+
+		Account acc = store.loadAccount(accId);
+
+		assertEquals(usd("349"), acc.getBalance());
+		assertEquals(250, acc.getVersion());
+	}
+
+//Test3 - a caller that stops after the first page does not read the rest
+
+	@Test
+	void streamEvents_StopEarly_ReadsNoFurtherThanPrefetch() {
+		DynamoEventStore store = storeWith(999, 100);
+
+		try (Stream<DomainEvent> events = store.streamEvents(accId)) {
+			assertEquals(5, events.limit(5).count());
+		}
+		assertTrue(dynamo.queries.size() <= 2, "queries: " + dynamo.queries.size());
+	}
+
+//Test4 - a tail read starts at the sort key after the caller's version instead of the first event
+
+	@Test
+	void loadEventsFrom_RangeReadsTheTail() {
+		DynamoEventStore store = storeWith(249, 100);
+
+		List<DomainEvent> tail = store.loadEvents(accId, 245);
+
+		assertEquals(5, tail.size());
+		assertEquals(1, dynamo.queries.size());
+		assertEquals("0000000245", dynamo.queries.get(0).expressionAttributeValues().get(":from").s());
+	}
+
+//Test5 - the unconditional saveEvent is numbered too, right after the last event
+
+	@Test
+	void saveEvent_AppendsAtNextVersion() {
+		DynamoEventStore store = storeWith(2, 100);
+
+		store.saveEvent(new MoneyDeposited(accId, usd("10")));
+
+		assertEquals(List.of(new MoneyDeposited(accId, usd("10"))), store.loadEvents(accId, 3));
+		assertEquals(usd("112"), store.loadAccount(accId).getBalance());
+	}
+
+	@Test
+	void loadEvents_UnknownAccount_Throws() {
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events");
+
+		assertThrows(RuntimeException.class, () -> store.loadEvents(accId));
+	}
+
+//Test6 - outbox mode writes the marker with the event, the relay side reads it back in order and clears it
+
+	@Test
+	void outbox_MarkedInAppend_ClearedByMarkPublished() {
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events", EventCodec.binary(), 100, true);
+		store.saveEvents(accId, 0, Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		store.saveEvent(new MoneyDeposited(accId, usd("5")));
+
+		List<OutboxPort.OutboxEntry> pending = store.unpublished(10);
+
+		assertEquals(List.of(1, 2), pending.stream().map(OutboxPort.OutboxEntry::streamVersion).toList());
+		assertEquals(new MoneyDeposited(accId, usd("5")), pending.get(1).event());
+		store.markPublished(pending.subList(0, 1));
+		assertEquals(List.of(2), store.unpublished(10).stream().map(OutboxPort.OutboxEntry::streamVersion).toList());
+		store.markPublished(pending);
+		assertTrue(store.unpublished(10).isEmpty());
+		assertEquals(usd("105"), store.loadAccount(accId).getBalance());
+	}
+
+//Test7 - rows from before versioned keys are moved to the versions they own, in timestamp order, once per table
+
+	@Test
+	void legacyRows_MigratedInTimestampOrder_BeforeTheFirstRead() {
+		List<DomainEvent> history = new ArrayList<>(Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		for (String amt : List.of("10", "20", "30", "40")) history.add(new MoneyDeposited(accId, usd(amt)));
+		// the pre-versioning saveEvent: uuid keys in no particular order, json payloads, no version attribute
+		putRaw("f0000000-0000-0000-0000-000000000000", null, history.get(0), "2024-01-01T00:00:01Z");
+		putRaw("00000000-0000-0000-0000-000000000000", null, history.get(1), "2024-01-01T00:00:01.500Z");
+		putRaw("80000000-0000-0000-0000-000000000000", null, history.get(2), "2024-01-01T00:00:02Z");
+		// appended by a versioned writer before the migration: numbered from the count of all rows
+		putRaw("0000000004", 4, history.get(3), "2024-01-02T00:00:00Z");
+		putRaw("0000000005", 5, history.get(4), "2024-01-02T00:00:01Z");
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events", EventCodec.binary(), 100);
+
+		assertEquals(history, store.loadEvents(accId));
+		assertEquals(history.subList(2, 5), store.loadEvents(accId, 2));
+		assertEquals(usd("200"), store.loadAccount(accId).getBalance());
+		assertTrue(dynamo.items.values().stream().filter(i -> i.get("accountId").s().equals(accId.toString()))
+				.allMatch(i -> i.get("eventId").s().matches("\\d{10}") && i.containsKey("version")));
+		new DynamoEventStore(dynamo, "bank-events").loadEvents(accId);
+		assertEquals(1, dynamo.scans);
+	}
+
+//Test8 - a stale writer on a stream that started out legacy loses, its version is taken once the rows are migrated
+
+	@Test
+	void saveEvents_LegacyStream_StaleVersionConflicts() {
+		List<DomainEvent> history = new ArrayList<>(Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		history.add(new MoneyDeposited(accId, usd("10")));
+		history.add(new MoneyDeposited(accId, usd("20")));
+		putRaw("c0000000-0000-0000-0000-000000000000", null, history.get(0), "2024-01-01T00:00:00Z");
+		putRaw("b0000000-0000-0000-0000-000000000000", null, history.get(1), "2024-01-01T00:00:01Z");
+		putRaw("a0000000-0000-0000-0000-000000000000", null, history.get(2), "2024-01-01T00:00:02Z");
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events", EventCodec.binary(), 100);
+
+		// loaded the account after the first deposit, saves after the second one landed
+		assertThrows(ConcurrencyConflictException.class,
+				() -> store.saveEvents(accId, 2, List.of(new MoneyDeposited(accId, usd("5")))));
+		store.saveEvents(accId, 3, List.of(new MoneyDeposited(accId, usd("5"))));
+		assertEquals(usd("135"), store.loadAccount(accId).getBalance());
+	}
+
+//Test9 - numbers opened before the index are indexed by the migration, a miss is a point read and nothing more
+
+	@Test
+	void findAccountIdByNumber_UnindexedAccounts_BackfilledOnce() {
+		AccountId versioned = new AccountId(54321, UUID.randomUUID());
+		putRaw("c0000000-0000-0000-0000-000000000000", null,
+				Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents().get(0), "2024-01-01T00:00:00Z");
+		AccountId legacy = accId;
+		accId = versioned;				// putRaw writes under accId
+		putRaw("0000000001", 1, Account.open(versioned, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents().get(0),
+				"2024-01-01T00:00:00Z");
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events");
+
+		assertEquals(Optional.of(legacy), store.findAccountIdByNumber(12345));
+		assertEquals(Optional.of(versioned), store.findAccountIdByNumber(54321));
+		assertEquals(Optional.empty(), store.findAccountIdByNumber(11111));
+		assertEquals(Optional.empty(), store.findAccountIdByNumber(11111));
+		assertEquals(1, dynamo.scans);
+	}
+
+//Test10 - accountIds lists the migrated accounts and the ones opened since, from the registry and not a scan
+
+	@Test
+	void accountIds_LegacyAndNewAccounts_ListedFromTheRegistry() {
+		putRaw("c0000000-0000-0000-0000-000000000000", null,
+				Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents().get(0), "2024-01-01T00:00:00Z");
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events");
+		AccountId opened = new AccountId(54321, UUID.randomUUID());
+		store.saveEvents(opened, 0, Account.open(opened, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+
+		try (Stream<AccountId> ids = store.accountIds()) {
+			assertEquals(Set.of(accId, opened), ids.collect(Collectors.toSet()));
+		}
+		assertEquals(1, dynamo.scans);
+	}
+
+//Test11 - an index that lags behind never lets a later event overtake an earlier one still marked
+
+	@Test
+	void outbox_IndexLagging_OnlyTheContiguousRunAfterAnUnmarkedEvent() {
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events", EventCodec.binary(), 100, true);
+		store.saveEvents(accId, 0, Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		for (String amt : List.of("1", "2", "3")) store.saveEvent(new MoneyDeposited(accId, usd(amt)));
+		store.markPublished(store.unpublished(1));						// v1 out
+		dynamo.notYetIndexed.add(accId + "|" + "0000000003");
+
+		assertEquals(List.of(2), store.unpublished(10).stream().map(OutboxPort.OutboxEntry::streamVersion).toList());
+
+		dynamo.notYetIndexed.add(accId + "|" + "0000000002");				// v2 still marked but not shown
+		assertTrue(store.unpublished(10).isEmpty());
+		assertTrue(dynamo.queries.stream().noneMatch(q -> q.indexName() == null && q.filterExpression() != null));	// no partition reads
+	}
+
+//Test12 - an open commits its number index with its events, a second account can't take the number
+
+	@Test
+	void saveEvents_OpenedAccount_IndexedInTheSameTransaction() {
+		DynamoEventStore store = new DynamoEventStore(dynamo, "bank-events");
+		store.saveEvents(accId, 0, Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		AccountId sameNumber = new AccountId(12345, UUID.randomUUID());
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> store.saveEvents(sameNumber, 0,
+				Account.open(sameNumber, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents()));
+
+		assertTrue(e.getMessage().contains("12345"));
+		assertEquals(Optional.of(accId), store.findAccountIdByNumber(12345));
+		assertEquals(0, store.currentVersion(sameNumber));
+		try (Stream<AccountId> ids = store.accountIds()) {
+			assertEquals(List.of(accId), ids.toList());
+		}
+		assertEquals(0, dynamo.puts);			// the marker aside, nothing outside a transaction
+	}
+
+	private void putRaw(String eventId, Integer version, DomainEvent event, String timestamp) {
+		Map<String, AttributeValue> item = new HashMap<>(Map.of(
+				"accountId", AttributeValue.builder().s(accId.toString()).build(),
+				"eventId",   AttributeValue.builder().s(eventId).build(),
+				"eventType", AttributeValue.builder().s(event.getClass().getSimpleName()).build(),
+				"payload",   AttributeValue.builder().b(SdkBytes.fromByteArray(EventCodec.json().encode(event))).build(),
+				"timestamp", AttributeValue.builder().s(timestamp).build()));
+		if (version != null) item.put("version", AttributeValue.builder().n(version.toString()).build());
+		dynamo.items.put(FakeDynamo.key(item), item);
+	}
+
+	// just enough of DynamoDB for the event store: items sorted by (accountId, eventId), paged by Limit
+	private static final class FakeDynamo implements DynamoDbClient {
+		private final NavigableMap<String, Map<String, AttributeValue>> items = new TreeMap<>();
+		final List<QueryRequest> queries = new CopyOnWriteArrayList<>();
+		int scans;
+		int puts;												// putItem calls, the migration marker aside
+		final Set<String> notYetIndexed = new HashSet<>();		// keys the eventually consistent GSI doesn't show yet
+
+		private static String key(Map<String, AttributeValue> item) {
+			return item.get("accountId").s() + "|" + item.get("eventId").s();
+		}
+
+		// all conditions checked before anything is written, like the real thing: one reason per item, in request order
+		@Override
+		public synchronized TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest req) {
+			List<CancellationReason> reasons = new ArrayList<>();
+			boolean failed = false;
+			for (TransactWriteItem w : req.transactItems()) {
+				boolean ok = w.put() != null ? putAllowed(w.put())
+						: items.containsKey(key(w.delete() != null ? w.delete().key() : w.update().key()));
+				reasons.add(CancellationReason.builder().code(ok ? "None" : "ConditionalCheckFailed").build());
+				failed |= !ok;
+			}
+			if (failed) {
+				throw TransactionCanceledException.builder().message("condition failed").cancellationReasons(reasons).build();
+			}
+			for (TransactWriteItem w : req.transactItems()) {
+				if (w.put() != null) {
+					items.put(key(w.put().item()), w.put().item());
+				} else if (w.delete() != null) {
+					items.remove(key(w.delete().key()));
+				} else {									// only "REMOVE unpublished"
+					Map<String, AttributeValue> item = new HashMap<>(items.get(key(w.update().key())));
+					item.remove("unpublished");
+					items.put(key(item), item);
+				}
+			}
+			return TransactWriteItemsResponse.builder().build();
+		}
+
+		// "attribute_not_exists(..)", optionally "OR fullAccountId = :id"; no condition always passes
+		private boolean putAllowed(Put put) {
+			if (put.conditionExpression() == null) return true;
+			Map<String, AttributeValue> existing = items.get(key(put.item()));
+			return existing == null || put.conditionExpression().contains("fullAccountId = :id")
+					&& existing.get("fullAccountId").equals(put.expressionAttributeValues().get(":id"));
+		}
+
+		@Override
+		public synchronized GetItemResponse getItem(GetItemRequest req) {
+			Map<String, AttributeValue> item = items.get(key(req.key()));
+			return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+		}
+
+		// one page, only the migration's "attribute_not_exists(version) OR eventType = :opened" filter is understood
+		@Override
+		public synchronized ScanResponse scan(ScanRequest req) {
+			scans++;
+			String opened = req.expressionAttributeValues().get(":opened").s();
+			return ScanResponse.builder().items(items.values().stream()
+					.filter(i -> !i.containsKey("version") || i.containsKey("eventType") && i.get("eventType").s().equals(opened))
+					.toList()).build();
+		}
+
+		@Override
+		public synchronized PutItemResponse putItem(PutItemRequest req) {
+			if (!req.item().get("accountId").s().startsWith("#MIGRATION")) puts++;
+			items.putIfAbsent(key(req.item()), req.item());
+			return PutItemResponse.builder().build();
+		}
+
+		@Override
+		public synchronized QueryResponse query(QueryRequest req) {
+			queries.add(req);
+			if ("outbox-index".equals(req.indexName())) {				// sparse index: marked items only
+				return QueryResponse.builder().items(items.values().stream()
+						.filter(i -> i.containsKey("unpublished") && !notYetIndexed.contains(key(i))).limit(req.limit()).toList()).build();
+			}
+			String pk = req.expressionAttributeValues().get(":aid").s();
+			AttributeValue rangeFrom = req.expressionAttributeValues().get(":from");		// "eventId > :from"
+			String from = req.hasExclusiveStartKey() ? pk + "|" + req.exclusiveStartKey().get("eventId").s()
+					: rangeFrom != null ? pk + "|" + rangeFrom.s() : pk + "|";
+			if (req.select() == Select.COUNT) {
+				int n = (int) items.tailMap(from, false).values().stream().takeWhile(i -> i.get("accountId").s().equals(pk)).count();
+				return QueryResponse.builder().count(n).build();
+			}
+			List<Map<String, AttributeValue>> page = new ArrayList<>();
+			for (Map<String, AttributeValue> item : items.tailMap(from, false).values()) {
+				if (!item.get("accountId").s().equals(pk)) break;
+				if (page.size() == req.limit()) {
+					Map<String, AttributeValue> last = page.get(page.size() - 1);
+					return QueryResponse.builder().items(page)
+							.lastEvaluatedKey(Map.of("accountId", last.get("accountId"), "eventId", last.get("eventId"))).build();
+				}
+				page.add(item);
+			}
+			return QueryResponse.builder().items(page).build();
+		}
+
+		@Override public String serviceName() { return "dynamodb"; }
+		@Override public void close() {}
+	}
+}
@@ -0,0 +1,157 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+import com.vvk.banque.domain.exceptions.ConcurrencyConflictException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileEventStoreTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	@TempDir
+	Path dir;
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	private static AccountId open(FileEventStore store, int acc) {
+		AccountId id = new AccountId(acc, UUID.randomUUID());
+		store.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		return id;
+	}
+
+	// the end of the last record in the segment file, found the slow way
+	private static long usedBytes(Path segment) throws Exception {
+		byte[] bytes = Files.readAllBytes(segment);
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		int offset = 0;
+		while (offset + 4 <= bytes.length && buf.getInt(offset) != 0) offset += 8 + buf.getInt(offset);
+		return offset;
+	}
+
+//Test1 - appends are read back in order and survive a reopen, number lookup included
+
+	@Test
+	void appendAndReopen_KeepsStreams() throws Exception {
+		AccountId id;
+		try (FileEventStore store = new FileEventStore(dir)) {
+			id = open(store, 12345);
+			store.saveEvents(id, 1, List.of(new MoneyDeposited(id, usd("5")), new MoneyWithdrawn(id, usd("2"))));
+			store.saveEvent(new MoneyDeposited(id, usd("1")));
+			assertThrows(ConcurrencyConflictException.class,
+					() -> store.saveEvents(id, 1, List.of(new MoneyDeposited(id, usd("9")))));
+		}
+		try (FileEventStore store = new FileEventStore(dir)) {
+			assertEquals(4, store.loadEvents(id).size());
+			assertEquals(List.of(new MoneyWithdrawn(id, usd("2")), new MoneyDeposited(id, usd("1"))), store.loadEvents(id, 2));
+			assertEquals(usd("104"), store.loadAccount(id).getBalance());
+			assertEquals(Optional.of(id), store.findAccountIdByNumber(12345));
+			store.saveEvents(id, 4, List.of(new MoneyDeposited(id, usd("1"))));
+			assertEquals(5, store.loadAccount(id).getVersion());
+		}
+	}
+
+//Test2 - full segments roll, sealed ones get an index that the next open loads instead of scanning
+
+	@Test
+	void segments_RollAndReopenFromIndex() throws Exception {
+		AccountId a;
+		AccountId b;
+		try (FileEventStore store = new FileEventStore(dir, 4096, false)) {
+			a = open(store, 11111);
+			b = open(store, 22222);
+			for (int i = 0; i < 200; i++) {
+				store.saveEvent(new MoneyDeposited(i % 2 == 0 ? a : b, usd("1")));
+			}
+		}
+		assertTrue(Files.exists(dir.resolve("segment-000001.idx")));
+		assertTrue(Files.exists(dir.resolve("segment-000003.log")));
+
+		try (FileEventStore store = new FileEventStore(dir, 4096, false)) {
+			assertEquals(usd("200"), store.loadAccount(a).getBalance());
+			assertEquals(101, store.loadAccount(b).getVersion());
+			assertEquals(Optional.of(b), store.findAccountIdByNumber(22222));
+		}
+	}
+
+//Test3 - a torn last record takes its whole append with it, earlier appends stay
+
+	@Test
+	void tornTail_DropsTheUnfinishedAppend() throws Exception {
+		AccountId id;
+		try (FileEventStore store = new FileEventStore(dir)) {
+			id = open(store, 12345);
+			store.saveEvents(id, 1, List.of(new MoneyDeposited(id, usd("5")), new MoneyDeposited(id, usd("6"))));
+		}
+		Path segment = dir.resolve("segment-000001.log");
+		long end = usedBytes(segment);
+		try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(new byte[]{0x7F}), end - 3);           // flip a byte in the last record
+		}
+
+		try (FileEventStore store = new FileEventStore(dir)) {
+			assertEquals(1, store.loadEvents(id).size());
+			store.saveEvents(id, 1, List.of(new MoneyDeposited(id, usd("7"))));
+			assertEquals(usd("107"), store.loadAccount(id).getBalance());
+		}
+		try (FileEventStore store = new FileEventStore(dir)) {
+			assertEquals(2, store.loadEvents(id).size());
+		}
+	}
+
+//Test4 - unknown accounts read as empty, loadAccount says not found
+
+	@Test
+	void unknownAccount() throws Exception {
+		try (FileEventStore store = new FileEventStore(dir)) {
+			AccountId id = new AccountId(12345, UUID.randomUUID());
+			assertTrue(store.loadEvents(id).isEmpty());
+			assertThrows(RuntimeException.class, () -> store.loadAccount(id));
+		}
+	}
+
+//Test5 - with syncOnAppend concurrent appends come back once forced, several to a force, and all survive a reopen
+
+	@Test
+	void syncOnAppend_GroupCommitsConcurrentAppends() throws Exception {
+		int threads = 4;
+		int perThread = 50;
+		List<AccountId> ids = new ArrayList<>();
+		try (FileEventStore store = new FileEventStore(dir, FileEventStore.DEFAULT_SEGMENT_BYTES, true)) {
+			for (int t = 0; t < threads; t++) ids.add(open(store, 10000 + t));
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<?>> done = new ArrayList<>();
+			for (AccountId id : ids) {
+				done.add(pool.submit(() -> {
+					for (int i = 0; i < perThread; i++) store.saveEvents(id, i + 1, List.of(new MoneyDeposited(id, usd("1"))));
+				}));
+			}
+			for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+			pool.shutdown();
+
+			WriteAheadLog.Stats stats = store.syncStats();
+			assertEquals(threads * (perThread + 1), stats.appends());
+			assertTrue(stats.batches() <= stats.appends());
+		}
+		try (FileEventStore store = new FileEventStore(dir)) {
+			assertNull(store.syncStats());
+			for (AccountId id : ids) assertEquals(usd("150"), store.loadAccount(id).getBalance());
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileGlobalEventLogTest {
+
+	private static final AccountId ACC = new AccountId(12345, UUID.randomUUID());
+
+	@TempDir
+	Path dir;
+
+	private static DomainEvent deposit(String amt) {
+		return new MoneyDeposited(ACC, Money.of(new BigDecimal(amt), Currency.getInstance("USD")));
+	}
+
+//Test1 - appends get consecutive positions, reads page through them in order
+
+	@Test
+	void appendThenRead_PagesInPositionOrder() throws Exception {
+		try (FileGlobalEventLog log = new FileGlobalEventLog(dir.resolve("global.log"), false)) {
+			assertEquals(2, log.append(1, List.of(deposit("1"), deposit("2"))));
+			assertEquals(3, log.append(3, List.of(deposit("3"))));
+
+			List<PositionedEvent> page = log.read(1, 10);
+			assertEquals(List.of(2L, 3L), page.stream().map(PositionedEvent::position).toList());
+			assertEquals(List.of(2, 3), page.stream().map(PositionedEvent::streamVersion).toList());
+			assertEquals(deposit("3"), page.get(1).event());
+			assertEquals(1, log.read(0, 1).size());
+			assertTrue(log.read(3, 10).isEmpty());
+		}
+	}
+
+//Test2 - reopening rebuilds the index and keeps numbering after the last record
+
+	@Test
+	void reopen_ContinuesAfterHead() throws Exception {
+		Path file = dir.resolve("global.log");
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true)) {
+			log.append(1, List.of(deposit("1"), deposit("2")));
+		}
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true)) {
+			assertEquals(2, log.head());
+			assertEquals(3, log.append(3, List.of(deposit("3"))));
+			assertEquals(3, log.read(0, 10).size());
+		}
+	}
+
+//Test3 - a half written last record is cut off on open
+
+	@Test
+	void tornTail_IsTruncated() throws Exception {
+		Path file = dir.resolve("global.log");
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true)) {
+			log.append(1, List.of(deposit("1"), deposit("2")));
+		}
+		long size = Files.size(file);
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ch.truncate(size - 3);
+		}
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true)) {
+			assertEquals(1, log.head());
+			assertEquals(2, log.append(2, List.of(deposit("9"))));
+			assertEquals(deposit("9"), log.read(1, 1).get(0).event());
+		}
+	}
+
+//Test4 - concurrent appends group commit: positions stay dense, each append reads back whole, reopen sees all of them
+
+	@Test
+	void groupCommit_ConcurrentAppendsKeepPositions() throws Exception {
+		Path file = dir.resolve("global.log");
+		int threads = 4;
+		int perThread = 100;
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true, 8, Duration.ZERO)) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<?>> done = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				done.add(pool.submit(() -> {
+					for (int i = 0; i < perThread; i++) {
+						long last = log.append(1, List.of(deposit("1"), deposit("2")));
+						assertTrue(log.head() >= last);
+						assertEquals(deposit("2"), log.read(last - 1, 1).get(0).event());
+					}
+				}));
+			}
+			for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+			pool.shutdown();
+			assertEquals(threads * perThread, log.walStats().appends());
+		}
+		try (FileGlobalEventLog log = new FileGlobalEventLog(file, true)) {
+			assertEquals(threads * perThread * 2, log.head());
+			List<PositionedEvent> all = log.read(0, threads * perThread * 2);
+			for (int i = 0; i < all.size(); i++) assertEquals(i + 1, all.get(i).position());
+		}
+	}
+}
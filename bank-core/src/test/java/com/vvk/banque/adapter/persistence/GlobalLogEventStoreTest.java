@@ -0,0 +1,165 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalLogEventStoreTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore streams;
+	private FlakyLog log;
+	private HoldingStore held;
+	private GlobalLogEventStore store;
+	private AccountId accId;
+
+	@BeforeEach
+	void setUp() {
+		streams = new InMemoryAccountStore();
+		log     = new FlakyLog();
+		held    = new HoldingStore(streams);
+		store   = new GlobalLogEventStore(held, log);
+		accId   = new AccountId(12345, UUID.randomUUID());
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	private void open(AccountId id) {
+		store.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+	}
+
+	// stream versions the log holds for one account, in log order
+	private List<Integer> logged(AccountId id) {
+		return log.read(0, 1_000).stream().filter(p -> id.equals(p.event().accountId()))
+				.map(PositionedEvent::streamVersion).toList();
+	}
+
+//Test1 - a log that starts empty gets every stream from reconcile, a second run finds nothing missing
+
+	@Test
+	void reconcile_EmptyLog_EveryStreamInStreamOrder() {
+		AccountId other = new AccountId(54321, UUID.randomUUID());
+		streams.saveEvents(accId, 0, Account.open(accId, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		streams.saveEvents(accId, 1, List.of(new MoneyDeposited(accId, usd("1")), new MoneyDeposited(accId, usd("2"))));
+		streams.saveEvents(other, 0, Account.open(other, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+
+		assertEquals(4, store.reconcile());
+
+		assertEquals(List.of(1, 2, 3), logged(accId));
+		assertEquals(List.of(1), logged(other));
+		assertEquals(0, store.reconcile());
+		assertEquals(4, log.head());
+	}
+
+//Test2 - a log append that fails is counted, the hole it leaves is filled by reconcile and nothing else is repeated
+
+	@Test
+	void saveEvents_LogAppendFails_CountedAndHoleFilledByReconcile() {
+		open(accId);
+		log.failNext = true;
+		store.saveEvent(new MoneyDeposited(accId, usd("1")));		// committed, not logged
+		store.saveEvent(new MoneyDeposited(accId, usd("2")));
+
+		assertEquals(1, store.logFailures());
+		assertEquals(3, streams.currentVersion(accId));
+		assertEquals(List.of(1, 3), logged(accId));
+
+		assertEquals(1, store.reconcile());
+		assertEquals(List.of(1, 3, 2), logged(accId));
+	}
+
+//Test3 - an append waits for the account's earlier one to reach the log, without holding its stripe meanwhile
+
+	@Test
+	void saveEvents_EarlierAppendStillCommitting_LogKeepsStreamOrderAndStripeStaysFree() throws Exception {
+		open(accId);
+		AccountId sameStripe;
+		do sameStripe = new AccountId(54321, UUID.randomUUID());
+		while (Math.floorMod(sameStripe.hashCode(), 64) != Math.floorMod(accId.hashCode(), 64));
+		AccountId neighbour = sameStripe;
+		ExecutorService writers = Executors.newFixedThreadPool(2);
+		try {
+			held.hold = new CountDownLatch(1);
+			Future<?> first = writers.submit(() -> store.saveEvents(accId, 1, List.of(new MoneyDeposited(accId, usd("1")))));
+			held.committed.await();									// in the stream, not yet logged
+			held.hold = null;
+			Future<?> second = writers.submit(() -> store.saveEvents(accId, 2, List.of(new MoneyDeposited(accId, usd("2")))));
+
+			open(neighbour);										// same stripe, not blocked by the held append
+			assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+			held.release.countDown();
+			first.get(5, TimeUnit.SECONDS);
+			second.get(5, TimeUnit.SECONDS);
+		} finally {
+			writers.shutdownNow();
+		}
+
+		assertEquals(List.of(1, 2, 3), logged(accId));
+		assertEquals(List.of(1), logged(neighbour));
+	}
+
+	// the in-memory log, failing the next append when asked
+	private static final class FlakyLog implements GlobalEventLogPort {
+		private final InMemoryGlobalEventLog log = new InMemoryGlobalEventLog();
+		volatile boolean failNext;
+
+		@Override
+		public long append(int firstStreamVersion, List<? extends DomainEvent> events) {
+			if (failNext) {
+				failNext = false;
+				throw new IllegalStateException("log down");
+			}
+			return log.append(firstStreamVersion, events);
+		}
+
+		@Override public List<PositionedEvent> read(long fromPositionExclusive, int maxCount) { return log.read(fromPositionExclusive, maxCount); }
+		@Override public long head() { return log.head(); }
+		@Override public boolean awaitAppend(long position, Duration timeout) throws InterruptedException { return log.awaitAppend(position, timeout); }
+	}
+
+	// commits to the streams, then holds the caller until released while `hold` is set: a slow cloud round trip
+	private static final class HoldingStore implements AccountEventStorePort {
+		private final InMemoryAccountStore streams;
+		final CountDownLatch committed = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		volatile CountDownLatch hold;
+
+		HoldingStore(InMemoryAccountStore streams) {
+			this.streams = streams;
+		}
+
+		@Override
+		public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+			CountDownLatch h = hold;
+			streams.saveEvents(accountId, expectedVersion, events);
+			if (h == null) return;
+			committed.countDown();
+			try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+
+		@Override public void saveEvent(DomainEvent event) { streams.saveEvent(event); }
+		@Override public List<DomainEvent> loadEvents(AccountId accountId) { return streams.loadEvents(accountId); }
+		@Override public List<DomainEvent> loadEvents(AccountId accountId, int from) { return streams.loadEvents(accountId, from); }
+		@Override public int currentVersion(AccountId accountId) { return streams.currentVersion(accountId); }
+		@Override public Account loadAccount(AccountId accountId) { return streams.loadAccount(accountId); }
+		@Override public List<DomainEvent> loadEventsByNumericAcc(int accNumber) { return streams.loadEventsByNumericAcc(accNumber); }
+		@Override public Stream<AccountId> accountIds() { return streams.accountIds(); }
+	}
+}
@@ -0,0 +1,105 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryPage;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryQuery;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryTransactionHistoryTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+	private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+	private final AccountId acc = new AccountId(12345, UUID.randomUUID());
+	private final AccountId other = new AccountId(54321, UUID.randomUUID());
+	private InMemoryTransactionHistory history;
+	private long position;
+
+	@BeforeEach
+	void setUp() {
+		history = new InMemoryTransactionHistory();
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	// deposits with sequence `from`..`to` into one account, one day apart starting at T0 + (sequence - 1) days
+	private List<PositionedEvent> deposits(AccountId id, int from, int to) {
+		return IntStream.rangeClosed(from, to)
+				.mapToObj(v -> new PositionedEvent(++position, v, T0.plusSeconds(86_400L * (v - 1)),
+						new MoneyDeposited(id, usd(String.valueOf(v)))))
+				.toList();
+	}
+
+	private static List<Integer> sequences(HistoryPage page) {
+		return page.entries().stream().map(AuditLogEntry::getSequence).toList();
+	}
+
+//Test1 - newest first by default, pages follow each other through the cursor, later appends don't shift them
+
+	@Test
+	void newestFirst_PagesThroughCursor() {
+		history.apply(deposits(acc, 1, 45));
+		history.apply(deposits(other, 1, 3));
+
+		HistoryPage first = history.findHistory(acc, HistoryQuery.newestFirst(20));
+		assertEquals(IntStream.iterate(45, v -> v - 1).limit(20).boxed().toList(), sequences(first));
+		assertTrue(first.hasMore());
+		assertEquals(26, first.nextCursor());
+
+		history.apply(deposits(acc, 46, 50));
+		HistoryPage second = history.findHistory(acc, HistoryQuery.newestFirst(20).after(first.nextCursor()));
+		assertEquals(IntStream.iterate(25, v -> v - 1).limit(20).boxed().toList(), sequences(second));
+
+		HistoryPage last = history.findHistory(acc, HistoryQuery.newestFirst(20).after(second.nextCursor()));
+		assertEquals(List.of(5, 4, 3, 2, 1), sequences(last));
+		assertFalse(last.hasMore());
+		assertEquals("amount=" + usd("5"), last.entries().get(0).getMetadata());
+		assertEquals(acc, last.entries().get(0).getAccountId());
+	}
+
+//Test2 - oldest first inside a date range: [from, to), cursor still works
+
+	@Test
+	void oldestFirst_WithinDateRange() {
+		history.apply(deposits(acc, 1, 30));
+		HistoryQuery tenToNineteen = HistoryQuery.oldestFirst(4).between(T0.plusSeconds(86_400L * 9), T0.plusSeconds(86_400L * 19));
+
+		HistoryPage first = history.findHistory(acc, tenToNineteen);
+		assertEquals(List.of(10, 11, 12, 13), sequences(first));
+		HistoryPage rest = history.findHistory(acc, tenToNineteen.after(first.nextCursor()).withLimit(10));
+		assertEquals(List.of(14, 15, 16, 17, 18, 19), sequences(rest));
+		assertFalse(rest.hasMore());
+
+		HistoryPage newest = history.findHistory(acc, HistoryQuery.newestFirst(2).between(null, T0.plusSeconds(86_400L * 3)));
+		assertEquals(List.of(3, 2), sequences(newest));
+	}
+
+//Test3 - a replayed batch changes nothing, an unknown account has an empty last page
+
+	@Test
+	void replay_IsIgnored_UnknownAccountEmpty() {
+		List<PositionedEvent> batch = deposits(acc, 1, 5);
+		history.apply(batch);
+		history.apply(batch);
+		assertEquals(List.of(5, 4, 3, 2, 1), sequences(history.findHistory(acc, HistoryQuery.newestFirst(10))));
+
+		HistoryPage none = history.findHistory(new AccountId(11111, UUID.randomUUID()), HistoryQuery.newestFirst(10));
+		assertTrue(none.entries().isEmpty());
+		assertFalse(none.hasMore());
+		assertThrows(IllegalArgumentException.class, () -> HistoryQuery.newestFirst(0));
+	}
+}
@@ -0,0 +1,117 @@
+package com.vvk.banque.adapter.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcConnectionPoolTest {
+
+	// no driver in tests: proxies count what the pool asks of a connection
+	private final AtomicInteger opened   = new AtomicInteger();
+	private final AtomicInteger prepared = new AtomicInteger();
+	private final AtomicBoolean valid    = new AtomicBoolean(true);
+	private final AtomicInteger closed   = new AtomicInteger();
+
+	private Connection fakeConnection() {
+		opened.incrementAndGet();
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			(proxy, m, args) -> switch (m.getName()) {
+				case "prepareStatement" -> { prepared.incrementAndGet(); yield fakeStatement(); }
+				case "isValid"          -> valid.get();
+				case "close"            -> { closed.incrementAndGet(); yield null; }
+				default                 -> null;
+			});
+	}
+
+	private PreparedStatement fakeStatement() {
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+			(proxy, m, args) -> m.getReturnType() == int.class ? 1 : null);
+	}
+
+	@Test
+	void prepare_ReusesStatementOnSameConnection() throws SQLException {
+		JdbcConnectionPool pool = new JdbcConnectionPool(this::fakeConnection, 2, Duration.ofMillis(100));
+
+		for (int i = 0; i < 10; i++) {
+			pool.withConnection(c -> c.prepare("UPDATE t SET x = ?").executeUpdate());
+		}
+
+		assertEquals(1, opened.get());
+		assertEquals(1, prepared.get());
+	}
+
+	@Test
+	void withConnection_TimesOutWhenPoolExhausted() throws Exception {
+		JdbcConnectionPool pool = new JdbcConnectionPool(this::fakeConnection, 1, Duration.ofMillis(50));
+		CountDownLatch borrowed = new CountDownLatch(1);
+		CountDownLatch release  = new CountDownLatch(1);
+		ExecutorService exec = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> holder = exec.submit(() -> pool.withConnection(c -> {
+				borrowed.countDown();
+				try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+				return null;
+			}));
+			borrowed.await();
+
+			assertThrows(SQLTimeoutException.class, () -> pool.withConnection(c -> null));
+
+			release.countDown();
+			holder.get();
+			assertDoesNotThrow(() -> pool.withConnection(c -> null));
+			assertEquals(1, opened.get());
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+
+	@Test
+	void withConnection_ReplacesBrokenConnection() throws SQLException {
+		JdbcConnectionPool pool = new JdbcConnectionPool(this::fakeConnection, 1, Duration.ofMillis(50));
+		valid.set(false);
+
+		assertThrows(SQLException.class, () -> pool.withConnection(c -> { throw new SQLException("socket closed"); }));
+		assertEquals(0, pool.openConnections());
+
+		valid.set(true);
+		pool.withConnection(c -> c.prepare("SELECT 1"));
+		assertEquals(2, opened.get());
+		assertEquals(1, pool.openConnections());
+	}
+
+	@Test
+	void close_WhileConnectionsComeBack_ClosesEveryOneOfThem() throws Exception {
+		JdbcConnectionPool pool = new JdbcConnectionPool(this::fakeConnection, 4, Duration.ofMillis(50));
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			CountDownLatch busy = new CountDownLatch(4);
+			for (int t = 0; t < 4; t++) {
+				exec.submit(() -> {
+					busy.countDown();
+					try {
+						while (true) pool.withConnection(c -> null);
+					} catch (SQLException closedPool) {
+						return null;
+					}
+				});
+			}
+			busy.await();
+			Thread.sleep(20);
+
+			pool.close();
+			exec.shutdown();
+			assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+			assertEquals(0, pool.openConnections());
+			assertEquals(opened.get(), closed.get());
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+}
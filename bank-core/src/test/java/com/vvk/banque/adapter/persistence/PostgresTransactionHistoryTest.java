@@ -0,0 +1,162 @@
+package com.vvk.banque.adapter.persistence;
+
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryPage;
+import com.vvk.banque.app.ports.out.TransactionHistoryPort.HistoryQuery;
+import com.vvk.banque.app.services.dto.AuditLogEntry;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresTransactionHistoryTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+	private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+	// no driver in tests: proxies record the SQL and its parameters, queries answer from `rows`
+	record Call(String sql, Map<Integer, Object> params) {}
+
+	private final List<String> executed   = new CopyOnWriteArrayList<>();    // Statement.execute
+	private final List<Call> queries      = new CopyOnWriteArrayList<>();    // executeQuery
+	private final List<Call> batched      = new CopyOnWriteArrayList<>();    // addBatch
+	private final List<String> transaction = new CopyOnWriteArrayList<>();  // setAutoCommit / executeBatch / commit / rollback
+	private List<Map<String, Object>> rows = List.of();
+
+	private final AccountId acc = new AccountId(12345, UUID.randomUUID());
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	private PostgresTransactionHistory history() throws SQLException {
+		return new PostgresTransactionHistory(new JdbcConnectionPool(this::fakeConnection, 2, Duration.ofMillis(100)));
+	}
+
+	private Connection fakeConnection() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			(proxy, m, args) -> switch (m.getName()) {
+				case "createStatement"  -> fakeStatement();
+				case "prepareStatement" -> fakePrepared((String) args[0]);
+				case "isValid"          -> true;
+				case "setAutoCommit"    -> { transaction.add("autoCommit=" + args[0]); yield null; }
+				case "commit", "rollback" -> { transaction.add(m.getName()); yield null; }
+				default                 -> null;
+			});
+	}
+
+	private Statement fakeStatement() {
+		return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+			(proxy, m, args) -> switch (m.getName()) {
+				case "execute" -> { executed.add((String) args[0]); yield false; }
+				default        -> null;
+			});
+	}
+
+	private PreparedStatement fakePrepared(String sql) {
+		Map<Integer, Object> params = new HashMap<>();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+			(proxy, m, args) -> switch (m.getName()) {
+				case "setString", "setInt", "setObject" -> { params.put((Integer) args[0], args[1]); yield null; }
+				case "addBatch"     -> { batched.add(new Call(sql, new HashMap<>(params))); yield null; }
+				case "executeBatch" -> { transaction.add("executeBatch"); yield new int[0]; }
+				case "executeQuery" -> { queries.add(new Call(sql, new HashMap<>(params))); yield fakeResultSet(rows); }
+				default             -> null;
+			});
+	}
+
+	private ResultSet fakeResultSet(List<Map<String, Object>> result) {
+		Iterator<Map<String, Object>> it = result.iterator();
+		AtomicReference<Map<String, Object>> current = new AtomicReference<>();
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+			(proxy, m, args) -> switch (m.getName()) {
+				case "next"                          -> { boolean more = it.hasNext(); if (more) current.set(it.next()); yield more; }
+				case "getInt", "getString", "getObject" -> current.get().get(String.valueOf(args[0]));
+				default                              -> null;
+			});
+	}
+
+	// what the table hands back for one row
+	private Map<String, Object> row(int seq, Instant at) {
+		return Map.of("seq", seq, "action", "MoneyDeposited",
+				"occurred_at", at.atOffset(ZoneOffset.UTC), "metadata", "amount=" + usd("1"));
+	}
+
+//Test1 - opening creates the table keyed on the account id and the (account_id, occurred_at) index a date range pages on
+
+	@Test
+	void open_CreatesTableAndTimeIndex() throws SQLException {
+		history();
+
+		assertEquals(2, executed.size());
+		assertTrue(executed.get(0).startsWith("CREATE TABLE IF NOT EXISTS transaction_history("));
+		assertTrue(executed.get(0).contains("PRIMARY KEY (account_id, seq)"));
+		assertTrue(executed.get(1).contains("ON transaction_history (account_id, occurred_at)"));
+	}
+
+//Test2 - a page without a date range binds no dates; the extra row only says there is a next page
+
+	@Test
+	void findHistory_NoRange_PrimaryKeyStatementAndNextCursor() throws SQLException {
+		rows = List.of(row(9, T0), row(8, T0), row(7, T0));
+
+		HistoryPage page = history().findHistory(acc, HistoryQuery.newestFirst(2));
+
+		assertEquals(List.of(9, 8), page.entries().stream().map(AuditLogEntry::getSequence).toList());
+		assertEquals(8, page.nextCursor());
+		assertEquals(acc, page.entries().get(0).getAccountId());
+		Call call = queries.get(0);
+		assertFalse(call.sql().contains("occurred_at >="));
+		assertTrue(call.sql().contains("seq < ? ORDER BY seq DESC"));
+		assertEquals(Map.of(1, acc.getId(), 2, Integer.MAX_VALUE, 3, 3), call.params());
+	}
+
+//Test3 - a date range takes the ranged statement, an open side is bound to the far date
+
+	@Test
+	void findHistory_Range_BindsBothSides() throws SQLException {
+		rows = List.of(row(3, T0));
+
+		HistoryPage page = history().findHistory(acc, HistoryQuery.oldestFirst(5).between(T0, null).after(2));
+
+		assertFalse(page.hasMore());
+		Call call = queries.get(0);
+		assertTrue(call.sql().contains("seq > ? AND occurred_at >= ? AND occurred_at < ? ORDER BY seq ASC"));
+		assertEquals(acc.getId(), call.params().get(1));
+		assertEquals(2, call.params().get(2));
+		assertEquals(T0.atOffset(ZoneOffset.UTC), call.params().get(3));
+		assertEquals(9999, ((OffsetDateTime) call.params().get(4)).getYear());
+		assertEquals(6, call.params().get(5));
+	}
+
+//Test4 - a feed batch goes in as one JDBC batch in one transaction, events with no account are left out
+
+	@Test
+	void apply_OneBatchOneTransaction() throws SQLException {
+		PostgresTransactionHistory history = history();
+		history.apply(List.of(
+				new PositionedEvent(1, 4, T0, new MoneyDeposited(acc, usd("5"))),
+				new PositionedEvent(2, 1, T0, new CustomerSignedUp(CustomerId.generate("VVK"), "VVK", "a@b.c", "hash")),
+				new PositionedEvent(3, 5, T0.plusSeconds(1), new MoneyWithdrawn(acc, usd("2")))));
+
+		assertEquals(List.of("autoCommit=false", "executeBatch", "commit", "autoCommit=true"), transaction);
+		assertEquals(2, batched.size());
+		assertTrue(batched.get(0).sql().endsWith("ON CONFLICT (account_id, seq) DO NOTHING"));
+		assertEquals(Map.of(1, acc.getId(), 2, 4, 3, "MoneyDeposited", 4, T0.atOffset(ZoneOffset.UTC),
+				5, "amount=" + usd("5")), batched.get(0).params());
+		assertEquals(5, batched.get(1).params().get(2));
+	}
+}
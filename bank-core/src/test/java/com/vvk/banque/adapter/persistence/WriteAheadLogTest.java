@@ -0,0 +1,182 @@
+package com.vvk.banque.adapter.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+	@TempDir
+	Path dir;
+
+	private FileChannel open(Path file) throws Exception {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static ByteBuffer record(int thread, int i) {
+		return ByteBuffer.allocate(8).putInt(thread).putInt(i).flip();
+	}
+
+//Test1 - concurrent appenders all come back durable, every record is in the file once, in per-thread order
+
+	@Test
+	void concurrentAppends_AllWrittenInOrder() throws Exception {
+		Path file = dir.resolve("wal.log");
+		int threads = 8;
+		int perThread = 200;
+		try (FileChannel ch = open(file); WriteAheadLog wal = new WriteAheadLog(ch, 0, 16, Duration.ZERO)) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Future<?>> done = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				done.add(pool.submit(() -> {
+					for (int i = 0; i < perThread; i++) wal.append(record(thread, i));
+				}));
+			}
+			for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+			pool.shutdown();
+
+			WriteAheadLog.Stats stats = wal.stats();
+			assertEquals(threads * perThread, stats.appends());
+			assertTrue(stats.batches() <= stats.appends());
+			assertTrue(stats.largestBatch() <= 16);
+			assertTrue(stats.maxSyncNanos() > 0);
+		}
+
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+		assertEquals(threads * perThread * 8, bytes.remaining());
+		int[] next = new int[threads];
+		while (bytes.hasRemaining()) {
+			int thread = bytes.getInt();
+			assertEquals(next[thread]++, bytes.getInt());
+		}
+	}
+
+//Test2 - with a max wait the flusher holds the first append until the batch is full, then commits them in one fsync
+
+	@Test
+	void maxWait_GathersAFullBatch() throws Exception {
+		try (FileChannel ch = open(dir.resolve("wal.log")); WriteAheadLog wal = new WriteAheadLog(ch, 0, 4, Duration.ofSeconds(5))) {
+			List<CompletableFuture<Long>> ends = new ArrayList<>();
+			List<Integer> hooks = new CopyOnWriteArrayList<>();
+			long started = System.nanoTime();
+			for (int i = 0; i < 4; i++) {
+				int n = i;
+				ends.add(wal.enqueue(record(0, i), () -> hooks.add(n)));
+			}
+			assertEquals(List.of(8L, 16L, 24L, 32L), ends.stream().map(CompletableFuture::join).toList());
+			assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+			assertEquals(List.of(0, 1, 2, 3), hooks);
+			assertEquals(1, wal.stats().batches());
+			assertEquals(4.0, wal.stats().meanBatchSize());
+		}
+	}
+
+//Test3 - close commits what is queued and refuses later appends; appends continue at the given end offset
+
+	@Test
+	void close_CommitsQueuedThenRejects() throws Exception {
+		Path file = dir.resolve("wal.log");
+		try (FileChannel ch = open(file)) {
+			ch.write(ByteBuffer.allocate(8), 0);
+			WriteAheadLog wal = new WriteAheadLog(ch, 8, 100, Duration.ofSeconds(5));
+			CompletableFuture<Long> end = wal.enqueue(record(1, 1), () -> {});
+			wal.close();
+			assertEquals(16L, end.getNow(-1L));
+			assertThrows(IllegalStateException.class, () -> wal.append(record(1, 2)));
+		}
+		assertEquals(16, Files.size(file));
+	}
+
+//Test4 - a hook that throws fails its own append only, the rest of the batch completes and the log goes on
+
+	@Test
+	void hookFailure_FailsOnlyItsAppend() throws Exception {
+		try (FileChannel ch = open(dir.resolve("wal.log")); WriteAheadLog wal = new WriteAheadLog(ch, 0, 4, Duration.ofSeconds(5))) {
+			CompletableFuture<Long> first = wal.enqueue(record(0, 0), () -> {});
+			CompletableFuture<Long> broken = wal.enqueue(record(0, 1), () -> { throw new IllegalStateException("index full"); });
+			CompletableFuture<Long> third = wal.enqueue(record(0, 2), () -> {});
+			CompletableFuture<Long> fourth = wal.enqueue(record(0, 3), () -> {});
+
+			assertEquals(8L, first.join());
+			CompletionException e = assertThrows(CompletionException.class, broken::join);
+			assertInstanceOf(IllegalStateException.class, e.getCause());
+			assertEquals(24L, third.join());
+			assertEquals(32L, fourth.join());
+			assertFalse(wal.failed());
+			assertEquals(40L, wal.append(record(0, 4)));
+		}
+	}
+
+//Test5 - a failed fsync fails its batch, appends are refused until resume cuts the file back to the last commit
+
+	@Test
+	void failedSync_RefusedUntilResumeThenContinuesAtLastCommit() throws Exception {
+		Path file = dir.resolve("wal.log");
+		try (FailingChannel ch = new FailingChannel(open(file)); WriteAheadLog wal = new WriteAheadLog(ch, 0, 16, Duration.ZERO)) {
+			assertEquals(8L, wal.append(record(0, 0)));
+			ch.failForce = true;
+			assertThrows(UncheckedIOException.class, () -> wal.append(record(0, 1)));
+			assertTrue(wal.failed());
+			assertThrows(UncheckedIOException.class, () -> wal.append(record(0, 2)));
+
+			ch.failForce = false;
+			assertEquals(8L, wal.resume());
+			assertFalse(wal.failed());
+			assertEquals(8L, ch.size());
+			assertEquals(16L, wal.append(record(0, 3)));
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+		assertEquals(16, bytes.remaining());
+		assertEquals(0, bytes.getInt(4));
+		assertEquals(3, bytes.getInt(12));
+	}
+
+	// a file channel whose force fails on demand, everything else goes to the real one
+	private static final class FailingChannel extends FileChannel {
+		private final FileChannel delegate;
+		volatile boolean failForce;
+
+		FailingChannel(FileChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override public void force(boolean metaData) throws IOException {
+			if (failForce) throw new IOException("EIO");
+			delegate.force(metaData);
+		}
+
+		@Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+		@Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+		@Override public int write(ByteBuffer src) throws IOException { return delegate.write(src); }
+		@Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return delegate.write(srcs, offset, length); }
+		@Override public long position() throws IOException { return delegate.position(); }
+		@Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+		@Override public long size() throws IOException { return delegate.size(); }
+		@Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+		@Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+		@Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+		@Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+		@Override public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+		@Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+		@Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+		@Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+		@Override protected void implCloseChannel() throws IOException { delegate.close(); }
+	}
+}
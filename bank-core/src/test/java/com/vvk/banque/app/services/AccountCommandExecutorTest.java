@@ -0,0 +1,159 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+import com.vvk.banque.domain.exceptions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCommandExecutorTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore store;
+	private List<DomainEvent> published;
+	private AccountId accId;
+
+	@BeforeEach
+	void setUp() {
+		store	  = new InMemoryAccountStore();
+		published = new CopyOnWriteArrayList<>();
+		accId	  = new AccountId(12345, UUID.randomUUID());
+		Account acc = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		store.saveEvents(accId, 0, acc.getUncommittedEvents());
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+//Test1 - many callers on one account are serialized by its shard, nothing conflicts or gets lost
+
+	@Test
+	void deposit_ConcurrentOnSameAccount_AllCommitInOrder() throws Exception {
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 4)) {
+			List<Future<AccountCommandExecutor.Committed>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				results.add(callers.submit(() -> exec.deposit(accId, usd("1")).join()));
+			}
+			Set<Integer> versions = new HashSet<>();
+			for (Future<AccountCommandExecutor.Committed> f : results) versions.add(f.get().firstVersion());
+			assertEquals(200, versions.size());
+		} finally {
+			callers.shutdownNow();
+		}
+
+		assertEquals(usd("300"), store.loadAccount(accId).getBalance());
+		assertEquals(201, store.loadAccount(accId).getVersion());
+		assertEquals(200, published.size());
+	}
+
+//Test2 - a domain error fails that command only, the next one sees the stored state
+
+	@Test
+	void withdraw_Insufficient_FailsFutureAndKeepsGoing() {
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 2)) {
+			CompletableFuture<AccountCommandExecutor.Committed> failed = exec.withdraw(accId, usd("500"));
+			CompletionException e = assertThrows(CompletionException.class, failed::join);
+			assertTrue(e.getCause() instanceof InsufficientBalanceException);
+
+			assertEquals(2, exec.withdraw(accId, usd("40")).join().firstVersion());
+		}
+		assertEquals(usd("60"), store.loadAccount(accId).getBalance());
+	}
+
+//Test3 - a write from outside the executor invalidates the cached aggregate instead of being overwritten
+
+	@Test
+	void deposit_AfterOutsideWrite_ReloadsAndCommits() {
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 1)) {
+			exec.deposit(accId, usd("10")).join();				// account now cached at version 2
+			new DepositMoneyCommandHandler(store, e -> {}).executeDepositMoney(accId, usd("5"));
+
+			assertEquals(4, exec.deposit(accId, usd("1")).join().firstVersion());
+		}
+		assertEquals(usd("116"), store.loadAccount(accId).getBalance());
+	}
+
+//Test4 - a full shard rejects after the enqueue timeout instead of queueing without bound
+
+	@Test
+	void submit_FullShard_RejectsAfterTimeout() throws InterruptedException {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 1, 1, 16, Duration.ofMillis(50))) {
+			exec.submit(accId, a -> {
+				running.countDown();
+				try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+			});
+			running.await();
+			CompletableFuture<AccountCommandExecutor.Committed> queued = exec.deposit(accId, usd("1"));	// fills the one slot
+
+			CompletableFuture<AccountCommandExecutor.Committed> rejected = exec.deposit(accId, usd("1"));
+			CompletionException e = assertThrows(CompletionException.class, rejected::join);
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+
+			release.countDown();
+			queued.join();
+		}
+		assertEquals(usd("101"), store.loadAccount(accId).getBalance());
+	}
+
+//Test5 - a publisher that throws after the commit doesn't fail the command, it is counted apart
+
+	@Test
+	void deposit_PublisherThrows_CommittedAndCounted() {
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, e -> { throw new IllegalStateException("bus down"); }, 1)) {
+			assertEquals(2, exec.deposit(accId, usd("10")).join().firstVersion());
+			assertEquals(1, exec.publishFailures());
+		}
+		assertEquals(usd("110"), store.loadAccount(accId).getBalance());
+	}
+
+//Test6 - a credit written outside the executor makes a withdrawal the cached copy would refuse go through
+
+	@Test
+	void withdraw_CachedCopyMissesOutsideCredit_ReloadedAndCommitted() {
+		try (AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 1)) {
+			exec.deposit(accId, usd("10")).join();				// cached at 110
+			new DepositMoneyCommandHandler(store, e -> {}).executeDepositMoney(accId, usd("50"));
+
+			assertEquals(4, exec.withdraw(accId, usd("150")).join().firstVersion());
+		}
+		assertEquals(usd("10"), store.loadAccount(accId).getBalance());
+	}
+
+//Test7 - a command submitted while the executor closes completes or fails, it is never left hanging
+
+	@Test
+	void submit_RacingClose_EveryFutureCompletes() throws Exception {
+		for (int round = 0; round < 50; round++) {
+			AccountCommandExecutor exec = new AccountCommandExecutor(store, published::add, 1);
+			CountDownLatch go = new CountDownLatch(1);
+			CompletableFuture<CompletableFuture<AccountCommandExecutor.Committed>> submitted = CompletableFuture.supplyAsync(() -> {
+				try { go.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+				return exec.deposit(accId, usd("1"));
+			});
+			go.countDown();
+			exec.close();
+
+			CompletableFuture<AccountCommandExecutor.Committed> result = submitted.get(5, TimeUnit.SECONDS);
+			try {
+				result.get(5, TimeUnit.SECONDS);
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+	}
+}
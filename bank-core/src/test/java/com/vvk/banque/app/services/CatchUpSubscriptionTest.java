@@ -0,0 +1,136 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.adapter.persistence.GlobalLogEventStore;
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.adapter.persistence.InMemoryGlobalEventLog;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort;
+import com.vvk.banque.app.ports.out.GlobalEventLogPort.PositionedEvent;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatchUpSubscriptionTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryGlobalEventLog log;
+	private GlobalLogEventStore store;
+	private List<PositionedEvent> seen;
+	private List<Integer> batchSizes;
+
+	@BeforeEach
+	void setUp() {
+		log		= new InMemoryGlobalEventLog();
+		store		= new GlobalLogEventStore(new InMemoryAccountStore(), log);
+		seen		= new CopyOnWriteArrayList<>();
+		batchSizes	= new CopyOnWriteArrayList<>();
+	}
+
+	private AccountId open(int acc) {
+		AccountId id = new AccountId(acc, UUID.randomUUID());
+		store.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), Money.of(new BigDecimal("100"), USD)).getUncommittedEvents());
+		return id;
+	}
+
+	private void deposit(AccountId id) {
+		store.saveEvent(new MoneyDeposited(id, Money.of(BigDecimal.ONE, USD)));
+	}
+
+	private CatchUpSubscription subscribe(long checkpoint, int batchSize) {
+		return new CatchUpSubscription("test", log, checkpoint, batchSize, batch -> {
+			batchSizes.add(batch.size());
+			seen.addAll(batch);
+		});
+	}
+
+	private static void waitFor(BooleanSupplier done) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!done.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) fail("timed out");
+			Thread.sleep(5);
+		}
+	}
+
+//Test1 - history is read in batches, then the subscription goes live and gets new appends
+
+	@Test
+	void catchUpThenLive() throws Exception {
+		AccountId a = open(11111);
+		for (int i = 0; i < 6; i++) deposit(a);		// positions 1..7
+
+		try (CatchUpSubscription sub = subscribe(0, 3)) {
+			waitFor(sub::isLive);
+			assertEquals(7, sub.position());
+			assertEquals(List.of(3, 3, 1), batchSizes);
+
+			deposit(a);
+			waitFor(() -> sub.position() == 8);
+			assertEquals(0, sub.lag());
+		}
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), seen.stream().map(PositionedEvent::streamVersion).toList());
+	}
+
+//Test2 - a checkpoint skips what the reader already has, other streams keep their own versions
+
+	@Test
+	void startsAfterCheckpoint() throws Exception {
+		AccountId a = open(11111);
+		AccountId b = open(22222);
+		deposit(b);
+		deposit(a);
+
+		try (CatchUpSubscription sub = subscribe(2, 100)) {
+			waitFor(() -> sub.position() == 4);
+		}
+		assertEquals(List.of(3L, 4L), seen.stream().map(PositionedEvent::position).toList());
+		assertEquals(b, seen.get(0).event().accountId());
+		assertEquals(2, seen.get(0).streamVersion());
+		assertEquals(2, seen.get(1).streamVersion());
+	}
+
+//Test3 - a failing handler gets the same batch again instead of skipping it
+
+	@Test
+	void failedBatch_IsRetried() throws Exception {
+		open(11111);
+		List<Long> attempts = new CopyOnWriteArrayList<>();
+		try (CatchUpSubscription sub = new CatchUpSubscription("flaky", log, 0, 10, batch -> {
+			attempts.add(batch.get(0).position());
+			if (attempts.size() == 1) throw new IllegalStateException("read model down");
+		})) {
+			waitFor(() -> sub.position() == 1);
+			assertEquals(1, sub.failures());
+		}
+		assertEquals(List.of(1L, 1L), attempts);
+	}
+
+//Test4 - a log append that throws after the store committed doesn't fail the write, it is counted
+
+	@Test
+	void logAppendFails_WriteStillCommitted() {
+		InMemoryAccountStore streams = new InMemoryAccountStore();
+		GlobalLogEventStore broken = new GlobalLogEventStore(streams, new GlobalEventLogPort() {
+			@Override public long append(int firstStreamVersion, List<? extends DomainEvent> events) { throw new IllegalStateException("disk full"); }
+			@Override public List<PositionedEvent> read(long fromPositionExclusive, int maxCount) { return List.of(); }
+			@Override public long head() { return 0; }
+			@Override public boolean awaitAppend(long position, Duration timeout) { return false; }
+		});
+		AccountId id = new AccountId(11111, UUID.randomUUID());
+		broken.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), Money.of(new BigDecimal("100"), USD)).getUncommittedEvents());
+		broken.saveEvent(new MoneyDeposited(id, Money.of(BigDecimal.ONE, USD)));
+
+		assertEquals(2, streams.currentVersion(id));
+		assertEquals(2, broken.logFailures());
+	}
+}
@@ -0,0 +1,133 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.app.ports.out.EventPublisherPort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxRelayTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore store;
+	private List<DomainEvent> delivered;
+
+	@BeforeEach
+	void setUp() {
+		store		= new InMemoryAccountStore(true);
+		delivered	= new CopyOnWriteArrayList<>();
+	}
+
+	private AccountId open(int acc) {
+		AccountId id = new AccountId(acc, UUID.randomUUID());
+		store.saveEvents(id, 0, Account.open(id, CustomerId.generate("VVK"), usd("100")).getUncommittedEvents());
+		return id;
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	private static void waitFor(BooleanSupplier done) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!done.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) fail("timed out");
+			Thread.sleep(5);
+		}
+	}
+
+//Test1 - a handler in outbox mode returns before publishing, the relay delivers and clears the outbox
+
+	@Test
+	void committedEvents_AreRelayedOnceAndCleared() throws Exception {
+		AccountId id = open(11111);
+		try (OutboxRelay relay = new OutboxRelay(store, delivered::add, 2, Duration.ofMillis(20))) {
+			new DepositMoneyCommandHandler(store, relay).executeDepositMoney(id, usd("5"));
+			new DepositMoneyCommandHandler(store, relay).executeDepositMoney(id, usd("6"));
+			waitFor(() -> delivered.size() == 3);
+			waitFor(() -> store.unpublished(10).isEmpty());
+			assertEquals(3, relay.published());
+		}
+		assertInstanceOf(AccountOpened.class, delivered.get(0));
+		assertEquals(new MoneyDeposited(id, usd("6")), delivered.get(2));
+	}
+
+//Test2 - a failing publish holds back that account's later events, other accounts keep flowing
+
+	@Test
+	void failedPublish_KeepsAccountOrder() throws Exception {
+		AccountId a = open(11111);
+		AccountId b = open(22222);
+		store.saveEvent(new MoneyDeposited(a, usd("1")));
+		store.saveEvent(new MoneyDeposited(a, usd("2")));
+
+		AtomicBoolean failOnce = new AtomicBoolean(true);
+		try (OutboxRelay relay = new OutboxRelay(store, e -> {
+			if (e instanceof MoneyDeposited d && d.amount().equals(usd("1")) && failOnce.getAndSet(false)) {
+				throw new IllegalStateException("broker down");
+			}
+			delivered.add(e);
+		}, 100, Duration.ofMillis(20))) {
+			waitFor(() -> delivered.size() == 4);
+			assertEquals(1, relay.failures());
+		}
+		List<DomainEvent> ofA = delivered.stream().filter(e -> e.accountId().equals(a)).toList();
+		assertEquals(List.of(AccountOpened.class, MoneyDeposited.class, MoneyDeposited.class),
+				ofA.stream().map(Object::getClass).toList());
+		assertEquals(usd("1"), ((MoneyDeposited) ofA.get(1)).amount());
+		assertEquals(usd("2"), ((MoneyDeposited) ofA.get(2)).amount());
+		assertTrue(delivered.stream().anyMatch(e -> e.accountId().equals(b)));
+	}
+
+//Test3 - close hands over whatever is still marked
+
+	@Test
+	void close_DrainsOutbox() {
+		OutboxRelay relay = new OutboxRelay(store, delivered::add, 1, Duration.ofHours(1));
+		open(11111);
+		open(22222);
+		relay.close();
+		assertEquals(2, delivered.size());
+		assertTrue(store.unpublished(10).isEmpty());
+	}
+
+//Test4 - a marker stays until the subscriber acknowledges, a failed ack means the event is sent again
+
+	@Test
+	void failedAck_KeepsMarkerAndRedelivers() throws Exception {
+		AccountId id = open(11111);
+		store.saveEvent(new MoneyDeposited(id, usd("1")));
+		AtomicBoolean nackOnce = new AtomicBoolean(true);
+		EventPublisherPort subscriber = new EventPublisherPort() {
+			@Override public void publish(DomainEvent event) { delivered.add(event); }
+			@Override public CompletableFuture<Void> publishAcknowledged(DomainEvent event) {
+				publish(event);
+				return event instanceof MoneyDeposited && nackOnce.getAndSet(false)
+						? CompletableFuture.failedFuture(new IllegalStateException("credit not committed"))
+						: CompletableFuture.completedFuture(null);
+			}
+		};
+		try (OutboxRelay relay = new OutboxRelay(store, subscriber, 100, Duration.ofMillis(20))) {
+			waitFor(() -> delivered.size() == 3);
+			waitFor(() -> store.unpublished(10).isEmpty());
+			assertEquals(1, relay.failures());
+			assertEquals(2, relay.published());
+		}
+		assertEquals(List.of(AccountOpened.class, MoneyDeposited.class, MoneyDeposited.class),
+				delivered.stream().map(Object::getClass).toList());
+	}
+}
@@ -0,0 +1,245 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.app.ports.out.AccountEventStorePort;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferSettlementProcessorTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore store;
+	private List<Integer> settledVersions;
+	private AccountId fromId;
+	private AccountId toId;
+
+	@BeforeEach
+	void setUp() {
+		store		= new InMemoryAccountStore();
+		settledVersions	= new CopyOnWriteArrayList<>();
+		fromId		= open(11111, "100");
+		toId		= open(22222, "100");
+	}
+
+	private AccountId open(int acc, String amt) {
+		AccountId id = new AccountId(acc, UUID.randomUUID());
+		Account a = Account.open(id, CustomerId.generate("VVK"), usd(amt));
+		store.saveEvents(id, 0, a.getUncommittedEvents());
+		return id;
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+
+	// what TransferMoneyCommandHandler commits and publishes
+	private MoneyTransferInitiated send(String amt) {
+		List<DomainEvent> committed = OptimisticRetry.run(store, fromId, a -> a.send(toId, usd(amt)));
+		return (MoneyTransferInitiated) committed.get(0);
+	}
+
+	private TransferSettlementProcessor processor() {
+		return new TransferSettlementProcessor(store, 2, (version, e) -> settledVersions.add(version));
+	}
+
+//Test1 - a published transfer credits the receiver once
+
+	@Test
+	void publish_CreditsReceiver() {
+		MoneyTransferInitiated t = send("30");
+		try (TransferSettlementProcessor p = processor()) {
+			p.publish(t);
+		}
+
+		assertEquals(usd("70"), store.loadAccount(fromId).getBalance());
+		assertEquals(usd("130"), store.loadAccount(toId).getBalance());
+		assertEquals(List.of(2), settledVersions);
+		MoneyTransferReceive credit = (MoneyTransferReceive) store.loadEvents(toId).get(1);
+		assertEquals(t.transferId(), credit.transferId());
+	}
+
+//Test2 - redelivery of the same transfer is skipped
+
+	@Test
+	void publish_SameTransferTwice_CreditsOnce() {
+		MoneyTransferInitiated t = send("30");
+		TransferSettlementProcessor p = processor();
+		try (p) {
+			p.publish(t);
+			p.publish(t);
+		}
+		assertEquals(1, p.settled());
+		assertEquals(1, p.duplicates());
+		assertEquals(usd("130"), store.loadAccount(toId).getBalance());
+	}
+
+//Test3 - a fresh processor seeds from the receiver's stream, so a replayed transfer stays settled
+
+	@Test
+	void publish_AfterRestart_SkipsAlreadySettled() {
+		MoneyTransferInitiated t = send("30");
+		try (TransferSettlementProcessor p = processor()) { p.publish(t); }
+
+		TransferSettlementProcessor restarted = processor();
+		try (restarted) { restarted.publish(t); }
+		assertEquals(0, restarted.settled());
+		assertEquals(1, restarted.duplicates());
+		assertEquals(usd("130"), store.loadAccount(toId).getBalance());
+	}
+
+//Test4 - a write to the receiver between settlements is absorbed, not lost
+
+	@Test
+	void publish_ReceiverMovedMeanwhile_RetriesOnFreshVersion() throws InterruptedException {
+		try (TransferSettlementProcessor p = processor()) {
+			p.publish(send("10"));
+			while (p.settled() < 1) Thread.sleep(5);			// receiver state now cached at version 2
+			new DepositMoneyCommandHandler(store, e -> {}).executeDepositMoney(toId, usd("5"));
+			p.publish(send("20"));					// first append hits a conflict at version 2
+		}
+
+		assertEquals(usd("135"), store.loadAccount(toId).getBalance());
+		assertEquals(List.of(2, 4), settledVersions);
+	}
+
+//Test5 - a credit the receiving account refuses is dead-lettered, not written
+
+	@Test
+	void publish_WrongCurrency_DeadLetteredWithoutCredit() {
+		MoneyTransferInitiated t = new MoneyTransferInitiated(fromId, toId, Money.of(new BigDecimal("30"), Currency.getInstance("EUR")));
+		TransferSettlementProcessor p = processor();
+		try (p) { p.publish(t); }
+
+		assertEquals(1, p.failed());
+		assertEquals(t, p.deadLetters().get(0).transfer());
+		assertTrue(p.deadLetters().get(0).reason().contains("currencies do not match"));
+		assertEquals(1, store.loadEvents(toId).size());
+	}
+
+//Test6 - a store that keeps failing is retried, then dead-lettered and nacked; retryDeadLetters settles it once the store is back
+
+	@Test
+	void publish_StoreDown_DeadLetteredThenRetried() throws InterruptedException {
+		FlakyStore flaky = new FlakyStore(store);
+		MoneyTransferInitiated t = send("30");
+		try (TransferSettlementProcessor p = new TransferSettlementProcessor(flaky, 1, 16,
+				(version, e) -> settledVersions.add(version), 3, Duration.ofMillis(1))) {
+			flaky.down = true;
+			CompletableFuture<Void> ack = p.publishAcknowledged(t);
+			assertThrows(CompletionException.class, ack::join);		// an outbox keeps it marked
+			assertEquals(1, p.failed());
+			assertEquals(3, flaky.failedSaves);
+			assertEquals(0, p.settled());
+
+			flaky.down = false;
+			assertEquals(1, p.retryDeadLetters());
+			while (p.settled() < 1) Thread.sleep(5);
+			assertTrue(p.deadLetters().isEmpty());
+			p.publishAcknowledged(t).join();						// redelivered after the credit: acked as a duplicate
+		}
+		assertEquals(usd("130"), store.loadAccount(toId).getBalance());
+	}
+
+//Test7 - transfers committed but never settled (queued when the process died) are re-driven from the senders' streams
+
+	@Test
+	void recover_UnsettledTransfers_SettledOnceEach() {
+		MoneyTransferInitiated settled = send("30");
+		try (TransferSettlementProcessor p = processor()) { p.publish(settled); }
+		send("20");						// committed, never published
+
+		TransferSettlementProcessor restarted = processor();
+		try (restarted; Stream<AccountId> accounts = store.accountIds()) {
+			assertEquals(2, restarted.recover(accounts));
+		}
+		assertEquals(1, restarted.settled());
+		assertEquals(1, restarted.duplicates());
+		assertEquals(usd("150"), store.loadAccount(toId).getBalance());
+	}
+
+//Test8 - a debited sender whose credit the receiver refuses gets the amount back, once, however often it is redelivered
+
+	@Test
+	void publish_RefusedCredit_RefundedToSenderOnce() {
+		AccountId eurSender = new AccountId(33333, UUID.randomUUID());
+		Money eur = Money.of(new BigDecimal("30"), Currency.getInstance("EUR"));
+		// Account.open only takes USD, a stream opened in another currency comes from elsewhere
+		store.saveEvents(eurSender, 0, List.of(new AccountOpened(eurSender, CustomerId.generate("VVK"),
+				Money.of(new BigDecimal("100"), Currency.getInstance("EUR")))));
+		MoneyTransferInitiated t = (MoneyTransferInitiated) OptimisticRetry.run(store, eurSender, a -> a.send(toId, eur)).get(0);
+
+		TransferSettlementProcessor p = processor();
+		try (p) {
+			p.publishAcknowledged(t).join();
+			p.publishAcknowledged(t).join();
+		}
+
+		assertEquals(Money.of(new BigDecimal("100"), Currency.getInstance("EUR")), store.loadAccount(eurSender).getBalance());
+		assertEquals(3, store.loadEvents(eurSender).size());
+		assertEquals(usd("100"), store.loadAccount(toId).getBalance());
+		assertEquals(1, p.failed());
+		assertTrue(p.deadLetters().get(0).reason().contains("refunded to " + eurSender));
+		assertEquals(1, p.duplicates());
+		assertEquals(List.of(3), settledVersions);				// the refund, at the sender's version
+	}
+
+//Test9 - a receiver the store has never seen is refused at once, even where loading an unknown stream throws
+
+	@Test
+	void publish_UnknownReceiverOnCloudStore_RefusedWithoutRetries() {
+		FlakyStore cloud = new FlakyStore(store);
+		cloud.unknownThrows = true;
+		AccountId nobody = new AccountId(44444, UUID.randomUUID());
+		MoneyTransferInitiated t = (MoneyTransferInitiated) OptimisticRetry.run(store, fromId, a -> a.send(nobody, usd("30"))).get(0);
+
+		TransferSettlementProcessor p = new TransferSettlementProcessor(cloud, 1, 16,
+				(version, e) -> settledVersions.add(version), 3, Duration.ofSeconds(10));
+		try (p) { p.publishAcknowledged(t).join(); }
+
+		assertEquals(1, p.failed());
+		assertTrue(p.deadLetters().get(0).reason().contains("has no events"));
+		assertEquals(usd("100"), store.loadAccount(fromId).getBalance());
+	}
+
+	// fails every append while down, reads go through; unknownThrows loads an unknown stream the way the cloud stores do
+	private static final class FlakyStore implements AccountEventStorePort {
+		private final AccountEventStorePort delegate;
+		volatile boolean down;
+		volatile int failedSaves;
+		volatile boolean unknownThrows;
+
+		FlakyStore(AccountEventStorePort delegate) { this.delegate = delegate; }
+
+		@Override public void saveEvent(DomainEvent event) { delegate.saveEvent(event); }
+		@Override public void saveEvents(AccountId accountId, int expectedVersion, List<DomainEvent> events) {
+			if (down) {
+				failedSaves++;
+				throw new IllegalStateException("store unavailable");
+			}
+			delegate.saveEvents(accountId, expectedVersion, events);
+		}
+		@Override public List<DomainEvent> loadEvents(AccountId accountId) {
+			if (unknownThrows && delegate.currentVersion(accountId) == 0) throw new RuntimeException("Account not found: " + accountId);
+			return delegate.loadEvents(accountId);
+		}
+		@Override public int currentVersion(AccountId accountId) { return delegate.currentVersion(accountId); }
+		@Override public Account loadAccount(AccountId accountId) { return delegate.loadAccount(accountId); }
+		@Override public List<DomainEvent> loadEventsByNumericAcc(int accNumber) { return delegate.loadEventsByNumericAcc(accNumber); }
+		@Override public Stream<AccountId> accountIds() { return delegate.accountIds(); }
+	}
+}
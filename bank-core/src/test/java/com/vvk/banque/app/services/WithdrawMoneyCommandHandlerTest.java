@@ -0,0 +1,90 @@
+package com.vvk.banque.app.services;
+
+import com.vvk.banque.adapter.persistence.InMemoryAccountStore;
+import com.vvk.banque.domain.AggregatesObj.Account;
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+import com.vvk.banque.domain.exceptions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WithdrawMoneyCommandHandlerTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private InMemoryAccountStore store;
+	private List<DomainEvent> published;
+	private AccountId accId;
+
+	@BeforeEach
+	void setUp() {
+		store	  = new InMemoryAccountStore();
+		published = new CopyOnWriteArrayList<>();
+		accId	  = new AccountId(12345, UUID.randomUUID());
+		Account acc = Account.open(accId, CustomerId.generate("VVK"), usd("100"));
+		store.saveEvents(accId, 0, acc.getUncommittedEvents());
+	}
+
+//Test1 - withdrawal appends at the loaded version and publishes the event
+
+	@Test
+	void withdraw_AppendsAndPublishes() {
+		new WithdrawMoneyCommandHandler(store, published::add).executeWithdrawMoney(accId, usd("40"));
+
+		assertEquals(usd("60"), store.loadAccount(accId).getBalance());
+		assertEquals(2, store.loadAccount(accId).getVersion());
+		assertEquals(1, published.size());
+		assertTrue(published.get(0) instanceof MoneyWithdrawn);
+	}
+
+//Test2 - stale expected version is rejected by the store
+
+	@Test
+	void saveEvents_StaleVersion_ThrowsConflict() {
+		List<DomainEvent> late = List.of(new MoneyDeposited(accId, usd("1")));
+		assertThrows(ConcurrencyConflictException.class, () -> store.saveEvents(accId, 0, late));
+		assertEquals(1, store.loadEvents(accId).size());
+	}
+
+//Test3 - parallel withdrawals never overdraw, losers re-check the balance on retry
+
+	@Test
+	void parallelWithdrawals_NeverOverdraw() throws Exception {
+		WithdrawMoneyCommandHandler handler = new WithdrawMoneyCommandHandler(store, published::add);
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> runs = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			runs.add(pool.submit(() -> {
+				start.await();
+				try {
+					handler.executeWithdrawMoney(accId, usd("30"));
+				} catch (InsufficientBalanceException | ConcurrencyConflictException e) {
+					rejected.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> run : runs) run.get(10, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		Account acc = store.loadAccount(accId);
+		assertFalse(acc.getBalance().isNegative());
+		assertEquals(4 - rejected.get(), published.size());
+		assertEquals(usd("100").subtract(usd("30").multiply(BigDecimal.valueOf(published.size()), java.math.RoundingMode.HALF_EVEN)), acc.getBalance());
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+}
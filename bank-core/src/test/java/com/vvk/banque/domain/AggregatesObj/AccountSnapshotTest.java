@@ -0,0 +1,84 @@
+package com.vvk.banque.domain.AggregatesObj;
+
+import com.vvk.banque.domain.ValueObj.*;
+import com.vvk.banque.domain.events.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountSnapshotTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+
+	private AccountId accId;
+	private CustomerId ownId;
+	private List<DomainEvent> history;
+
+	@BeforeEach
+	void setUp() {
+		accId	= new AccountId(12345, java.util.UUID.randomUUID());
+		ownId	= CustomerId.generate("VVK");
+		history	= List.of( new AccountOpened(accId, ownId, usd("100"))
+				  ,new MoneyDeposited(accId, usd("50"))
+				  ,new MoneyWithdrawn(accId, usd("30"))
+				  ,new MoneyDeposited(accId, usd("5"))
+				 );
+	}
+
+//Test1 - snapshot of replayed account carries balance and version
+
+	@Test
+	void snapshot_AfterReplay_CapturesBalanceAndVersion() {
+		AccountSnapshot snap = Account.fromHistry(accId, history).snapshot();
+
+		assertEquals(accId, snap.accountId());
+		assertEquals(ownId, snap.ownerId());
+		assertEquals(usd("125"), snap.balance());
+		assertEquals(4, snap.version());
+	}
+
+//Test2 - snapshot + tail gives same state as full replay
+
+	@Test
+	void fromSnapshot_WithTail_MatchesFullReplay() {
+		AccountSnapshot snap = Account.fromHistry(accId, history.subList(0, 2)).snapshot();
+		Account fromSnap = Account.fromSnapshot(snap, history.subList(snap.version(), history.size()));
+		Account full	 = Account.fromHistry(accId, history);
+
+		assertEquals(full.getBalance(), fromSnap.getBalance());
+		assertEquals(full.getVersion(), fromSnap.getVersion());
+		assertEquals(ownId, fromSnap.getOwnerId());
+		assertTrue(fromSnap.getUncommittedEvents().isEmpty());
+	}
+
+//Test3 - snapshot with empty tail, account still usable for commands
+
+	@Test
+	void fromSnapshot_EmptyTail_AcceptsCommands() {
+		AccountSnapshot snap = Account.fromHistry(accId, history).snapshot();
+		Account acc = Account.fromSnapshot(snap, List.of());
+
+		acc.withdraw(usd("25"));
+		assertEquals(usd("100"), acc.getBalance());
+		assertEquals(1, acc.getUncommittedEvents().size());
+	}
+
+//Test4 - pending events have no stream version, can't be snapshotted
+
+	@Test
+	void snapshot_WithUncommittedEvents_ThrowsException() {
+		Account acc = Account.fromHistry(accId, history);
+		acc.deposit(usd("1"));
+		assertThrows(IllegalStateException.class, acc::snapshot);
+	}
+
+	private static Money usd(String amt) {
+		return Money.of(new BigDecimal(amt), USD);
+	}
+}
@@ -119,16 +119,13 @@ class CustomerTest {
     @Test
     void testFromHistory_WithoutCustomerSignedUpEvent_ThrowsException() {
        
-	 // creatin' a mock event that's not CustomerSignedUp to check correct exception thrown
+	 // an event that's not CustomerSignedUp to check correct exception thrown
+	 // (DomainEvent is sealed, so an account event stands in for the old anonymous mock)
         
-	DomainEvent mockEvent = new DomainEvent() {
-            @Override
-            public String toString() {
-                return "MockEvent";
-            }
-        };
+	DomainEvent notASignUp = new MoneyDeposited(new AccountId(12345, UUID.randomUUID()),
+			Money.of(new java.math.BigDecimal("1.00"), java.util.Currency.getInstance("USD")));
         
-        List<DomainEvent> history = List.of(mockEvent);
+        List<DomainEvent> history = List.of(notASignUp);
         
         assertThrows(CustomerNotFoundException.class, () -> Customer.fromHistry(history));
     }
@@ -0,0 +1,56 @@
+package com.vvk.banque.domain.ValueObj;
+
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.util.Currency;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyCentsTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+	private static final Currency JPY = Currency.getInstance("JPY");
+
+	@Test
+	void minorUnits_FollowCurrencyFractionDigits() {
+		assertEquals(1234L, Money.of(new BigDecimal("12.34"), USD).minorUnits());
+		assertEquals(1200L, Money.of(new BigDecimal("12"), USD).minorUnits());
+		assertEquals(500L, Money.of(new BigDecimal("500"), JPY).minorUnits());
+	}
+
+	@Test
+	void roundTrip_ThroughMinorUnits_KeepsValue() {
+		Money m = Money.of(new BigDecimal("99.99"), USD);
+		assertEquals(m, MoneyCents.of(m).toMoney());
+		assertEquals(m, Money.ofMinor(9999L, USD));
+	}
+
+	@Test
+	void addSubtract_MatchBigDecimalPath() {
+		MoneyCents a = MoneyCents.of(Money.of(new BigDecimal("10.50"), USD));
+		MoneyCents b = MoneyCents.of(Money.of(new BigDecimal("0.75"), USD));
+		assertEquals(Money.of(new BigDecimal("11.25"), USD), a.add(b).toMoney());
+		assertEquals(Money.of(new BigDecimal("9.75"), USD), a.subtract(b).toMoney());
+		assertTrue(b.isLT(a));
+	}
+
+	@Test
+	void overflow_ThrowsInsteadOfWrapping() {
+		MoneyCents max = MoneyCents.ofMinor(Long.MAX_VALUE, USD);
+		assertThrows(ArithmeticException.class, () -> max.add(MoneyCents.ofMinor(1, USD)));
+		assertThrows(ArithmeticException.class, () -> MoneyCents.ofMinor(Long.MIN_VALUE, USD).negate());
+	}
+
+	@Test
+	void currencyMismatch_Throws() {
+		assertThrows(IllegalArgumentException.class,
+			() -> MoneyCents.zero(USD).add(MoneyCents.zero(Currency.getInstance("EUR"))));
+	}
+
+	@Test
+	void moneyArithmetic_FallsBackBeyondLongRange() {
+		Money huge = Money.of(new BigDecimal("99999999999999999999.99"), USD);
+		assertFalse(huge.fitsMinorUnits());
+		assertEquals(Money.of(new BigDecimal("100000000000000000000.00"), USD), huge.add(Money.of(new BigDecimal("0.01"), USD)));
+		assertThrows(ArithmeticException.class, huge::minorUnits);
+	}
+}